@@ -0,0 +1,88 @@
+package com.riyadhtransport.debug;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.text.TextUtils;
+import android.util.Log;
+import com.riyadhtransport.api.ResponsePipeline;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug-only entry point for in-process micro benchmarks on recorded fixtures.
+ * The report is logged and returned as the broadcast result, e.g.
+ *
+ * adb shell am broadcast -n com.riyadhtransport/.debug.BenchmarkReceiver
+ *     -a com.riyadhtransport.debug.BENCHMARK --es name parse --ei iterations 50
+ */
+public class BenchmarkReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "Benchmark";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        new Thread(() -> {
+            String report;
+            try {
+                report = TextUtils.join("\n", run(appContext, intent));
+            } catch (Exception e) {
+                Log.e(TAG, "Benchmark failed", e);
+                report = "Benchmark failed: " + e;
+            }
+            result.setResultData(report);
+            result.finish();
+        }, "benchmark").start();
+    }
+
+    private List<String> run(Context context, Intent intent) throws Exception {
+        String name = intent.getStringExtra("name");
+        int iterations = intent.getIntExtra("iterations", 50);
+
+        List<String> lines;
+        if ("parse".equals(name)) {
+            String payload = FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json");
+            lines = new ParseBenchmark(payload, iterations).run();
+        } else if ("table".equals(name)) {
+            String payload = FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json");
+            lines = new StationTableBenchmark(payload, iterations).run();
+        } else if ("snapshot".equals(name)) {
+            lines = new SnapshotBenchmark(context, iterations).run();
+        } else if ("names".equals(name)) {
+            lines = new LineNamesBenchmark(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/viewmtr.json"),
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/viewbus.json")).run();
+        } else if ("nearby".equals(name)) {
+            lines = new NearbyBenchmark(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json"), iterations).run();
+        } else if ("prefix".equals(name)) {
+            lines = new PrefixBenchmark(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json"), iterations).run();
+        } else if ("search".equals(name)) {
+            lines = new SearchBenchmark(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json"), iterations).run();
+        } else if ("lazy".equals(name)) {
+            lines = new LazyLineBenchmark(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/viewbus.json"), iterations).run();
+        } else if ("pipeline".equals(name)) {
+            // Not a benchmark: main-thread time recorded so far while using the app
+            lines = new ArrayList<>();
+            for (Map.Entry<String, String> entry : ResponsePipeline.snapshot().entrySet()) {
+                lines.add(entry.getKey() + " " + entry.getValue());
+            }
+            if (intent.getBooleanExtra("reset", false)) {
+                ResponsePipeline.reset();
+            }
+        } else {
+            lines = Collections.singletonList("Unknown benchmark: " + name);
+        }
+        for (String line : lines) {
+            Log.i(TAG, name + ": " + line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,112 @@
+package com.riyadhtransport.debug;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.CachingDns;
+import com.riyadhtransport.api.NetworkMetrics;
+import com.riyadhtransport.api.NetworkWarmup;
+import com.riyadhtransport.models.RouteResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Measures cold-start time to the first route against the real backend, with
+ * the launch warm-up on or off. Force-stop the app first so the broadcast
+ * starts a fresh process, e.g.
+ *
+ * adb shell am force-stop com.riyadhtransport
+ * adb shell am broadcast -n com.riyadhtransport/.debug.FirstRouteReceiver
+ *     -a com.riyadhtransport.debug.FIRST_ROUTE --ez warmup false --ei delay_ms 2000
+ *
+ * The warmup extra is stored, so it also applies to later launches of the app.
+ * delay_ms stands in for the time the user takes to pick a destination.
+ */
+public class FirstRouteReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "FirstRouteHarness";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        new Thread(() -> {
+            String report;
+            try {
+                report = TextUtils.join("\n", measure(appContext, intent));
+            } catch (Exception e) {
+                Log.e(TAG, "Measurement failed", e);
+                report = "Measurement failed: " + e;
+            }
+            result.setResultData(report);
+            result.finish();
+        }, "first-route-harness").start();
+    }
+
+    private List<String> measure(Context context, Intent intent) throws InterruptedException {
+        boolean warmup = intent.getBooleanExtra("warmup", true);
+        long delayMillis = intent.getIntExtra("delay_ms", 2000);
+
+        ApiClient.init(context);
+        NetworkWarmup.setEnabled(context, warmup);
+        NetworkWarmup.start(context);
+        Thread.sleep(delayMillis);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("start_lat", 24.7136);
+        body.put("start_lng", 46.6753);
+        body.put("end_lat", 24.7743);
+        body.put("end_lng", 46.7386);
+
+        CountDownLatch done = new CountDownLatch(1);
+        long[] requestMillis = new long[1];
+        int[] status = new int[1];
+        long start = SystemClock.elapsedRealtime();
+        ApiClient.getApiService().findRouteFromCoordinates(body).enqueue(
+                new Callback<RouteResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<RouteResponse> call,
+                                   @NonNull Response<RouteResponse> response) {
+                requestMillis[0] = SystemClock.elapsedRealtime() - start;
+                status[0] = response.code();
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<RouteResponse> call, @NonNull Throwable t) {
+                requestMillis[0] = SystemClock.elapsedRealtime() - start;
+                done.countDown();
+            }
+        });
+        done.await(60, TimeUnit.SECONDS);
+
+        CachingDns dns = ApiClient.getDns();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US,
+                "warmup=%s status=%d request=%dms sinceStart=%dms dnsHits=%d dnsMisses=%d",
+                warmup ? "on" : "off", status[0], requestMillis[0],
+                SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime(),
+                dns.getHitCount(), dns.getMissCount()));
+        for (Map.Entry<String, String> entry : NetworkMetrics.snapshot().entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        for (String line : lines) {
+            Log.i(TAG, line);
+        }
+        return lines;
+    }
+}
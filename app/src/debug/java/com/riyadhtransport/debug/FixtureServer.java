@@ -0,0 +1,325 @@
+package com.riyadhtransport.debug;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * Local stand-in for the backend and Nominatim, serving the recorded responses
+ * in assets/fixtures. Arabic requests (under /ar/) use assets/fixtures/ar when
+ * a fixture exists there. Nearby stations and station line lookups are computed
+ * from the station and line fixtures so any coordinates or names work.
+ *
+ * Latency, bandwidth and error injection apply to every response and can be
+ * changed while the server runs.
+ */
+public class FixtureServer {
+
+    private static final String TAG = "FixtureServer";
+
+    // Average walking speed used for the duration of nearby stations
+    private static final double WALKING_METERS_PER_SECOND = 1.4;
+
+    private final AssetManager assets;
+    private final Map<String, String> fixtures = new HashMap<>();
+    private final Map<String, JsonElement> parsed = new HashMap<>();
+    private final MockWebServer server = new MockWebServer();
+    private final Random random;
+
+    private volatile long latencyMillis;
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+
+    public FixtureServer(Context context, long seed) {
+        assets = context.getAssets();
+        random = new Random(seed);
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return FixtureServer.this.dispatch(request);
+            }
+        });
+    }
+
+    /**
+     * Delay before the response headers are sent
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Response body bandwidth, 0 for unlimited
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Fraction of requests that fail, half with a 503 and half with a dropped connection
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void start() throws IOException {
+        server.start();
+        Log.i(TAG, "Serving fixtures at " + getUrl());
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    public String getUrl() {
+        return server.url("/").toString();
+    }
+
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
+    private MockResponse dispatch(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        if (url == null) {
+            return new MockResponse().setResponseCode(400);
+        }
+        String path = url.encodedPath().substring(1);
+        String language = "en";
+        if (path.startsWith("ar/")) {
+            language = "ar";
+            path = path.substring(3);
+        }
+
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        if (roll < errorRate / 2) {
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        } else if (roll < errorRate) {
+            return delayed(new MockResponse().setResponseCode(503).setBody("{\"error\":\"Unavailable\"}"));
+        }
+
+        String body;
+        try {
+            body = respond(language, path, request, url);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to serve " + path, e);
+            return new MockResponse().setResponseCode(500);
+        }
+        if (body == null) {
+            return delayed(new MockResponse().setResponseCode(404).setBody("{\"error\":\"Not found\"}"));
+        }
+        return delayed(new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(body));
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        long latency = latencyMillis;
+        if (latency > 0) {
+            response.setHeadersDelay(latency, TimeUnit.MILLISECONDS);
+        }
+        long bandwidth = bytesPerSecond;
+        if (bandwidth > 0) {
+            // Sent in 100 ms slices
+            response.throttleBody(Math.max(1, bandwidth / 10), 100, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private String respond(String language, String path, RecordedRequest request, HttpUrl url)
+            throws IOException {
+        switch (path) {
+            case "api/stations":
+                return fixture(language, "stations.json");
+            case "mtrlines":
+                return fixture(language, "mtrlines.json");
+            case "buslines":
+                return fixture(language, "buslines.json");
+            case "metro_arrivals":
+                return fixture(language, "metro_arrivals.json");
+            case "bus_arrivals":
+                return fixture(language, "bus_arrivals.json");
+            case "route_from_coords":
+                return fixture(language, "route_from_coords.json");
+            case "viewmtr":
+            case "viewbus": {
+                JsonObject lines = parsedFixture(language, path + ".json").getAsJsonObject();
+                JsonElement line = lines.get(requestBody(request).get("line").getAsString());
+                if (line == null) {
+                    return null;
+                }
+                return line.toString();
+            }
+            case "nearbystations":
+                return nearbyStations(language, requestBody(request));
+            case "searchstation":
+                return searchStation(language, requestBody(request).get("station_name").getAsString());
+            case "search":
+                return nominatimSearch(url.queryParameter("q"), url.queryParameter("limit"));
+            default:
+                return null;
+        }
+    }
+
+    private String nearbyStations(String language, JsonObject body) throws IOException {
+        double lat = body.get("lat").getAsDouble();
+        double lng = body.get("lng").getAsDouble();
+        double radiusMeters = body.has("radius") ? body.get("radius").getAsDouble() * 1000 : 1500;
+
+        List<JsonObject> nearby = new ArrayList<>();
+        for (JsonElement element : parsedFixture(language, "stations.json").getAsJsonArray()) {
+            JsonObject station = element.getAsJsonObject();
+            double distance = distanceMeters(lat, lng,
+                    station.get("lat").getAsDouble(), station.get("lng").getAsDouble());
+            if (distance <= radiusMeters) {
+                JsonObject result = new JsonObject();
+                result.addProperty("name", station.get("value").getAsString());
+                result.addProperty("type", station.get("type").getAsString());
+                result.addProperty("lat", station.get("lat").getAsDouble());
+                result.addProperty("lng", station.get("lng").getAsDouble());
+                result.addProperty("distance", Math.round(distance));
+                result.addProperty("duration", Math.round(distance / WALKING_METERS_PER_SECOND));
+                nearby.add(result);
+            }
+        }
+        nearby.sort((a, b) -> Double.compare(
+                a.get("distance").getAsDouble(), b.get("distance").getAsDouble()));
+
+        JsonArray array = new JsonArray();
+        for (JsonObject station : nearby) {
+            array.add(station);
+        }
+        return array.toString();
+    }
+
+    private String searchStation(String language, String stationName) throws IOException {
+        JsonArray metroLines = new JsonArray();
+        for (Map.Entry<String, JsonElement> line
+                : parsedFixture(language, "viewmtr.json").getAsJsonObject().entrySet()) {
+            if (contains(line.getValue().getAsJsonObject().getAsJsonArray("stations"), stationName)) {
+                metroLines.add(line.getKey());
+            }
+        }
+        JsonArray busLines = new JsonArray();
+        for (Map.Entry<String, JsonElement> line
+                : parsedFixture(language, "viewbus.json").getAsJsonObject().entrySet()) {
+            for (Map.Entry<String, JsonElement> direction : line.getValue().getAsJsonObject().entrySet()) {
+                if (contains(direction.getValue().getAsJsonArray(), stationName)) {
+                    busLines.add(line.getKey());
+                    break;
+                }
+            }
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("station_name", stationName);
+        result.add("metro_lines", metroLines);
+        result.add("bus_lines", busLines);
+        return result.toString();
+    }
+
+    private String nominatimSearch(String query, String limit) throws IOException {
+        int max = limit != null ? Integer.parseInt(limit) : 10;
+        String needle = query != null ? query.toLowerCase(Locale.ROOT) : "";
+        JsonArray results = new JsonArray();
+        for (JsonElement element : parsedFixture("en", "nominatim_search.json").getAsJsonArray()) {
+            if (results.size() >= max) {
+                break;
+            }
+            String name = element.getAsJsonObject().get("display_name").getAsString();
+            if (name.toLowerCase(Locale.ROOT).contains(needle)) {
+                results.add(element);
+            }
+        }
+        return results.toString();
+    }
+
+    private static boolean contains(JsonArray array, String value) {
+        for (JsonElement element : array) {
+            if (value.equals(element.getAsString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JsonObject requestBody(RecordedRequest request) {
+        return new JsonParser().parse(request.getBody().readUtf8()).getAsJsonObject();
+    }
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6371000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private synchronized JsonElement parsedFixture(String language, String name) throws IOException {
+        String key = language + "/" + name;
+        JsonElement element = parsed.get(key);
+        if (element == null) {
+            element = new JsonParser().parse(fixture(language, name));
+            parsed.put(key, element);
+        }
+        return element;
+    }
+
+    /**
+     * Recorded response for the language, falling back to the English one
+     */
+    private synchronized String fixture(String language, String name) throws IOException {
+        String path = "ar".equals(language) ? "fixtures/ar/" + name : "fixtures/" + name;
+        String body = fixtures.get(path);
+        if (body == null) {
+            try {
+                body = readAsset(assets, path);
+            } catch (IOException e) {
+                if (!"ar".equals(language)) {
+                    throw e;
+                }
+                body = fixture("en", name);
+            }
+            fixtures.put(path, body);
+        }
+        return body;
+    }
+
+    static String readAsset(AssetManager assets, String path) throws IOException {
+        try (InputStream in = assets.open(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.riyadhtransport.api.json.LazyLineDetails;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.LineDetails;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opening one direction of the largest recorded bus lines, as the lines tab
+ * does: decoding the whole response into a JSON tree, streaming every
+ * direction into {@link LineDetails}, and scanning it with
+ * {@link LazyLineDetails} then decoding the one direction. Reports time and
+ * allocations per line, and the heap retained by the result of each.
+ * Allocations are read from ART's process-wide counter, so keep the app idle.
+ */
+public class LazyLineBenchmark {
+
+    private static final int LINES = 5;
+
+    private final List<byte[]> responses = new ArrayList<>();
+    private final int iterations;
+
+    public LazyLineBenchmark(String busPayload, int iterations) {
+        JsonObject lines = new JsonParser().parse(busPayload).getAsJsonObject();
+        List<byte[]> all = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> line : lines.entrySet()) {
+            all.add(line.getValue().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Collections.sort(all, (a, b) -> b.length - a.length);
+        responses.addAll(all.subList(0, Math.min(LINES, all.size())));
+        this.iterations = iterations;
+    }
+
+    private interface Opener {
+        Object open(byte[] response) throws IOException;
+    }
+
+    public List<String> run() throws IOException {
+        Gson gson = ModelTypeAdapterFactory.gson();
+        // Each result is what the lines tab holds while the direction dialog is open
+        Opener tree = response -> new JsonParser().parse(new InputStreamReader(
+                new ByteArrayInputStream(response), StandardCharsets.UTF_8)).getAsJsonObject();
+        Opener eager = response -> {
+            LineDetails details = gson.fromJson(new InputStreamReader(
+                    new ByteArrayInputStream(response), StandardCharsets.UTF_8), LineDetails.class);
+            details.getStationIds(0);
+            return details;
+        };
+        Opener lazy = response -> {
+            LineDetails details = LazyLineDetails.read(response);
+            details.getStationIds(0);
+            return details;
+        };
+
+        // Warm up, and fill the name dictionary as the station catalog does in the app
+        for (Opener opener : new Opener[] {tree, eager, lazy}) {
+            measure(opener, iterations / 2);
+        }
+
+        long largest = responses.isEmpty() ? 0 : responses.get(0).length;
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "lines=%d largest=%dKB iterations=%d",
+                responses.size(), largest / 1024, iterations));
+        lines.add("jsonTree " + measure(tree, iterations) + " " + retained(tree));
+        lines.add("eager    " + measure(eager, iterations) + " " + retained(eager));
+        lines.add("lazy     " + measure(lazy, iterations) + " " + retained(lazy));
+        return lines;
+    }
+
+    private String measure(Opener opener, int count) throws IOException {
+        System.gc();
+        long bytesBefore = RuntimeStats.bytesAllocated();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < count; i++) {
+            for (byte[] response : responses) {
+                opener.open(response);
+            }
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - start;
+        long bytes = RuntimeStats.bytesAllocated() - bytesBefore;
+        long opened = Math.max(1, (long) count * responses.size());
+        return String.format(Locale.US, "open=%.3fms allocated=%dKB/line",
+                nanos / 1e6 / opened, bytes / 1024 / opened);
+    }
+
+    /**
+     * What a screen holding the result of each line keeps alive
+     */
+    private String retained(Opener opener) throws IOException {
+        long before = usedHeap();
+        List<Object> results = new ArrayList<>(responses.size());
+        for (byte[] response : responses) {
+            results.add(opener.open(response));
+        }
+        long after = usedHeap();
+        return String.format(Locale.US, "retained=%dKB", results.isEmpty() ? 0 : (after - before) / 1024);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,74 @@
+package com.riyadhtransport.debug;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.StationNames;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Retained heap of every recorded metro and bus line's details, held as the
+ * parsed JSON objects the app used to keep and as {@link LineDetails} over the
+ * shared {@link StationNames} dictionary. Each line is parsed from its own
+ * response text, as it arrives from /viewmtr or /viewbus. Heap is sampled
+ * around a GC, so keep the app idle.
+ */
+public class LineNamesBenchmark {
+
+    private final List<String> responses = new ArrayList<>();
+
+    public LineNamesBenchmark(String metroPayload, String busPayload) {
+        for (String payload : new String[] {metroPayload, busPayload}) {
+            JsonObject lines = new JsonParser().parse(payload).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> line : lines.entrySet()) {
+                responses.add(line.getValue().toString());
+            }
+        }
+    }
+
+    public List<String> run() {
+        Gson gson = ModelTypeAdapterFactory.gson();
+        // Fill the dictionary first, in the app it is shared with the station catalog
+        parseAll(gson, LineDetails.class);
+
+        long json = retainedBytes(gson, JsonObject.class);
+        long details = retainedBytes(gson, LineDetails.class);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "lines=%d dictionary=%d names",
+                responses.size(), StationNames.get().size()));
+        lines.add(String.format(Locale.US, "retained json=%dKB lineDetails=%dKB", json / 1024, details / 1024));
+        return lines;
+    }
+
+    private long retainedBytes(Gson gson, Class<?> type) {
+        long before = usedHeap();
+        List<Object> parsed = parseAll(gson, type);
+        long after = usedHeap();
+        // Keep the lines reachable until the second sample
+        return parsed.isEmpty() ? 0 : after - before;
+    }
+
+    private List<Object> parseAll(Gson gson, Class<?> type) {
+        List<Object> parsed = new ArrayList<>(responses.size());
+        for (String response : responses) {
+            parsed.add(gson.fromJson(response, type));
+        }
+        return parsed;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,118 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.StationGrid;
+import com.riyadhtransport.models.StationTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Nearby-station queries at random points over the recorded catalog: a scan
+ * of every station as the server does, the {@link StationGrid} radius query
+ * the stations tab uses, and a k-nearest query. Reports microseconds per query.
+ */
+public class NearbyBenchmark {
+
+    private static final double RADIUS_METERS = 1500;
+    private static final int NEAREST = 10;
+
+    private final StationTable table;
+    private final int iterations;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    public NearbyBenchmark(String payload, int iterations) {
+        this.table = ModelTypeAdapterFactory.gson().fromJson(payload, StationTable.class);
+        this.iterations = iterations;
+
+        // Fixed points inside the catalog's bounding box, so runs compare
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < table.size(); row++) {
+            minLat = Math.min(minLat, table.getLatitude(row));
+            maxLat = Math.max(maxLat, table.getLatitude(row));
+            minLng = Math.min(minLng, table.getLongitude(row));
+            maxLng = Math.max(maxLng, table.getLongitude(row));
+        }
+        Random random = new Random(42);
+        latitudes = new double[100];
+        longitudes = new double[100];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = minLat + random.nextDouble() * (maxLat - minLat);
+            longitudes[i] = minLng + random.nextDouble() * (maxLng - minLng);
+        }
+    }
+
+    public List<String> run() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        StationGrid grid = table.getGrid();
+        long buildNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        // Warm up so JIT does not count
+        scan(iterations / 2);
+        within(grid, iterations / 2);
+        nearest(grid, iterations / 2);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "stations=%d points=%d iterations=%d gridBuild=%.2fms",
+                table.size(), latitudes.length, iterations, buildNanos / 1e6));
+        lines.add("scan    " + scan(iterations));
+        lines.add("within  " + within(grid, iterations));
+        lines.add("nearest " + nearest(grid, iterations));
+        return lines;
+    }
+
+    private String scan(int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        double[] distances = new double[table.size()];
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < latitudes.length; p++) {
+                int hits = 0;
+                for (int row = 0; row < table.size(); row++) {
+                    double distance = StationTable.distanceMeters(latitudes[p], longitudes[p],
+                            table.getLatitude(row), table.getLongitude(row));
+                    if (distance <= RADIUS_METERS) {
+                        distances[hits++] = distance;
+                    }
+                }
+                Arrays.sort(distances, 0, hits);
+                found += hits;
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String within(StationGrid grid, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < latitudes.length; p++) {
+                found += grid.within(latitudes[p], longitudes[p], RADIUS_METERS).size();
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String nearest(StationGrid grid, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < latitudes.length; p++) {
+                found += grid.nearest(latitudes[p], longitudes[p], NEAREST, Double.POSITIVE_INFINITY).size();
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String report(long startNanos, int count, long found) {
+        long queries = Math.max(1, (long) count * latitudes.length);
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        return String.format(Locale.US, "hits/query=%.1f query=%.1fus",
+                (double) found / queries, nanos / 1e3 / queries);
+    }
+}
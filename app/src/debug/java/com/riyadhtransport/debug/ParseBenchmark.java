@@ -0,0 +1,60 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.Station;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses a recorded /api/stations payload with reflective Gson and with the
+ * streaming model adapters, reporting time and allocations per parse.
+ * Allocations are read from ART's process-wide counter, so keep the app idle.
+ */
+public class ParseBenchmark {
+
+    private static final Type STATION_LIST_TYPE = new TypeToken<List<Station>>() {}.getType();
+
+    private final String payload;
+    private final int iterations;
+
+    public ParseBenchmark(String payload, int iterations) {
+        this.payload = payload;
+        this.iterations = iterations;
+    }
+
+    public List<String> run() {
+        Gson reflective = new Gson();
+        Gson streaming = ModelTypeAdapterFactory.gson();
+
+        // Warm up both paths so class loading and JIT do not count
+        measure(reflective, iterations / 2);
+        measure(streaming, iterations / 2);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "payload=%dKB iterations=%d",
+                payload.length() / 1024, iterations));
+        lines.add("reflective " + measure(reflective, iterations));
+        lines.add("streaming  " + measure(streaming, iterations));
+        return lines;
+    }
+
+    private String measure(Gson gson, int count) {
+        System.gc();
+        long bytesBefore = RuntimeStats.bytesAllocated();
+        long start = SystemClock.elapsedRealtimeNanos();
+        int stations = 0;
+        for (int i = 0; i < count; i++) {
+            List<Station> parsed = gson.fromJson(payload, STATION_LIST_TYPE);
+            stations = parsed.size();
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - start;
+        long bytes = RuntimeStats.bytesAllocated() - bytesBefore;
+        return String.format(Locale.US, "stations=%d parse=%.2fms allocated=%dKB/parse",
+                stations, nanos / 1e6 / Math.max(1, count), bytes / 1024 / Math.max(1, count));
+    }
+}
@@ -0,0 +1,98 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.StationTable;
+import com.riyadhtransport.utils.PrefixIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Station autocomplete on the recorded catalog: the word-prefix filter
+ * ArrayAdapter runs over every name per keystroke, and a {@link PrefixIndex}
+ * query as the route inputs use. Queries are the first one to four letters of
+ * words taken from the names. Reports microseconds per keystroke.
+ */
+public class PrefixBenchmark {
+
+    private static final int LIMIT = 20;
+
+    private final List<String> names;
+    private final List<String> queries = new ArrayList<>();
+    private final int iterations;
+
+    public PrefixBenchmark(String payload, int iterations) {
+        StationTable table = ModelTypeAdapterFactory.gson().fromJson(payload, StationTable.class);
+        this.names = table.getDisplayNames();
+        this.iterations = iterations;
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100 && !names.isEmpty(); i++) {
+            String[] words = names.get(random.nextInt(names.size())).split(" ");
+            String word = words[random.nextInt(words.length)];
+            queries.add(word.substring(0, Math.min(word.length(), 1 + random.nextInt(4))));
+        }
+    }
+
+    public List<String> run() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        PrefixIndex index = new PrefixIndex(names);
+        long buildNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        // Warm up so JIT does not count
+        scan(iterations / 2);
+        search(index, iterations / 2);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "names=%d queries=%d iterations=%d indexBuild=%.2fms",
+                index.size(), queries.size(), iterations, buildNanos / 1e6));
+        lines.add("arrayAdapter " + scan(iterations));
+        lines.add("prefixIndex  " + search(index, iterations));
+        return lines;
+    }
+
+    // Same matching as ArrayAdapter's filter: the whole name or any space-separated word
+    private String scan(int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (String query : queries) {
+                String prefix = query.toLowerCase();
+                for (String name : names) {
+                    String value = name.toLowerCase();
+                    if (value.startsWith(prefix)) {
+                        found++;
+                        continue;
+                    }
+                    for (String word : value.split(" ")) {
+                        if (word.startsWith(prefix)) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String search(PrefixIndex index, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (String query : queries) {
+                found += index.search(query, LIMIT).size();
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String report(long startNanos, int count, long found) {
+        long keystrokes = Math.max(1, (long) count * queries.size());
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        return String.format(Locale.US, "results/query=%.1f query=%.1fus",
+                (double) found / keystrokes, nanos / 1e3 / keystrokes);
+    }
+}
@@ -0,0 +1,351 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.google.gson.JsonObject;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.CatalogCacheInterceptor;
+import com.riyadhtransport.api.LifecycleCalls;
+import com.riyadhtransport.api.NetworkMetrics;
+import com.riyadhtransport.api.TransportApiService;
+import com.riyadhtransport.models.NominatimResult;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Replays realistic user sessions (place search, route, nearby stations, line
+ * browsing) through the real ApiClient stack and reports throughput, client-side
+ * latency percentiles and allocations. Calls are enqueued like the screens do,
+ * so coalescing, scheduling, retries and the catalog cache are all exercised.
+ *
+ * Must not run on the main thread, callbacks are delivered there.
+ */
+public class ReplayDriver {
+
+    private static final long CALL_TIMEOUT_SECONDS = 60;
+    // Delay between keystrokes while typing a place search
+    private static final long TYPING_INTERVAL_MILLIS = 150;
+
+    private static final double RIYADH_LAT = 24.7136;
+    private static final double RIYADH_LNG = 46.6753;
+
+    private static final String[] SEARCH_QUERIES = {"olaya", "king fahd", "airport", "tahlia", "batha"};
+
+    private final long seed;
+    private final Map<String, LatencyRecorder> recorders = new TreeMap<>();
+    private long typingCancels;
+
+    public ReplayDriver(long seed) {
+        this.seed = seed;
+    }
+
+    public Report run(int sessions, int concurrency) throws InterruptedException {
+        NetworkMetrics.reset();
+        long bytesBefore = RuntimeStats.bytesAllocated();
+        long gcBefore = RuntimeStats.gcCount();
+        long start = SystemClock.elapsedRealtime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            // Each session gets its own generator so runs are reproducible at any concurrency
+            Random random = new Random(seed * 31 + i);
+            results.add(executor.submit(() -> {
+                runSession(random);
+                return null;
+            }));
+        }
+        executor.shutdown();
+        int failedSessions = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (Exception e) {
+                failedSessions++;
+            }
+        }
+
+        Report report = new Report();
+        report.sessions = sessions;
+        report.failedSessions = failedSessions;
+        report.wallMillis = SystemClock.elapsedRealtime() - start;
+        report.allocatedBytes = RuntimeStats.bytesAllocated() - bytesBefore;
+        report.gcCount = RuntimeStats.gcCount() - gcBefore;
+        synchronized (this) {
+            report.recorders = new TreeMap<>(recorders);
+            report.typingCancels = typingCancels;
+        }
+        return report;
+    }
+
+    private void runSession(Random random) throws InterruptedException {
+        String language = random.nextInt(10) < 3 ? "ar" : "en";
+        TransportApiService service = ApiClient.getApiService(language);
+        int kind = random.nextInt(100);
+        if (kind < 35) {
+            placeSearchSession(random, service);
+        } else if (kind < 60) {
+            routeSession(random, service);
+        } else if (kind < 85) {
+            nearbySession(random, service);
+        } else {
+            lineBrowseSession(random, service);
+        }
+    }
+
+    /**
+     * Opening the route tab, typing a destination and routing to the first result
+     */
+    private void placeSearchSession(Random random, TransportApiService service)
+            throws InterruptedException {
+        Pending<StationTable> stations = enqueue("api/stations", service.getStations());
+
+        String query = SEARCH_QUERIES[random.nextInt(SEARCH_QUERIES.length)];
+        Pending<List<NominatimResult>> search = null;
+        Call<List<NominatimResult>> searchCall = null;
+        for (int length = 2; length <= query.length(); length++) {
+            if (searchCall != null && !search.isDone()) {
+                // Same as the search box, a new keystroke replaces the running query
+                searchCall.cancel();
+                synchronized (this) {
+                    typingCancels++;
+                }
+            }
+            searchCall = ApiClient.getNominatimService().search(query.substring(0, length),
+                    "json", 10, 1, "46.4,24.5,47.0,25.0");
+            search = enqueue("search", searchCall);
+            Thread.sleep(TYPING_INTERVAL_MILLIS);
+        }
+        stations.await();
+        List<NominatimResult> places = search.await();
+        if (places != null && !places.isEmpty()) {
+            NominatimResult place = places.get(0);
+            route(service, randomLat(random), randomLng(random),
+                    place.getLatitudeAsDouble(), place.getLongitudeAsDouble());
+        }
+    }
+
+    private void routeSession(Random random, TransportApiService service) throws InterruptedException {
+        route(service, randomLat(random), randomLng(random), randomLat(random), randomLng(random));
+    }
+
+    private void route(TransportApiService service, double startLat, double startLng,
+                       double endLat, double endLng) throws InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("start_lat", startLat);
+        body.put("start_lng", startLng);
+        body.put("end_lat", endLat);
+        body.put("end_lng", endLng);
+        enqueue("route_from_coords", service.findRouteFromCoordinates(body)).await();
+    }
+
+    /**
+     * Stations tab: nearby stations, then the lines and arrivals of the closest one
+     */
+    private void nearbySession(Random random, TransportApiService service) throws InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("lat", randomLat(random));
+        body.put("lng", randomLng(random));
+        body.put("radius", 1.5);
+        List<Station> nearby = enqueue("nearbystations", service.getNearbyStations(body)).await();
+        if (nearby == null || nearby.isEmpty()) {
+            return;
+        }
+
+        Station closest = nearby.get(0);
+        Map<String, String> station = new HashMap<>();
+        station.put("station_name", closest.getDisplayName());
+        Pending<Map<String, Object>> lines = enqueue("searchstation", service.searchStation(station));
+        Pending<Map<String, Object>> arrivals = closest.isMetro()
+                ? enqueue("metro_arrivals", service.getMetroArrivals(station))
+                : enqueue("bus_arrivals", service.getBusArrivals(station));
+        lines.await();
+        arrivals.await();
+    }
+
+    /**
+     * Lines tab: both line lists, then one metro and one bus line
+     */
+    private void lineBrowseSession(Random random, TransportApiService service)
+            throws InterruptedException {
+        Pending<JsonObject> metro = enqueue("mtrlines", service.getMetroLines());
+        Pending<JsonObject> bus = enqueue("buslines", service.getBusLines());
+        JsonObject metroLines = metro.await();
+        JsonObject busLines = bus.await();
+
+        if (metroLines != null) {
+            JsonObject line = new JsonObject();
+            line.addProperty("line", pick(random, metroLines.get("lines").getAsString()));
+            enqueue("viewmtr", service.viewMetro(line)).await();
+        }
+        if (busLines != null) {
+            JsonObject line = new JsonObject();
+            line.addProperty("line", pick(random, busLines.get("lines").getAsString()));
+            enqueue("viewbus", service.viewBus(line)).await();
+        }
+    }
+
+    private static String pick(Random random, String commaSeparated) {
+        String[] ids = commaSeparated.split(",");
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static double randomLat(Random random) {
+        return RIYADH_LAT + (random.nextDouble() - 0.5) * 0.25;
+    }
+
+    private static double randomLng(Random random) {
+        return RIYADH_LNG + (random.nextDouble() - 0.5) * 0.3;
+    }
+
+    private <T> Pending<T> enqueue(String name, Call<T> call) {
+        LatencyRecorder recorder;
+        synchronized (this) {
+            recorder = recorders.get(name);
+            if (recorder == null) {
+                recorder = new LatencyRecorder();
+                recorders.put(name, recorder);
+            }
+        }
+        Pending<T> pending = new Pending<>(recorder);
+        call.enqueue(pending);
+        return pending;
+    }
+
+    private static final class Pending<T> implements Callback<T> {
+        private final LatencyRecorder recorder;
+        private final long startNanos = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile T body;
+
+        Pending(LatencyRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            boolean success = response.isSuccessful() && response.body() != null;
+            recorder.record(System.nanoTime() - startNanos, success);
+            if (success) {
+                body = response.body();
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            if (!call.isCanceled()) {
+                recorder.record(System.nanoTime() - startNanos, false);
+            }
+            done.countDown();
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * Response body, or null when the call failed or timed out
+         */
+        T await() throws InterruptedException {
+            if (!done.await(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                recorder.record(TimeUnit.SECONDS.toNanos(CALL_TIMEOUT_SECONDS), false);
+                return null;
+            }
+            return body;
+        }
+    }
+
+    static final class LatencyRecorder {
+        private long[] micros = new long[64];
+        private int count;
+        private int failures;
+
+        synchronized void record(long nanos, boolean success) {
+            if (count == micros.length) {
+                micros = Arrays.copyOf(micros, count * 2);
+            }
+            micros[count++] = nanos / 1000;
+            if (!success) {
+                failures++;
+            }
+        }
+
+        synchronized int getCount() {
+            return count;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            long[] sorted = Arrays.copyOf(micros, count);
+            Arrays.sort(sorted);
+            return String.format(Locale.US, "n=%d failed=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                    count, failures, percentile(sorted, 0.5), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), count > 0 ? sorted[count - 1] / 1000.0 : 0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1000.0;
+        }
+    }
+
+    public static final class Report {
+        int sessions;
+        int failedSessions;
+        long wallMillis;
+        long allocatedBytes;
+        long gcCount;
+        long typingCancels;
+        Map<String, LatencyRecorder> recorders;
+
+        public List<String> lines() {
+            int calls = 0;
+            for (LatencyRecorder recorder : recorders.values()) {
+                calls += recorder.getCount();
+            }
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.US,
+                    "sessions=%d failed=%d calls=%d wall=%dms throughput=%.1f calls/s",
+                    sessions, failedSessions, calls, wallMillis,
+                    wallMillis > 0 ? calls * 1000.0 / wallMillis : 0));
+            lines.add(String.format(Locale.US,
+                    "allocated=%dKB (%dB/call, whole process) gc=%d",
+                    allocatedBytes / 1024, calls > 0 ? allocatedBytes / calls : 0, gcCount));
+            for (Map.Entry<String, LatencyRecorder> entry : recorders.entrySet()) {
+                lines.add(entry.getKey() + " " + entry.getValue());
+            }
+
+            CatalogCacheInterceptor cache = ApiClient.getCatalogCache();
+            lines.add("coalesced=" + ApiClient.getSingleFlight().getJoinedCount()
+                    + " typing_cancels=" + typingCancels
+                    + " lifecycle_cancels=" + LifecycleCalls.getCancelledCount()
+                    + (cache != null
+                    ? " cache_hits=" + cache.getHitCount()
+                    + " revalidated=" + cache.getRevalidatedCount()
+                    + " misses=" + cache.getMissCount()
+                    : ""));
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.riyadhtransport.debug;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.text.TextUtils;
+import android.util.Log;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.CatalogCacheInterceptor;
+import com.riyadhtransport.api.NetworkMetrics;
+import java.util.List;
+
+/**
+ * Debug-only entry point for the load replay harness. Starts a {@link FixtureServer},
+ * points ApiClient at it, replays sessions with {@link ReplayDriver} and restores
+ * the real servers afterwards. The report is logged and returned as the broadcast
+ * result, e.g.
+ *
+ * adb shell am broadcast -n com.riyadhtransport/.debug.ReplayReceiver
+ *     -a com.riyadhtransport.debug.REPLAY --ei sessions 100 --ei concurrency 4
+ *     --ei latency_ms 120 --ei kbps 256 --ef error_rate 0.05 --ez cold true
+ */
+public class ReplayReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "ReplayHarness";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        new Thread(() -> {
+            String report;
+            try {
+                report = TextUtils.join("\n", replay(appContext, intent));
+            } catch (Exception e) {
+                Log.e(TAG, "Replay failed", e);
+                report = "Replay failed: " + e;
+            }
+            result.setResultData(report);
+            result.finish();
+        }, "replay-harness").start();
+    }
+
+    private List<String> replay(Context context, Intent intent) throws Exception {
+        int sessions = intent.getIntExtra("sessions", 40);
+        int concurrency = intent.getIntExtra("concurrency", 4);
+        long seed = intent.getIntExtra("seed", 1);
+
+        FixtureServer server = new FixtureServer(context, seed);
+        server.setLatencyMillis(intent.getIntExtra("latency_ms", 80));
+        server.setBytesPerSecond(intent.getIntExtra("kbps", 0) * 1024L);
+        server.setErrorRate(intent.getFloatExtra("error_rate", 0f));
+        server.start();
+
+        ApiClient.init(context);
+        String baseUrl = ApiClient.getBaseUrl();
+        String nominatimUrl = ApiClient.getNominatimUrl();
+        ApiClient.setBaseUrl(server.getUrl());
+        ApiClient.setNominatimUrl(server.getUrl());
+        try {
+            CatalogCacheInterceptor cache = ApiClient.getCatalogCache();
+            if (intent.getBooleanExtra("cold", false) && cache != null) {
+                cache.clear();
+            }
+
+            List<String> lines = new ReplayDriver(seed).run(sessions, concurrency).lines();
+            lines.add("server_requests=" + server.getRequestCount());
+            for (String line : lines) {
+                Log.i(TAG, line);
+            }
+            NetworkMetrics.dump();
+            ApiClient.getScheduler().dump();
+            return lines;
+        } finally {
+            ApiClient.setBaseUrl(baseUrl);
+            ApiClient.setNominatimUrl(nominatimUrl);
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.riyadhtransport.debug;
+
+import android.os.Debug;
+
+/**
+ * ART's process-wide allocation and GC counters, used by the benchmarks
+ */
+final class RuntimeStats {
+
+    private RuntimeStats() {
+    }
+
+    static long bytesAllocated() {
+        return get("art.gc.bytes-allocated");
+    }
+
+    static long gcCount() {
+        return get("art.gc.gc-count");
+    }
+
+    private static long get(String name) {
+        try {
+            return Long.parseLong(Debug.getRuntimeStat(name));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
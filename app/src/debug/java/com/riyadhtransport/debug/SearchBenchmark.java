@@ -0,0 +1,112 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.StationTable;
+import com.riyadhtransport.utils.FuzzyIndex;
+import com.riyadhtransport.utils.TrigramIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Station name filtering on the recorded catalog: lowercasing every name
+ * and checking contains(), as the filters did, and a {@link TrigramIndex}
+ * query. Queries are one to eight chars cut from the names. The same queries
+ * with two letters swapped time the {@link FuzzyIndex} the location search
+ * falls back to. Reports microseconds per keystroke.
+ */
+public class SearchBenchmark {
+
+    private final StationTable table;
+    private final List<String> names;
+    private final List<String> queries = new ArrayList<>();
+    private final List<String> typos = new ArrayList<>();
+    private final int iterations;
+
+    public SearchBenchmark(String payload, int iterations) {
+        this.table = ModelTypeAdapterFactory.gson().fromJson(payload, StationTable.class);
+        this.names = table.getDisplayNames();
+        this.iterations = iterations;
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100 && !names.isEmpty(); i++) {
+            String name = names.get(random.nextInt(names.size()));
+            int start = random.nextInt(name.length());
+            String query = name.substring(start, Math.min(name.length(), start + 1 + random.nextInt(8)));
+            queries.add(query);
+            int swap = query.length() > 3 ? 1 + random.nextInt(query.length() - 2) : 0;
+            typos.add(swap > 0 ? query.substring(0, swap) + query.charAt(swap + 1) + query.charAt(swap)
+                    + query.substring(swap + 2) : query);
+        }
+    }
+
+    public List<String> run() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        TrigramIndex index = TrigramIndex.of(names);
+        long buildNanos = SystemClock.elapsedRealtimeNanos() - start;
+        start = SystemClock.elapsedRealtimeNanos();
+        FuzzyIndex fuzzy = table.getFuzzyIndex();
+        long fuzzyBuildNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        // Warm up so JIT does not count
+        scan(iterations / 2);
+        search(index, iterations / 2);
+        fuzzy(fuzzy, iterations / 2);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US,
+                "names=%d queries=%d iterations=%d indexBuild=%.2fms fuzzyBuild=%.2fms",
+                index.size(), queries.size(), iterations, buildNanos / 1e6, fuzzyBuildNanos / 1e6));
+        lines.add("contains     " + scan(iterations));
+        lines.add("trigramIndex " + search(index, iterations));
+        lines.add("fuzzyIndex   " + fuzzy(fuzzy, iterations));
+        return lines;
+    }
+
+    private String scan(int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (String query : queries) {
+                String lowerQuery = query.toLowerCase();
+                for (String name : names) {
+                    if (name.toLowerCase().contains(lowerQuery)) {
+                        found++;
+                    }
+                }
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String search(TrigramIndex index, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (String query : queries) {
+                found += index.search(query).length;
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String fuzzy(FuzzyIndex index, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            for (String typo : typos) {
+                found += index.search(typo).length;
+            }
+        }
+        return report(start, count, found);
+    }
+
+    private String report(long startNanos, int count, long found) {
+        long keystrokes = Math.max(1, (long) count * queries.size());
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        return String.format(Locale.US, "results/query=%.1f query=%.1fus",
+                (double) found / keystrokes, nanos / 1e3 / keystrokes);
+    }
+}
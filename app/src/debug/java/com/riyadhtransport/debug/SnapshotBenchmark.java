@@ -0,0 +1,80 @@
+package com.riyadhtransport.debug;
+
+import android.content.Context;
+import android.os.SystemClock;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.data.StationSnapshot;
+import com.riyadhtransport.models.StationTable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cold catalog load from the bundled binary snapshot against parsing the same
+ * recorded JSON (stations, both line lists and every line's stations) with the
+ * streaming adapters. File reads are included on both sides.
+ */
+public class SnapshotBenchmark {
+
+    private static final String[] LINE_FIXTURES = {"mtrlines.json", "buslines.json", "viewmtr.json", "viewbus.json"};
+
+    private final Context context;
+    private final int iterations;
+
+    public SnapshotBenchmark(Context context, int iterations) {
+        this.context = context;
+        this.iterations = iterations;
+    }
+
+    public List<String> run() throws IOException {
+        // Warm up both paths so class loading and JIT do not count
+        measureBinary(iterations / 2);
+        measureJson(iterations / 2);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("iterations=" + iterations);
+        lines.add("binary " + measureBinary(iterations));
+        lines.add("json   " + measureJson(iterations));
+        return lines;
+    }
+
+    private String measureBinary(int count) throws IOException {
+        System.gc();
+        long bytesBefore = RuntimeStats.bytesAllocated();
+        long start = SystemClock.elapsedRealtimeNanos();
+        int stations = 0;
+        for (int i = 0; i < count; i++) {
+            StationSnapshot snapshot = StationSnapshot.read(
+                    StationSnapshot.mapAsset(context, StationSnapshot.assetPath("en")));
+            stations = snapshot.getStations().size();
+        }
+        return report(start, bytesBefore, count, stations);
+    }
+
+    private String measureJson(int count) throws IOException {
+        Gson gson = ModelTypeAdapterFactory.gson();
+        System.gc();
+        long bytesBefore = RuntimeStats.bytesAllocated();
+        long start = SystemClock.elapsedRealtimeNanos();
+        int stations = 0;
+        for (int i = 0; i < count; i++) {
+            StationTable table = gson.fromJson(
+                    FixtureServer.readAsset(context.getAssets(), "fixtures/stations.json"), StationTable.class);
+            for (String fixture : LINE_FIXTURES) {
+                gson.fromJson(FixtureServer.readAsset(context.getAssets(), "fixtures/" + fixture), JsonObject.class);
+            }
+            stations = table.size();
+        }
+        return report(start, bytesBefore, count, stations);
+    }
+
+    private static String report(long startNanos, long bytesBefore, int count, int stations) {
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        long bytes = RuntimeStats.bytesAllocated() - bytesBefore;
+        return String.format(Locale.US, "stations=%d load=%.2fms allocated=%dKB/load",
+                stations, nanos / 1e6 / Math.max(1, count), bytes / 1024 / Math.max(1, count));
+    }
+}
@@ -0,0 +1,121 @@
+package com.riyadhtransport.debug;
+
+import android.os.SystemClock;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationTable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the stations payload held as a Station list and as a StationTable:
+ * retained heap per copy, and the time of a name filter plus a nearest-first
+ * distance sort over the whole catalog. Retained heap is sampled around a GC,
+ * so keep the app idle.
+ */
+public class StationTableBenchmark {
+
+    private static final Type STATION_LIST_TYPE = new TypeToken<List<Station>>() {}.getType();
+
+    // Copies held at once so the heap difference rises above the noise
+    private static final int RETAINED_COPIES = 20;
+
+    private static final double RIYADH_LAT = 24.7136;
+    private static final double RIYADH_LNG = 46.6753;
+    private static final double RADIUS_METERS = 3000;
+    private static final String QUERY = "st";
+
+    private final String payload;
+    private final int iterations;
+
+    public StationTableBenchmark(String payload, int iterations) {
+        this.payload = payload;
+        this.iterations = iterations;
+    }
+
+    public List<String> run() {
+        Gson gson = ModelTypeAdapterFactory.gson();
+        List<Station> list = gson.fromJson(payload, STATION_LIST_TYPE);
+        StationTable table = gson.fromJson(payload, StationTable.class);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.US, "stations=%d iterations=%d", table.size(), iterations));
+        lines.add(String.format(Locale.US, "retained list=%dKB table=%dKB",
+                retainedBytes(gson, STATION_LIST_TYPE) / 1024,
+                retainedBytes(gson, StationTable.class) / 1024));
+
+        // Warm up both scans so JIT does not count
+        scanList(list, iterations / 2);
+        scanTable(table, iterations / 2);
+        lines.add("list  " + scanList(list, iterations));
+        lines.add("table " + scanTable(table, iterations));
+        return lines;
+    }
+
+    private long retainedBytes(Gson gson, Type type) {
+        Object[] copies = new Object[RETAINED_COPIES];
+        long before = usedHeap();
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = gson.fromJson(payload, type);
+        }
+        long after = usedHeap();
+        // Keep the copies reachable until the second sample
+        return copies[0] != null ? (after - before) / copies.length : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private String scanList(List<Station> stations, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        int matches = 0;
+        int nearby = 0;
+        for (int i = 0; i < count; i++) {
+            matches = 0;
+            for (Station station : stations) {
+                if (station.getDisplayName().toLowerCase(Locale.ROOT).contains(QUERY)) {
+                    matches++;
+                }
+            }
+            List<double[]> within = new ArrayList<>();
+            for (int index = 0; index < stations.size(); index++) {
+                Station station = stations.get(index);
+                double distance = StationTable.distanceMeters(RIYADH_LAT, RIYADH_LNG,
+                        station.getLatitude(), station.getLongitude());
+                if (distance <= RADIUS_METERS) {
+                    within.add(new double[] {distance, index});
+                }
+            }
+            within.sort((a, b) -> Double.compare(a[0], b[0]));
+            nearby = within.size();
+        }
+        return report(start, count, matches, nearby);
+    }
+
+    private String scanTable(StationTable table, int count) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        int matches = 0;
+        int nearby = 0;
+        for (int i = 0; i < count; i++) {
+            matches = table.matching(QUERY).length;
+            nearby = table.nearest(RIYADH_LAT, RIYADH_LNG, RADIUS_METERS).length;
+        }
+        return report(start, count, matches, nearby);
+    }
+
+    private static String report(long startNanos, int count, int matches, int nearby) {
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        return String.format(Locale.US, "matches=%d nearby=%d filter+sort=%.3fms",
+                matches, nearby, nanos / 1e6 / Math.max(1, count));
+    }
+}
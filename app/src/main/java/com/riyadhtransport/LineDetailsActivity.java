@@ -7,6 +7,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.models.LineDetails;
 import java.util.HashMap;
 import java.util.Map;
 import retrofit2.Call;
@@ -54,16 +55,16 @@ public class LineDetailsActivity extends AppCompatActivity {
         JsonObject body = new JsonObject();
         body.addProperty("line", lineNumber);
         
-        Call<JsonObject> call;
+        Call<LineDetails> call;
         if ("metro".equalsIgnoreCase(lineType)) {
             call = ApiClient.getApiService().viewMetro(body);
         } else {
             call = ApiClient.getApiService().viewBus(body);
         }
         
-        call.enqueue(new Callback<JsonObject>() {
+        call.enqueue(new Callback<LineDetails>() {
             @Override
-            public void onResponse(Call<JsonObject> call, Response<JsonObject> response) {
+            public void onResponse(Call<LineDetails> call, Response<LineDetails> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     // Handle line data
                     Toast.makeText(LineDetailsActivity.this, 
@@ -75,7 +76,7 @@ public class LineDetailsActivity extends AppCompatActivity {
             }
             
             @Override
-            public void onFailure(Call<JsonObject> call, Throwable t) {
+            public void onFailure(Call<LineDetails> call, Throwable t) {
                 Toast.makeText(LineDetailsActivity.this, 
                         "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
             }
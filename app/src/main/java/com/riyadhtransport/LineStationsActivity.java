@@ -2,6 +2,7 @@ package com.riyadhtransport;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Process;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ProgressBar;
@@ -11,21 +12,27 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.riyadhtransport.adapters.StationListAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.LifecycleCalls;
+import com.riyadhtransport.api.ResponsePipeline;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.StationLines;
 import com.riyadhtransport.utils.LineColorHelper;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import retrofit2.Call;
 import retrofit2.Callback;
+import retrofit2.HttpException;
 import retrofit2.Response;
 
 public class LineStationsActivity extends AppCompatActivity {
     
+    private static final String EXTRA_STATION_IDS = "station_ids";
+    // StationNames ids are only meaningful in the process that created them
+    private static final String EXTRA_STATION_IDS_PID = "station_ids_pid";
+    
     private RecyclerView stationsRecycler;
     private StationListAdapter adapter;
     private ProgressBar progressBar;
@@ -76,15 +83,24 @@ public class LineStationsActivity extends AppCompatActivity {
         stationsRecycler.setAdapter(adapter);
         
         // Load stations from intent or fetch from API
-        ArrayList<String> stations = getIntent().getStringArrayListExtra("stations");
-        if (stations != null && !stations.isEmpty()) {
-            adapter.setStations(stations);
+        int[] stationIds = getIntent().getIntArrayExtra(EXTRA_STATION_IDS);
+        if (stationIds != null && stationIds.length > 0
+                && getIntent().getIntExtra(EXTRA_STATION_IDS_PID, -1) == Process.myPid()) {
+            adapter.setStationIds(stationIds);
             progressBar.setVisibility(View.GONE);
         } else {
             loadLineStations();
         }
     }
     
+    /**
+     * Passes a line's stations as StationNames ids instead of a copy of every name
+     */
+    public static void putStationIds(Intent intent, int[] stationIds) {
+        intent.putExtra(EXTRA_STATION_IDS, stationIds);
+        intent.putExtra(EXTRA_STATION_IDS_PID, Process.myPid());
+    }
+    
     private void loadLineStations() {
         progressBar.setVisibility(View.VISIBLE);
         
@@ -99,20 +115,13 @@ public class LineStationsActivity extends AppCompatActivity {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", lineId);
         
-        ApiClient.getApiService().viewMetro(requestBody).enqueue(new Callback<JsonObject>() {
+        LifecycleCalls.enqueue(this, ApiClient.getApiService().viewMetro(requestBody), new Callback<LineDetails>() {
             @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
+            public void onResponse(@NonNull Call<LineDetails> call, @NonNull Response<LineDetails> response) {
                 progressBar.setVisibility(View.GONE);
                 if (response.isSuccessful() && response.body() != null) {
-                    JsonObject data = response.body();
-                    List<String> stations = new ArrayList<>();
-                    if (data.has("stations")) {
-                        JsonArray stationsArray = data.getAsJsonArray("stations");
-                        for (int i = 0; i < stationsArray.size(); i++) {
-                            stations.add(stationsArray.get(i).getAsString());
-                        }
-                    }
-                    adapter.setStations(stations);
+                    LineDetails data = response.body();
+                    adapter.setStationIds(data.getStationIds(LineDetails.METRO_STATIONS));
                 } else {
                     Toast.makeText(LineStationsActivity.this,
                             R.string.error_network,
@@ -121,7 +130,7 @@ public class LineStationsActivity extends AppCompatActivity {
             }
             
             @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Call<LineDetails> call, @NonNull Throwable t) {
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(LineStationsActivity.this,
                         getString(R.string.error_network) + ": " + t.getMessage(),
@@ -134,21 +143,16 @@ public class LineStationsActivity extends AppCompatActivity {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", lineId);
         
-        ApiClient.getApiService().viewBus(requestBody).enqueue(new Callback<JsonObject>() {
+        LifecycleCalls.enqueue(this, ApiClient.getApiService().viewBus(requestBody), new Callback<LineDetails>() {
             @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
+            public void onResponse(@NonNull Call<LineDetails> call, @NonNull Response<LineDetails> response) {
                 progressBar.setVisibility(View.GONE);
                 if (response.isSuccessful() && response.body() != null) {
-                    JsonObject data = response.body();
+                    LineDetails data = response.body();
                     String direction = getIntent().getStringExtra("direction");
                     
-                    if (direction != null && data.has(direction)) {
-                        List<String> stations = new ArrayList<>();
-                        JsonArray stationsArray = data.getAsJsonArray(direction);
-                        for (int i = 0; i < stationsArray.size(); i++) {
-                            stations.add(stationsArray.get(i).getAsString());
-                        }
-                        adapter.setStations(stations);
+                    if (direction != null && data.indexOfDirection(direction) >= 0) {
+                        adapter.setStationIds(data.getStationIds(direction));
                     }
                 } else {
                     Toast.makeText(LineStationsActivity.this,
@@ -158,7 +162,7 @@ public class LineStationsActivity extends AppCompatActivity {
             }
             
             @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Call<LineDetails> call, @NonNull Throwable t) {
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(LineStationsActivity.this,
                         getString(R.string.error_network) + ": " + t.getMessage(),
@@ -176,58 +180,26 @@ public class LineStationsActivity extends AppCompatActivity {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("station_name", stationName);
         
-        ApiClient.getApiService().searchStation(requestBody).enqueue(new Callback<Map<String, Object>>() {
+        ResponsePipeline.enqueue(this, "searchstation",
+                ApiClient.getApiService().searchStation(requestBody),
+                data -> StationLines.fromResponse(stationName, data),
+                new ResponsePipeline.Receiver<StationLines>() {
             @Override
-            public void onResponse(@NonNull Call<Map<String, Object>> call,
-                                   @NonNull Response<Map<String, Object>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> data = response.body();
-                    
-                    // Extract lines from response
-                    List<String> metroLines = new ArrayList<>();
-                    List<String> busLines = new ArrayList<>();
-                    
-                    if (data.containsKey("metro_lines")) {
-                        Object metroObj = data.get("metro_lines");
-                        if (metroObj instanceof List) {
-                            List<?> rawList = (List<?>) metroObj;
-                            for (Object item : rawList) {
-                                if (item instanceof String) {
-                                    metroLines.add((String) item);
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (data.containsKey("bus_lines")) {
-                        Object busObj = data.get("bus_lines");
-                        if (busObj instanceof List) {
-                            List<?> rawList = (List<?>) busObj;
-                            for (Object item : rawList) {
-                                if (item instanceof String) {
-                                    busLines.add((String) item);
-                                }
-                            }
-                        }
-                    }
-                    
-                    // Open activity to show lines passing through this station
-                    Intent intent = new Intent(LineStationsActivity.this, StationLinesActivity.class);
-                    intent.putExtra("station_name", stationName);
-                    intent.putStringArrayListExtra("metro_lines", new ArrayList<>(metroLines));
-                    intent.putStringArrayListExtra("bus_lines", new ArrayList<>(busLines));
-                    startActivity(intent);
-                } else {
-                    Toast.makeText(LineStationsActivity.this,
-                            R.string.error_network,
-                            Toast.LENGTH_SHORT).show();
-                }
+            public void onResult(StationLines lines) {
+                // Open activity to show lines passing through this station
+                Intent intent = new Intent(LineStationsActivity.this, StationLinesActivity.class);
+                intent.putExtra("station_name", lines.getStationName());
+                intent.putStringArrayListExtra("metro_lines", lines.getMetroLines());
+                intent.putStringArrayListExtra("bus_lines", lines.getBusLines());
+                startActivity(intent);
             }
             
             @Override
-            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
+            public void onError(@NonNull Throwable t) {
                 Toast.makeText(LineStationsActivity.this,
-                        getString(R.string.error_network) + ": " + t.getMessage(),
+                        t instanceof HttpException
+                                ? getString(R.string.error_network)
+                                : getString(R.string.error_network) + ": " + t.getMessage(),
                         Toast.LENGTH_SHORT).show();
             }
         });
@@ -62,6 +62,9 @@ public class MainActivity extends AppCompatActivity {
         // Initialize ApiClient with context for Arabic locale detection
         com.riyadhtransport.api.ApiClient.init(this);
 
+        // Resolve hosts and open connections while the UI is being set up
+        com.riyadhtransport.api.NetworkWarmup.start(this);
+
         setContentView(R.layout.activity_main);
 
         // Initialize location helper
@@ -18,9 +18,13 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
 import com.riyadhtransport.adapters.SearchResultAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.LifecycleCalls;
+import com.riyadhtransport.api.NetworkWarmup;
+import com.riyadhtransport.data.StationCatalog;
 import com.riyadhtransport.models.NominatimResult;
 import com.riyadhtransport.models.SearchResult;
-import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationTable;
+import com.riyadhtransport.utils.SearchRanker;
 import java.util.ArrayList;
 import java.util.List;
 import retrofit2.Call;
@@ -30,6 +34,8 @@ import retrofit2.Response;
 public class SearchLocationActivity extends AppCompatActivity {
     
     public static final String EXTRA_SEARCH_TYPE = "search_type";
+    public static final String EXTRA_USER_LAT = "user_lat";
+    public static final String EXTRA_USER_LNG = "user_lng";
     public static final String EXTRA_RESULT_NAME = "result_name";
     public static final String EXTRA_RESULT_LAT = "result_lat";
     public static final String EXTRA_RESULT_LNG = "result_lng";
@@ -38,19 +44,31 @@ public class SearchLocationActivity extends AppCompatActivity {
     public static final int REQUEST_SEARCH_START = 1;
     public static final int REQUEST_SEARCH_END = 2;
     
+    // Enough stations to fill a few screens
+    private static final int MAX_STATION_RESULTS = 50;
+    // Text matches scored before the cut, so a near or major station further
+    // down the text ranking can still make the list
+    private static final int MAX_STATION_CANDIDATES = MAX_STATION_RESULTS * 4;
+    
     private TextInputEditText searchInput;
     private RecyclerView resultsRecycler;
     private ProgressBar progressBar;
     private SearchResultAdapter adapter;
     private Handler searchHandler = new Handler(Looper.getMainLooper());
     private Runnable searchRunnable;
-    private List<Station> allStations = new ArrayList<>();
+    private final LifecycleCalls.Latest nominatimSearch = new LifecycleCalls.Latest();
+    private StationTable allStations = StationTable.EMPTY;
     private String searchType;
+    // The user's last fix, NaN when the caller had none
+    private double userLat;
+    private double userLng;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_search_location);
+        // Connect to Nominatim while the user is still typing
+        NetworkWarmup.warmSearch(this);
         
         // Enable back button
         if (getSupportActionBar() != null) {
@@ -62,6 +80,8 @@ public class SearchLocationActivity extends AppCompatActivity {
         if (searchType == null) {
             searchType = "origin";
         }
+        userLat = getIntent().getDoubleExtra(EXTRA_USER_LAT, Double.NaN);
+        userLng = getIntent().getDoubleExtra(EXTRA_USER_LNG, Double.NaN);
         
         // Set title based on search type
         if (getSupportActionBar() != null) {
@@ -92,13 +112,20 @@ public class SearchLocationActivity extends AppCompatActivity {
             
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                // Cancel previous search
+                // Cancel previous search, including a Nominatim request still in flight
                 if (searchRunnable != null) {
                     searchHandler.removeCallbacks(searchRunnable);
                 }
+                nominatimSearch.cancel();
                 
-                // Schedule new search after 300ms delay
-                searchRunnable = () -> performSearch(s.toString());
+                // Stations are searched on the device at once, Nominatim after a 300ms pause
+                String query = s.toString();
+                SearchRanker ranker = new SearchRanker(query, userLat, userLng);
+                List<SearchResult> stationResults = searchStations(query, ranker);
+                if (stationResults == null) {
+                    return;
+                }
+                searchRunnable = () -> searchNominatim(query, ranker, stationResults);
                 searchHandler.postDelayed(searchRunnable, 300);
             }
             
@@ -111,67 +138,78 @@ public class SearchLocationActivity extends AppCompatActivity {
     }
     
     private void loadStations() {
-        ApiClient.getApiService().getStations().enqueue(new Callback<List<Station>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Station>> call,
-                                   @NonNull Response<List<Station>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    allStations = response.body();
-                }
-            }
-            
-            @Override
-            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
-                // Silently fail - Nominatim will still work
+        // The process-wide catalog shared with the route screen, already indexed,
+        // so opening this screen never downloads the stations again. Failures
+        // are silent since Nominatim will still work
+        StationCatalog.getInstance(this).getSnapshot().observe(this, resource -> {
+            if (resource.getData() != null) {
+                allStations = resource.getData().getTable();
             }
         });
     }
     
-    private void performSearch(String query) {
+    /**
+     * Shows the stations matching the query, ranked, and returns them, or
+     * null when the query is blank and there is nothing to search
+     */
+    private List<SearchResult> searchStations(String query, SearchRanker ranker) {
         if (query.trim().isEmpty()) {
+            progressBar.setVisibility(View.GONE);
             adapter.setResults(new ArrayList<>());
-            return;
+            return null;
         }
         
         progressBar.setVisibility(View.VISIBLE);
         
-        // Search in both stations and Nominatim
-        List<SearchResult> combinedResults = new ArrayList<>();
-        
-        // Search in local stations
-        for (Station station : allStations) {
-            if (station.getDisplayName().toLowerCase().contains(query.toLowerCase())) {
-                SearchResult result = new SearchResult();
-                result.setName(station.getDisplayName());
-                result.setDescription(getString(R.string.metro_station)); // or bus_stop based on type
-                result.setLatitude(station.getLatitude());
-                result.setLongitude(station.getLongitude());
-                result.setStation(true);
-                combinedResults.add(result);
-            }
+        // Search in local stations, allowing typos when nothing contains the query
+        int[] rows = allStations.matching(query);
+        if (rows.length == 0) {
+            rows = allStations.fuzzyMatching(query);
         }
-        
-        // Search in Nominatim
-        searchNominatim(query, combinedResults);
+        List<SearchResult> stationResults = new ArrayList<>();
+        String metroStation = getString(R.string.metro_station);
+        String busStop = getString(R.string.bus_stop);
+        for (int i = 0; i < rows.length && i < MAX_STATION_CANDIDATES; i++) {
+            int row = rows[i];
+            boolean metro = allStations.isMetro(row);
+            SearchResult result = new SearchResult();
+            result.setName(allStations.getDisplayName(row));
+            result.setDescription(metro ? metroStation : busStop);
+            result.setLatitude(allStations.getLatitude(row));
+            result.setLongitude(allStations.getLongitude(row));
+            result.setStation(true);
+            ranker.score(result, metro ? SearchRanker.METRO_IMPORTANCE : SearchRanker.BUS_IMPORTANCE);
+            stationResults.add(result);
+        }
+        // Local matches show on this frame while Nominatim is still answering
+        stationResults = ranker.rank(stationResults);
+        if (stationResults.size() > MAX_STATION_RESULTS) {
+            stationResults = new ArrayList<>(stationResults.subList(0, MAX_STATION_RESULTS));
+        }
+        adapter.setResults(stationResults);
+        return stationResults;
     }
     
-    private void searchNominatim(String query, List<SearchResult> existingResults) {
+    /**
+     * Merges Nominatim's places into the shown station results by score
+     */
+    private void searchNominatim(String query, SearchRanker ranker, List<SearchResult> stationResults) {
         String viewbox = "46.5,24.5,47.0,25.0"; // Riyadh bounding box
         
-        ApiClient.getNominatimService().search(
+        nominatimSearch.enqueue(this, ApiClient.getNominatimService().search(
                 query + ", Riyadh",
                 "json",
                 10,
                 1,
                 viewbox
-        ).enqueue(new Callback<List<NominatimResult>>() {
+        ), new Callback<List<NominatimResult>>() {
             @Override
             public void onResponse(@NonNull Call<List<NominatimResult>> call,
                                    @NonNull Response<List<NominatimResult>> response) {
                 progressBar.setVisibility(View.GONE);
                 
+                List<SearchResult> places = new ArrayList<>();
                 if (response.isSuccessful() && response.body() != null) {
-                    // Add Nominatim results
                     for (NominatimResult nominatim : response.body()) {
                         // Ensure we have valid data before creating result
                         String displayName = nominatim.getDisplayName();
@@ -183,20 +221,20 @@ public class SearchLocationActivity extends AppCompatActivity {
                             result.setLatitude(nominatim.getLatitudeAsDouble());
                             result.setLongitude(nominatim.getLongitudeAsDouble());
                             result.setStation(false);
-                            existingResults.add(result);
+                            ranker.score(result, nominatim.getImportance());
+                            places.add(result);
                         }
                     }
                 }
                 
-                // Update adapter with combined results
-                adapter.setResults(existingResults);
+                // Stations stay where they are unless a place outranks them
+                adapter.setResults(ranker.merge(stationResults, places));
             }
             
             @Override
             public void onFailure(@NonNull Call<List<NominatimResult>> call, @NonNull Throwable t) {
                 progressBar.setVisibility(View.GONE);
-                // Show station results even if Nominatim fails
-                adapter.setResults(existingResults);
+                // Station results are already shown, so a failure only hides the spinner
             }
         });
     }
@@ -10,13 +10,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.Line;
 import com.riyadhtransport.utils.LineColorHelper;
+import com.riyadhtransport.utils.TrigramIndex;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder> {
 
     private List<Line> lines;
     private List<Line> filteredLines;
+    private TrigramIndex searchIndex = TrigramIndex.EMPTY;
     private OnLineClickListener listener;
 
     public interface OnLineClickListener {
@@ -32,6 +35,11 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
     public void setLines(List<Line> lines) {
         this.lines = lines;
         this.filteredLines = new ArrayList<>(lines);
+        TrigramIndex.Builder builder = new TrigramIndex.Builder();
+        for (Line line : lines) {
+            builder.add(line.getId(), line.getName());
+        }
+        this.searchIndex = builder.build();
         notifyDataSetChanged();
     }
 
@@ -40,12 +48,11 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
         if (query == null || query.isEmpty()) {
             filteredLines.addAll(lines);
         } else {
-            String lowerQuery = query.toLowerCase();
-            for (Line line : lines) {
-                if (line.getId().toLowerCase().contains(lowerQuery) ||
-                    line.getName().toLowerCase().contains(lowerQuery)) {
-                    filteredLines.add(line);
-                }
+            // Keep the list's own order, metro lines before bus lines, rather than match quality
+            int[] matches = searchIndex.search(query);
+            Arrays.sort(matches);
+            for (int index : matches) {
+                filteredLines.add(lines.get(index));
             }
         }
         notifyDataSetChanged();
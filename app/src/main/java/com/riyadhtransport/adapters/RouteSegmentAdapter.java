@@ -11,6 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
+import com.riyadhtransport.models.RouteEndpoint;
 import com.riyadhtransport.models.RouteSegment;
 import com.riyadhtransport.utils.LineColorHelper;
 import java.util.ArrayList;
@@ -134,6 +135,11 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
                 return itemView.getContext().getString(R.string.your_destination);
             }
 
+            RouteEndpoint to = segment.getTo();
+            if (to != null && to.isStation()) {
+                return to.getStationName();
+            }
+
             List<String> stations = segment.getStations();
             if (stations != null && !stations.isEmpty()) {
                 return stations.get(stations.size() - 1);
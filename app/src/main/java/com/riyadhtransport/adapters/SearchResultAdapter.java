@@ -6,11 +6,13 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.SearchResult;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ResultViewHolder> {
     
@@ -26,9 +28,45 @@ public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapte
         this.clickListener = listener;
     }
     
+    /**
+     * Replaces the results through a diff, so rows that stay keep their views
+     * and only inserted, removed or moved rows animate. The diff runs on the
+     * calling thread: lists are a few dozen rows, and local hits must show on
+     * the frame of the keystroke rather than after a background pass.
+     */
     public void setResults(List<SearchResult> results) {
+        List<SearchResult> old = this.results;
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return old.size();
+            }
+            
+            @Override
+            public int getNewListSize() {
+                return results.size();
+            }
+            
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return isSamePlace(old.get(oldPosition), results.get(newPosition));
+            }
+            
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return Objects.equals(old.get(oldPosition).getDescription(),
+                        results.get(newPosition).getDescription());
+            }
+        });
         this.results = results;
-        notifyDataSetChanged();
+        diff.dispatchUpdatesTo(this);
+    }
+    
+    private static boolean isSamePlace(SearchResult a, SearchResult b) {
+        return a.isStation() == b.isStation()
+                && Objects.equals(a.getName(), b.getName())
+                && a.getLatitude() == b.getLatitude()
+                && a.getLongitude() == b.getLongitude();
     }
     
     @NonNull
@@ -8,13 +8,16 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.TrigramIndex;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationViewHolder> {
     
     private List<Station> stations;
     private List<Station> stationsFiltered;
+    private TrigramIndex searchIndex = TrigramIndex.EMPTY;
     private OnStationClickListener listener;
     
     public interface OnStationClickListener {
@@ -30,6 +33,12 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
     public void setStations(List<Station> stations) {
         this.stations = stations;
         this.stationsFiltered = new ArrayList<>(stations);
+        // A nearby list is short, so building here is cheap
+        TrigramIndex.Builder builder = new TrigramIndex.Builder();
+        for (Station station : stations) {
+            builder.add(station.getDisplayName());
+        }
+        this.searchIndex = builder.build();
         notifyDataSetChanged();
     }
     
@@ -38,11 +47,11 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
         if (query.isEmpty()) {
             stationsFiltered.addAll(stations);
         } else {
-            String lowerQuery = query.toLowerCase();
-            for (Station station : stations) {
-                if (station.getDisplayName().toLowerCase().contains(lowerQuery)) {
-                    stationsFiltered.add(station);
-                }
+            // Keep the list's own order, e.g. nearest first, rather than match quality
+            int[] matches = searchIndex.search(query);
+            Arrays.sort(matches);
+            for (int index : matches) {
+                stationsFiltered.add(stations.get(index));
             }
         }
         notifyDataSetChanged();
@@ -88,7 +97,7 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
             stationType.setText(type);
             
             // Display distance and walking time if available
-            if (station.getDistance() != null && station.getDuration() != null) {
+            if (station.hasDistance() && station.hasDuration()) {
                 double distanceMeters = station.getDistance();
                 double durationSeconds = station.getDuration();
 
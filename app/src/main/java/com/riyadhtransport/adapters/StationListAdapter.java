@@ -7,12 +7,12 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
-import java.util.ArrayList;
-import java.util.List;
+import com.riyadhtransport.models.StationNames;
 
 public class StationListAdapter extends RecyclerView.Adapter<StationListAdapter.StationViewHolder> {
 
-    private List<String> stations;
+    // Ids in StationNames, names are resolved when a row is bound
+    private int[] stationIds;
     private OnStationClickListener clickListener;
 
     public interface OnStationClickListener {
@@ -20,12 +20,12 @@ public class StationListAdapter extends RecyclerView.Adapter<StationListAdapter.
     }
 
     public StationListAdapter(OnStationClickListener listener) {
-        this.stations = new ArrayList<>();
+        this.stationIds = new int[0];
         this.clickListener = listener;
     }
 
-    public void setStations(List<String> stations) {
-        this.stations = stations;
+    public void setStationIds(int[] stationIds) {
+        this.stationIds = stationIds;
         notifyDataSetChanged();
     }
 
@@ -39,13 +39,13 @@ public class StationListAdapter extends RecyclerView.Adapter<StationListAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull StationViewHolder holder, int position) {
-        String station = stations.get(position);
+        String station = StationNames.get().name(stationIds[position]);
         holder.bind(station, position + 1);
     }
 
     @Override
     public int getItemCount() {
-        return stations.size();
+        return stationIds.length;
     }
 
     class StationViewHolder extends RecyclerView.ViewHolder {
@@ -58,7 +58,7 @@ public class StationListAdapter extends RecyclerView.Adapter<StationListAdapter.
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && clickListener != null) {
-                    clickListener.onStationClick(stations.get(position));
+                    clickListener.onStationClick(StationNames.get().name(stationIds[position]));
                 }
             });
         }
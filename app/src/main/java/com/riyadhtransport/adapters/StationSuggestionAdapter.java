@@ -0,0 +1,91 @@
+package com.riyadhtransport.adapters;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+import com.riyadhtransport.utils.PrefixIndex;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Station name suggestions for an AutoCompleteTextView, answered by a shared
+ * {@link PrefixIndex} instead of scanning every name per keystroke. One
+ * adapter per input field; the index can be shared between them.
+ */
+public class StationSuggestionAdapter extends BaseAdapter implements Filterable {
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final LayoutInflater inflater;
+    // Read on the filter thread
+    private volatile PrefixIndex index = PrefixIndex.EMPTY;
+    private List<String> suggestions = new ArrayList<>();
+    private Filter filter;
+
+    public StationSuggestionAdapter(Context context) {
+        this.inflater = LayoutInflater.from(context);
+    }
+
+    public void setIndex(PrefixIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView != null ? convertView
+                : inflater.inflate(android.R.layout.simple_dropdown_item_1line, parent, false);
+        ((TextView) view).setText(suggestions.get(position));
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        if (filter == null) {
+            filter = new Filter() {
+                @Override
+                protected FilterResults performFiltering(CharSequence constraint) {
+                    // Runs on the filter's worker thread
+                    List<String> matches = constraint != null
+                            ? index.search(constraint, MAX_SUGGESTIONS)
+                            : new ArrayList<>();
+                    FilterResults results = new FilterResults();
+                    results.values = matches;
+                    results.count = matches.size();
+                    return results;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void publishResults(CharSequence constraint, FilterResults results) {
+                    suggestions = results.values != null ? (List<String>) results.values : new ArrayList<>();
+                    if (results.count > 0) {
+                        notifyDataSetChanged();
+                    } else {
+                        notifyDataSetInvalidated();
+                    }
+                }
+            };
+        }
+        return filter;
+    }
+}
@@ -1,12 +1,21 @@
 package com.riyadhtransport.api;
 
 import android.content.Context;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import com.riyadhtransport.BuildConfig;
+import com.riyadhtransport.api.json.LazyLineDetails;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
 import com.riyadhtransport.utils.LocaleHelper;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class ApiClient {
@@ -15,70 +24,148 @@ public class ApiClient {
     // For production, use your actual server URL
     private static final String BASE_URL = "http://mainserver.inirl.net:5000/";
     private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/";
-    
-    private static Retrofit retrofit = null;
+
+    private static String baseUrl = BASE_URL;
+    private static String nominatimUrl = NOMINATIM_URL;
+
+    // Shared by every client below so connections and threads survive between screens
+    private static final ConnectionPool connectionPool = new ConnectionPool(5, 5, TimeUnit.MINUTES);
+    private static final Dispatcher dispatcher = new Dispatcher();
+    private static final CachingDns dns = new CachingDns(Dns.SYSTEM, 10, TimeUnit.MINUTES);
+
+    private static OkHttpClient httpClient = null;
+    private static OkHttpClient backendClient = null;
+    private static CatalogCacheInterceptor catalogCache = null;
+    private static final SingleFlightCallAdapterFactory singleFlight = new SingleFlightCallAdapterFactory();
+    private static final PriorityCallAdapterFactory scheduler = new PriorityCallAdapterFactory();
+    private static final RetryCallAdapterFactory retryPolicy = new RetryCallAdapterFactory();
+    private static final Map<String, Retrofit> retrofits = new HashMap<>();
+    private static final Map<String, TransportApiService> apiServices = new HashMap<>();
     private static Retrofit nominatimRetrofit = null;
-    private static TransportApiService apiService = null;
     private static NominatimService nominatimService = null;
     private static Context appContext = null;
 
     public static void init(Context context) {
         appContext = context.getApplicationContext();
     }
-    
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            // Create logging interceptor for debugging
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-            
-            // Create OkHttpClient with timeout settings and Arabic locale interceptor
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .addInterceptor(loggingInterceptor)
-                    .addInterceptor(chain -> {
-                        // Add /ar/ prefix to endpoints when app is in Arabic
-                        if (appContext != null && LocaleHelper.isArabic(appContext)) {
-                            String url = chain.request().url().toString();
-                            // Only modify if it's our backend and doesn't already have /ar/
-                            if (url.startsWith(BASE_URL) && !url.contains("/ar/")) {
-                                String path = url.substring(BASE_URL.length());
-                                String newUrl = BASE_URL + "ar/" + path;
-                                return chain.proceed(
-                                        chain.request().newBuilder()
-                                                .url(newUrl)
-                                                .build()
-                                );
-                            }
-                        }
-                        return chain.proceed(chain.request());
-                    })
+
+    /**
+     * Base OkHttpClient that owns the shared connection pool and dispatcher.
+     * Derive new clients from it with newBuilder() so they keep sharing both.
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .connectionPool(connectionPool)
+                    .dispatcher(dispatcher)
+                    .dns(dns)
+                    .eventListenerFactory(MetricsEventListener.FACTORY)
                     .connectTimeout(30, TimeUnit.SECONDS)
                     .readTimeout(30, TimeUnit.SECONDS)
                     .writeTimeout(30, TimeUnit.SECONDS)
                     .build();
-            
-            // Create Retrofit instance
+        }
+        return httpClient;
+    }
+
+    private static synchronized OkHttpClient getBackendClient() {
+        if (backendClient == null) {
+            OkHttpClient.Builder builder = getHttpClient().newBuilder();
+            if (appContext != null) {
+                // Catalog responses are served from disk and only revalidated over the network
+                catalogCache = new CatalogCacheInterceptor(
+                        new File(appContext.getCacheDir(), "catalog"), 12, TimeUnit.HOURS);
+                builder.addInterceptor(catalogCache);
+            }
+            if (BuildConfig.DEBUG) {
+                // Full body logging buffers every payload, keep it out of release builds
+                HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+                loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+                builder.addInterceptor(loggingInterceptor);
+            }
+            backendClient = builder.build();
+        }
+        return backendClient;
+    }
+
+    public static Retrofit getClient() {
+        return getClient(getLanguageCode());
+    }
+
+    /**
+     * Retrofit instance for the given language ("en" or "ar"). Arabic endpoints
+     * live under the /ar/ prefix, so it is baked into the base URL.
+     */
+    public static synchronized Retrofit getClient(String languageCode) {
+        Retrofit retrofit = retrofits.get(languageCode);
+        if (retrofit == null) {
+            String url = "ar".equals(languageCode) ? baseUrl + "ar/" : baseUrl;
             retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .baseUrl(url)
+                    .client(getBackendClient())
+                    .addCallAdapterFactory(singleFlight)
+                    .addCallAdapterFactory(scheduler)
+                    .addCallAdapterFactory(retryPolicy)
+                    .addConverterFactory(LazyLineDetails.converterFactory())
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
+            retrofits.put(languageCode, retrofit);
         }
         return retrofit;
     }
-    
+
     public static TransportApiService getApiService() {
-        // Always recreate the client to ensure locale changes are picked up
-        retrofit = null;
-        apiService = null;
-        apiService = getClient().create(TransportApiService.class);
+        // Locale is checked on every call, the services themselves are cached per language
+        return getApiService(getLanguageCode());
+    }
+
+    public static synchronized TransportApiService getApiService(String languageCode) {
+        TransportApiService apiService = apiServices.get(languageCode);
+        if (apiService == null) {
+            apiService = getClient(languageCode).create(TransportApiService.class);
+            apiServices.put(languageCode, apiService);
+        }
         return apiService;
     }
 
-    private static Retrofit getNominatimClient() {
+    /**
+     * DNS cache shared by every client, used to resolve hosts ahead of the first request.
+     */
+    public static CachingDns getDns() {
+        return dns;
+    }
+
+    /**
+     * Disk cache for the catalog endpoints, exposes hit/miss counters.
+     * Null until the backend client is created after init().
+     */
+    public static synchronized CatalogCacheInterceptor getCatalogCache() {
+        return catalogCache;
+    }
+
+    /**
+     * Coalesces identical in-flight backend calls, exposes how many calls were joined.
+     */
+    public static SingleFlightCallAdapterFactory getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Priority scheduler for backend calls, exposes queue wait times per class.
+     */
+    public static PriorityCallAdapterFactory getScheduler() {
+        return scheduler;
+    }
+
+    // "ar" or "en", following the app locale
+    public static String getLanguageCode() {
+        return appContext != null ? LocaleHelper.getLanguageCode(appContext) : "en";
+    }
+
+    private static synchronized Retrofit getNominatimClient() {
         if (nominatimRetrofit == null) {
             // Create OkHttpClient with timeout settings
-            OkHttpClient client = new OkHttpClient.Builder()
+            OkHttpClient client = getHttpClient().newBuilder()
                     .connectTimeout(15, TimeUnit.SECONDS)
                     .readTimeout(15, TimeUnit.SECONDS)
                     .addInterceptor(chain -> {
@@ -94,25 +181,41 @@ public class ApiClient {
 
             // Create Retrofit instance for Nominatim
             nominatimRetrofit = new Retrofit.Builder()
-                    .baseUrl(NOMINATIM_URL)
+                    .baseUrl(nominatimUrl)
                     .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .addConverterFactory(GsonConverterFactory.create(ModelTypeAdapterFactory.gson()))
                     .build();
         }
         return nominatimRetrofit;
     }
 
-    public static NominatimService getNominatimService() {
+    public static synchronized NominatimService getNominatimService() {
         if (nominatimService == null) {
             nominatimService = getNominatimClient().create(NominatimService.class);
         }
         return nominatimService;
     }
 
+    public static synchronized String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public static synchronized String getNominatimUrl() {
+        return nominatimUrl;
+    }
+
     // Method to update base URL if needed
-    public static void setBaseUrl(String url) {
-        retrofit = null;
-        apiService = null;
+    public static synchronized void setBaseUrl(String url) {
+        baseUrl = url;
+        retrofits.clear();
+        apiServices.clear();
         // Will be recreated with new URL on next call
     }
+
+    // Points place search at another server, e.g. a local stand-in for benchmarks
+    public static synchronized void setNominatimUrl(String url) {
+        nominatimUrl = url;
+        nominatimRetrofit = null;
+        nominatimService = null;
+    }
 }
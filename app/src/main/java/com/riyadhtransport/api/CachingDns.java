@@ -0,0 +1,84 @@
+package com.riyadhtransport.api;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Dns;
+
+/**
+ * Keeps DNS answers for a fixed time so only the first request to a host pays
+ * for the lookup. Android's own resolver cache is short lived and not
+ * guaranteed, and the platform does not expose record TTLs, hence the fixed TTL.
+ * When a lookup fails the last known addresses are used, however old.
+ */
+public class CachingDns implements Dns {
+
+    private final Dns delegate;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingDns(Dns delegate, long ttl, TimeUnit unit) {
+        this.delegate = delegate;
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = SystemClock.elapsedRealtime();
+        Entry entry = entries.get(hostname);
+        if (entry != null && now - entry.resolvedAt < ttlMillis) {
+            hits.incrementAndGet();
+            return entry.addresses;
+        }
+
+        misses.incrementAndGet();
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            entries.put(hostname, new Entry(addresses, now));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves the host ahead of the first request, returns false if it could not be resolved
+     */
+    public boolean prefetch(String hostname) {
+        try {
+            lookup(hostname);
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
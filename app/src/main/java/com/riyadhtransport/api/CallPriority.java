@@ -0,0 +1,13 @@
+package com.riyadhtransport.api;
+
+/**
+ * Scheduling classes for backend calls, highest priority first.
+ */
+public enum CallPriority {
+    // The user is waiting on it right now: route planning, station search
+    INTERACTIVE,
+    // Fills what is on screen: nearby stations, arrivals, line details
+    VISIBLE,
+    // Catalog loads that can wait: stations and line lists
+    BACKGROUND
+}
@@ -0,0 +1,348 @@
+package com.riyadhtransport.api;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Disk cache for the catalog endpoints (stations, line lists and line details).
+ * Stored responses are revalidated with If-None-Match / If-Modified-Since and a
+ * 304 is answered from disk. When the server sent no validators, the stored
+ * response is reused without any request until the TTL runs out.
+ *
+ * An entry's meta and body are read together under the same lock that
+ * replaces them, and the body is opened right then, so a response stored
+ * meanwhile can neither pair them wrongly nor remove the body before it is
+ * served.
+ */
+public class CatalogCacheInterceptor implements Interceptor {
+
+    private static final String TAG = "CatalogCache";
+
+    // Endpoints whose responses barely change between app sessions
+    private static final String[] CATALOG_PATHS = {
+            "api/stations", "mtrlines", "buslines", "viewmtr", "viewbus"
+    };
+
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last_modified";
+    private static final String KEY_CONTENT_TYPE = "content_type";
+    private static final String KEY_STORED_AT = "stored_at";
+
+    private final File directory;
+    private final long ttlMillis;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong revalidatedCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CatalogCacheInterceptor(File directory, long ttl, TimeUnit unit) {
+        this.directory = directory;
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isCatalogRequest(request)) {
+            return chain.proceed(request);
+        }
+
+        String key = cacheKey(request);
+        Entry entry = open(key);
+        Properties meta = entry != null ? entry.meta : null;
+
+        String etag = meta != null ? meta.getProperty(KEY_ETAG) : null;
+        String lastModified = meta != null ? meta.getProperty(KEY_LAST_MODIFIED) : null;
+
+        // No validators to revalidate with, fall back to the client-side TTL
+        if (meta != null && etag == null && lastModified == null) {
+            long storedAt = Long.parseLong(meta.getProperty(KEY_STORED_AT, "0"));
+            if (System.currentTimeMillis() - storedAt < ttlMillis) {
+                hitCount.incrementAndGet();
+                return cachedResponse(request, entry, null);
+            }
+        }
+        if (entry != null) {
+            // Reopened if the server confirms it
+            closeQuietly(entry.body);
+        }
+
+        Request.Builder conditional = request.newBuilder();
+        if (etag != null) {
+            conditional.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            conditional.header("If-Modified-Since", lastModified);
+        }
+
+        Response response = chain.proceed(conditional.build());
+
+        if (response.code() == 304 && meta != null) {
+            response.close();
+            Entry confirmed = refresh(key, etag, lastModified);
+            if (confirmed != null) {
+                hitCount.incrementAndGet();
+                revalidatedCount.incrementAndGet();
+                return cachedResponse(request, confirmed, response);
+            }
+            // Replaced or removed while the request was out, ask for the whole response
+            response = chain.proceed(request);
+        }
+
+        missCount.incrementAndGet();
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            return response;
+        }
+
+        MediaType contentType = body.contentType();
+        byte[] bytes = body.bytes();
+        store(key, response, contentType, bytes);
+        return response.newBuilder()
+                .body(ResponseBody.create(bytes, contentType))
+                .build();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Hits that needed a round trip answered with 304 Not Modified
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private static boolean isCatalogRequest(Request request) {
+        String path = request.url().encodedPath();
+        for (String catalogPath : CATALOG_PATHS) {
+            if (path.endsWith("/" + catalogPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String cacheKey(Request request) throws IOException {
+        // POST endpoints (viewmtr/viewbus) are keyed by their body as well
+        Buffer buffer = new Buffer();
+        buffer.writeUtf8(request.method()).writeUtf8(" ").writeUtf8(request.url().toString());
+        if (request.body() != null) {
+            buffer.writeUtf8("\n");
+            request.body().writeTo(buffer);
+        }
+        return buffer.md5().hex();
+    }
+
+    private Response cachedResponse(Request request, Entry entry, @Nullable Response networkResponse) {
+        String type = entry.meta.getProperty(KEY_CONTENT_TYPE);
+        MediaType contentType = type != null ? MediaType.parse(type) : null;
+        ResponseBody body = ResponseBody.create(entry.body, contentType, entry.length);
+
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(networkResponse != null ? networkResponse.protocol() : Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(body);
+        if (networkResponse != null) {
+            builder.sentRequestAtMillis(networkResponse.sentRequestAtMillis())
+                    .receivedResponseAtMillis(networkResponse.receivedResponseAtMillis());
+        }
+        return builder.build();
+    }
+
+    @Nullable
+    private Properties readMeta(String key) {
+        File file = new File(directory, key + ".meta");
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            Properties meta = new Properties();
+            meta.load(in);
+            return meta;
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable cache entry " + key, e);
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        final Properties meta;
+        final BufferedSource body;
+        final long length;
+
+        Entry(Properties meta, BufferedSource body, long length) {
+            this.meta = meta;
+            this.body = body;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The stored entry with its body open, or null when there is none. An open
+     * body stays readable after a later store replaces the file.
+     */
+    @Nullable
+    private synchronized Entry open(String key) {
+        Properties meta = readMeta(key);
+        if (meta == null) {
+            return null;
+        }
+        File bodyFile = new File(directory, key + ".body");
+        try {
+            return new Entry(meta, Okio.buffer(Okio.source(bodyFile)), bodyFile.length());
+        } catch (IOException e) {
+            // The body went missing, e.g. a store that failed half way
+            return null;
+        }
+    }
+
+    /**
+     * Restarts the TTL of an entry the server confirmed and opens it, or
+     * returns null when another response replaced or removed it since it was read
+     */
+    @Nullable
+    private synchronized Entry refresh(String key, @Nullable String etag, @Nullable String lastModified) {
+        Entry entry = open(key);
+        if (entry == null) {
+            return null;
+        }
+        Properties meta = entry.meta;
+        if (!Objects.equals(etag, meta.getProperty(KEY_ETAG))
+                || !Objects.equals(lastModified, meta.getProperty(KEY_LAST_MODIFIED))) {
+            closeQuietly(entry.body);
+            return null;
+        }
+        meta.setProperty(KEY_STORED_AT, String.valueOf(System.currentTimeMillis()));
+        File metaTmp = null;
+        try {
+            metaTmp = writeMetaTmp(key, meta);
+            if (!metaTmp.renameTo(new File(directory, key + ".meta"))) {
+                throw new IOException("Cannot move " + metaTmp);
+            }
+        } catch (IOException e) {
+            // The old meta still matches the body
+            Log.w(TAG, "Failed to refresh cache entry " + key, e);
+        } finally {
+            if (metaTmp != null) {
+                metaTmp.delete();
+            }
+        }
+        return entry;
+    }
+
+    private static void closeQuietly(BufferedSource source) {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // Nothing was written
+        }
+    }
+
+    /**
+     * Replaces an entry. Responses with the same key may complete together
+     * (a hedged attempt, a refresh racing a foreground call), so each writes
+     * its own temp files and entries are replaced one at a time. The old meta
+     * is removed first and a body without meta is never served, so a crash
+     * or failed rename loses the entry rather than pairing the new body with
+     * old validators.
+     */
+    private synchronized void store(String key, Response response, @Nullable MediaType contentType,
+                                    byte[] bytes) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        Properties meta = new Properties();
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (etag != null) {
+            meta.setProperty(KEY_ETAG, etag);
+        }
+        if (lastModified != null) {
+            meta.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        if (contentType != null) {
+            meta.setProperty(KEY_CONTENT_TYPE, contentType.toString());
+        }
+        meta.setProperty(KEY_STORED_AT, String.valueOf(System.currentTimeMillis()));
+
+        File bodyFile = new File(directory, key + ".body");
+        File metaFile = new File(directory, key + ".meta");
+        File bodyTmp = null;
+        File metaTmp = null;
+        try {
+            bodyTmp = File.createTempFile(key, ".tmp", directory);
+            try (BufferedSink sink = Okio.buffer(Okio.sink(bodyTmp))) {
+                sink.write(bytes);
+            }
+            metaTmp = writeMetaTmp(key, meta);
+            if (metaFile.exists() && !metaFile.delete()) {
+                throw new IOException("Cannot delete " + metaFile);
+            }
+            if (!bodyTmp.renameTo(bodyFile) || !metaTmp.renameTo(metaFile)) {
+                throw new IOException("Cannot move cache entry " + key + " into place");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache entry " + key, e);
+            metaFile.delete();
+            bodyFile.delete();
+        } finally {
+            if (bodyTmp != null) {
+                bodyTmp.delete();
+            }
+            if (metaTmp != null) {
+                metaTmp.delete();
+            }
+        }
+    }
+
+    private File writeMetaTmp(String key, Properties meta) throws IOException {
+        File tmp = File.createTempFile(key, ".tmp", directory);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            meta.store(out, null);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        return tmp;
+    }
+}
@@ -0,0 +1,18 @@
+package com.riyadhtransport.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets identical in-flight calls of a method share one request, see
+ * {@link SingleFlightCallAdapterFactory}. Every caller receives the same
+ * result object, so only use it on methods whose result type is immutable.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+}
@@ -0,0 +1,152 @@
+package com.riyadhtransport.api;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Ties Retrofit calls to a lifecycle owner. The call is cancelled when the
+ * owner is destroyed and its callback is never invoked afterwards, so
+ * callbacks can safely use requireContext() and views.
+ *
+ * Must be used from the main thread, like Retrofit's default callbacks.
+ */
+public class LifecycleCalls {
+
+    private static final AtomicLong cancelledCalls = new AtomicLong();
+    private static final AtomicLong avoidedBytes = new AtomicLong();
+
+    public static <T> void enqueue(@NonNull LifecycleOwner owner, @NonNull Call<T> call,
+                                   @NonNull Callback<T> callback) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+
+        BoundCallback<T> bound = new BoundCallback<>(lifecycle, call, callback);
+        lifecycle.addObserver(bound);
+        call.enqueue(bound);
+    }
+
+    /**
+     * Calls cancelled before their response was handled; each one is a parse avoided
+     */
+    public static long getCancelledCount() {
+        return cancelledCalls.get();
+    }
+
+    /**
+     * Estimated response bytes not downloaded, based on each endpoint's average response size
+     */
+    public static long getAvoidedBytes() {
+        return avoidedBytes.get();
+    }
+
+    static void recordCancelled(Call<?> call) {
+        cancelledCalls.incrementAndGet();
+        Request request = call.request();
+        NetworkMetrics.Endpoint endpoint =
+                NetworkMetrics.endpoint(request.method(), request.url().encodedPath());
+        long calls = endpoint.getCallCount();
+        if (calls > 0) {
+            avoidedBytes.addAndGet(endpoint.getResponseBytes() / calls);
+        }
+    }
+
+    /**
+     * Holds at most one running call, starting a new one cancels the previous.
+     * Used for search-as-you-type where only the latest query matters.
+     */
+    public static class Latest {
+        private Call<?> current;
+
+        public <T> void enqueue(@NonNull LifecycleOwner owner, @NonNull Call<T> call,
+                                @NonNull Callback<T> callback) {
+            cancel();
+            current = call;
+            LifecycleCalls.enqueue(owner, call, new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> c, @NonNull Response<T> response) {
+                    if (current == call) {
+                        current = null;
+                    }
+                    callback.onResponse(c, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> c, @NonNull Throwable t) {
+                    if (current == call) {
+                        current = null;
+                    }
+                    callback.onFailure(c, t);
+                }
+            });
+        }
+
+        public void cancel() {
+            if (current != null && !current.isCanceled()) {
+                recordCancelled(current);
+                current.cancel();
+            }
+            current = null;
+        }
+    }
+
+    private static final class BoundCallback<T> implements Callback<T>, LifecycleEventObserver {
+        private final Lifecycle lifecycle;
+        private final Call<T> call;
+        private Callback<T> callback;
+
+        BoundCallback(Lifecycle lifecycle, Call<T> call, Callback<T> callback) {
+            this.lifecycle = lifecycle;
+            this.call = call;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                lifecycle.removeObserver(this);
+                if (callback != null) {
+                    callback = null;
+                    if (!call.isCanceled()) {
+                        recordCancelled(call);
+                        call.cancel();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            Callback<T> target = detach();
+            if (target != null) {
+                target.onResponse(call, response);
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            Callback<T> target = detach();
+            if (target != null && !call.isCanceled()) {
+                target.onFailure(call, t);
+            }
+        }
+
+        private Callback<T> detach() {
+            lifecycle.removeObserver(this);
+            Callback<T> target = callback;
+            callback = null;
+            if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                return null;
+            }
+            return target;
+        }
+    }
+}
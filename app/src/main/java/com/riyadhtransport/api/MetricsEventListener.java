@@ -0,0 +1,122 @@
+package com.riyadhtransport.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Times the phases of each OkHttp call and records them in {@link NetworkMetrics}.
+ * One listener is created per call, so the fields need no synchronization.
+ */
+public class MetricsEventListener extends EventListener {
+
+    public static final EventListener.Factory FACTORY = call -> new MetricsEventListener();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long dnsMillis = -1;
+    private long connectMillis = -1;
+    private long ttfbMillis = -1;
+    private int statusCode;
+    private long responseBytes;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        dnsMillis = elapsedMillis(dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        // Includes the TLS handshake for https hosts
+        connectMillis = elapsedMillis(connectStart);
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        if (ttfbMillis < 0) {
+            ttfbMillis = elapsedMillis(callStart);
+        }
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        statusCode = response.code();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        responseBytes += byteCount;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        if (statusCode == 0) {
+            // Answered without touching the network (catalog cache)
+            return;
+        }
+        NetworkMetrics.Endpoint endpoint = endpointOf(call);
+        recordPhases(endpoint);
+        endpoint.recordResponse(statusCode, responseBytes);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        if (call.isCanceled()) {
+            // Dropped on purpose (losing hedge, closed screen), not a network failure
+            return;
+        }
+        NetworkMetrics.Endpoint endpoint = endpointOf(call);
+        recordPhases(endpoint);
+        endpoint.recordFailure();
+    }
+
+    private void recordPhases(NetworkMetrics.Endpoint endpoint) {
+        if (dnsMillis >= 0) {
+            endpoint.recordPhase(NetworkMetrics.PHASE_DNS, dnsMillis);
+        }
+        if (connectMillis >= 0) {
+            endpoint.recordPhase(NetworkMetrics.PHASE_CONNECT, connectMillis);
+        }
+        if (ttfbMillis >= 0) {
+            endpoint.recordPhase(NetworkMetrics.PHASE_TTFB, ttfbMillis);
+        }
+        endpoint.recordPhase(NetworkMetrics.PHASE_TOTAL, elapsedMillis(callStart));
+    }
+
+    private static NetworkMetrics.Endpoint endpointOf(Call call) {
+        Request request = call.request();
+        return NetworkMetrics.endpoint(request.method(), request.url().encodedPath());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
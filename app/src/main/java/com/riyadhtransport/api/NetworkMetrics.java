@@ -0,0 +1,171 @@
+package com.riyadhtransport.api;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory per-endpoint network statistics. Recording only touches atomic
+ * counters, so it is safe to call from any OkHttp thread without locking.
+ */
+public class NetworkMetrics {
+
+    private static final String TAG = "NetworkMetrics";
+
+    public static final int PHASE_DNS = 0;
+    public static final int PHASE_CONNECT = 1;
+    public static final int PHASE_TTFB = 2;
+    public static final int PHASE_TOTAL = 3;
+    private static final String[] PHASE_NAMES = {"dns", "connect", "ttfb", "total"};
+
+    // Upper bounds of the histogram buckets in milliseconds, the last bucket is open-ended
+    private static final long[] BUCKET_BOUNDS_MS = {
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000
+    };
+
+    private static final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public static Endpoint endpoint(String method, String path) {
+        String key = method + " " + path;
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            endpoint = new Endpoint();
+            Endpoint existing = endpoints.putIfAbsent(key, endpoint);
+            if (existing != null) {
+                endpoint = existing;
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * Copy of the current statistics, ordered by endpoint, for before/after comparisons
+     */
+    public static Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().toString());
+        }
+        return snapshot;
+    }
+
+    public static void dump() {
+        for (Map.Entry<String, String> entry : snapshot().entrySet()) {
+            Log.i(TAG, entry.getKey() + " " + entry.getValue());
+        }
+    }
+
+    public static void reset() {
+        endpoints.clear();
+    }
+
+    public static class Endpoint {
+        private final AtomicLongArray[] histograms = new AtomicLongArray[PHASE_NAMES.length];
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        // Response counts by status class: 1xx..5xx
+        private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+
+        Endpoint() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+            }
+        }
+
+        public void recordPhase(int phase, long millis) {
+            histograms[phase].incrementAndGet(bucketFor(millis));
+        }
+
+        public void recordResponse(int statusCode, long bytes) {
+            calls.increment();
+            if (bytes > 0) {
+                responseBytes.add(bytes);
+            }
+            int statusClass = statusCode / 100;
+            if (statusClass > 0 && statusClass < 6) {
+                statusClasses.incrementAndGet(statusClass);
+            }
+        }
+
+        public void recordFailure() {
+            calls.increment();
+            failures.increment();
+        }
+
+        public long getCallCount() {
+            return calls.sum();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        /**
+         * Approximate percentile of a phase in milliseconds (upper bound of the
+         * bucket holding it), or -1 when nothing was recorded yet
+         */
+        public long percentile(int phase, double quantile) {
+            AtomicLongArray histogram = histograms[phase];
+            long total = 0;
+            for (int i = 0; i < histogram.length(); i++) {
+                total += histogram.get(i);
+            }
+            if (total == 0) {
+                return -1;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < histogram.length(); i++) {
+                seen += histogram.get(i);
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length
+                            ? BUCKET_BOUNDS_MS[i]
+                            : BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1];
+                }
+            }
+            return BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1];
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            long count = getCallCount();
+            sb.append("calls=").append(count)
+                    .append(" failures=").append(failures.sum())
+                    .append(" bytes=").append(getResponseBytes());
+            for (int statusClass = 1; statusClass < 6; statusClass++) {
+                long n = statusClasses.get(statusClass);
+                if (n > 0) {
+                    sb.append(' ').append(statusClass).append("xx=").append(n);
+                }
+            }
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                long p50 = percentile(phase, 0.5);
+                if (p50 < 0) {
+                    continue;
+                }
+                sb.append(' ').append(PHASE_NAMES[phase])
+                        .append("[p50<=").append(p50)
+                        .append(" p95<=").append(percentile(phase, 0.95))
+                        .append(" p99<=").append(percentile(phase, 0.99))
+                        .append("ms]");
+            }
+            return sb.toString();
+        }
+    }
+
+    private static int bucketFor(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+}
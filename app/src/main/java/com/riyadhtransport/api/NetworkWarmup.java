@@ -0,0 +1,151 @@
+package com.riyadhtransport.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Pays for DNS, TCP and TLS setup at launch instead of on the first request.
+ * The backend host is resolved through the shared {@link CachingDns} and a
+ * HEAD request leaves an idle keep-alive connection in the shared pool. Map
+ * tiles are downloaded by osmdroid over HttpURLConnection, so MapTiler is
+ * warmed through that connection pool instead.
+ *
+ * Nominatim is a public service with a strict usage policy and most launches
+ * never search a place, so it is only warmed once the search screen opens,
+ * see {@link #warmSearch(Context)}.
+ *
+ * Can be switched off (preference "network_warmup") to measure the difference,
+ * the time to the first route of the process is logged either way.
+ */
+public class NetworkWarmup {
+
+    private static final String TAG = "NetworkWarmup";
+    private static final String PREFS_NAME = "network_warmup";
+    private static final String PREF_ENABLED = "network_warmup";
+    private static final String MAPTILER_URL = "https://api.maptiler.com/";
+
+    private static final AtomicBoolean started = new AtomicBoolean();
+    private static final AtomicBoolean searchStarted = new AtomicBoolean();
+    private static final AtomicBoolean firstRouteRecorded = new AtomicBoolean();
+    private static volatile boolean warmedUp;
+
+    /**
+     * Starts the warm-up once per process, returns immediately
+     */
+    public static void start(Context context) {
+        if (!isEnabled(context) || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(NetworkWarmup::warmUp, "network-warmup");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Warms Nominatim once per process, for the search screen to call when it
+     * opens; the user types for a while before the first query goes out
+     */
+    public static void warmSearch(Context context) {
+        if (!isEnabled(context) || !searchStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(NetworkWarmup::warmUpNominatim, "search-warmup");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    public static boolean isEnabled(Context context) {
+        return preferences(context).getBoolean(PREF_ENABLED, true);
+    }
+
+    public static void setEnabled(Context context, boolean enabled) {
+        preferences(context).edit().putBoolean(PREF_ENABLED, enabled).apply();
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Logs the first route of the process: how long the request took and how
+     * long after process start it arrived
+     */
+    public static void recordFirstRoute(long requestMillis) {
+        if (!firstRouteRecorded.compareAndSet(false, true)) {
+            return;
+        }
+        long sinceStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        CachingDns dns = ApiClient.getDns();
+        Log.i(TAG, "First route: request=" + requestMillis + "ms sinceStart=" + sinceStart + "ms"
+                + " warmup=" + (started.get() ? (warmedUp ? "done" : "running") : "off")
+                + " dnsHits=" + dns.getHitCount() + " dnsMisses=" + dns.getMissCount());
+    }
+
+    private static void warmUp() {
+        long start = SystemClock.elapsedRealtime();
+        HttpUrl backend = HttpUrl.get(ApiClient.getBaseUrl());
+        HttpUrl maptiler = HttpUrl.get(MAPTILER_URL);
+
+        CachingDns dns = ApiClient.getDns();
+        dns.prefetch(backend.host());
+        // Only warms the system resolver, osmdroid does not use our Dns
+        dns.prefetch(maptiler.host());
+
+        // The base client shares pool, dispatcher and Dns with the Retrofit clients,
+        // so connections opened here are reused by their first calls
+        OkHttpClient client = ApiClient.getHttpClient();
+        openConnection(client, new Request.Builder().url(backend).head().build());
+        openPlatformConnection(MAPTILER_URL);
+
+        warmedUp = true;
+        Log.i(TAG, "Warm-up finished in " + (SystemClock.elapsedRealtime() - start) + "ms");
+    }
+
+    private static void warmUpNominatim() {
+        HttpUrl nominatim = HttpUrl.get(ApiClient.getNominatimUrl());
+        ApiClient.getDns().prefetch(nominatim.host());
+        openConnection(ApiClient.getHttpClient(), new Request.Builder().url(nominatim).head()
+                .header("User-Agent", "RiyadhTransportApp/1.0")
+                .build());
+    }
+
+    private static void openConnection(OkHttpClient client, Request request) {
+        // Closing the response hands the connection back to the pool
+        try (Response ignored = client.newCall(request).execute()) {
+            Log.d(TAG, "Pre-connected to " + request.url().host());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not pre-connect to " + request.url().host(), e);
+        }
+    }
+
+    private static void openPlatformConnection(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("HEAD");
+            int code = connection.getResponseCode();
+            InputStream body = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                // Closing the stream, not disconnect(), keeps the socket for reuse
+                body.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not pre-connect to " + url, e);
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
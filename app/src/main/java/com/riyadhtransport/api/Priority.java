@@ -0,0 +1,18 @@
+package com.riyadhtransport.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Scheduling class of a service method, see {@link PriorityCallAdapterFactory}.
+ * Methods without it are scheduled as {@link CallPriority#VISIBLE}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Priority {
+    CallPriority value();
+}
@@ -0,0 +1,331 @@
+package com.riyadhtransport.api;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Admits enqueued calls by {@link CallPriority} so a route search never waits
+ * behind catalog downloads. Interactive calls start immediately. Visible calls
+ * are capped, more tightly while interactive calls run, and background calls
+ * are held back while anything of a higher class is running or queued. A call
+ * that has been deferred for too long is let through anyway so nothing starves.
+ */
+public class PriorityCallAdapterFactory extends CallAdapter.Factory {
+
+    private static final String TAG = "CallScheduler";
+
+    private static final int MAX_VISIBLE = 4;
+    private static final int MAX_VISIBLE_WHILE_INTERACTIVE = 1;
+    private static final int MAX_BACKGROUND = 2;
+    private static final long MAX_DEFER_MILLIS = 5000;
+
+    private static final int CLASSES = CallPriority.values().length;
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<ScheduledCall<?>>[] queues = new ArrayDeque[CLASSES];
+    private final int[] running = new int[CLASSES];
+
+    private final ScheduledExecutorService agingTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "api-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong[] admitted = new AtomicLong[CLASSES];
+    private final AtomicLong[] totalWaitMillis = new AtomicLong[CLASSES];
+    private final AtomicLong[] maxWaitMillis = new AtomicLong[CLASSES];
+
+    public PriorityCallAdapterFactory() {
+        for (int i = 0; i < CLASSES; i++) {
+            queues[i] = new ArrayDeque<>();
+            admitted[i] = new AtomicLong();
+            totalWaitMillis[i] = new AtomicLong();
+            maxWaitMillis[i] = new AtomicLong();
+        }
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        CallPriority priority = CallPriority.VISIBLE;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Priority) {
+                priority = ((Priority) annotation).value();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        CallAdapter<Object, Call<Object>> delegate = (CallAdapter<Object, Call<Object>>)
+                retrofit.nextCallAdapter(this, returnType, annotations);
+        CallPriority callPriority = priority;
+
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new ScheduledCall<>(delegate.adapt(call), callPriority);
+            }
+        };
+    }
+
+    /**
+     * Average queue wait in milliseconds for a class, or 0 when nothing was admitted yet
+     */
+    public long getAverageWaitMillis(CallPriority priority) {
+        long count = admitted[priority.ordinal()].get();
+        return count == 0 ? 0 : totalWaitMillis[priority.ordinal()].get() / count;
+    }
+
+    public long getMaxWaitMillis(CallPriority priority) {
+        return maxWaitMillis[priority.ordinal()].get();
+    }
+
+    public void dump() {
+        for (CallPriority priority : CallPriority.values()) {
+            Log.i(TAG, priority + " admitted=" + admitted[priority.ordinal()].get()
+                    + " avgWait=" + getAverageWaitMillis(priority) + "ms"
+                    + " maxWait=" + getMaxWaitMillis(priority) + "ms");
+        }
+    }
+
+    private boolean canStart(CallPriority priority, long now, long enqueuedAt) {
+        int interactive = running[CallPriority.INTERACTIVE.ordinal()];
+        int visible = running[CallPriority.VISIBLE.ordinal()];
+        int background = running[CallPriority.BACKGROUND.ordinal()];
+        switch (priority) {
+            case INTERACTIVE:
+                return true;
+            case VISIBLE:
+                if (now - enqueuedAt >= MAX_DEFER_MILLIS && visible == 0) {
+                    return true;
+                }
+                return visible < (interactive > 0 ? MAX_VISIBLE_WHILE_INTERACTIVE : MAX_VISIBLE);
+            default:
+                if (now - enqueuedAt >= MAX_DEFER_MILLIS && background == 0) {
+                    return true;
+                }
+                boolean higherPending = interactive > 0 || visible > 0
+                        || !queues[CallPriority.INTERACTIVE.ordinal()].isEmpty()
+                        || !queues[CallPriority.VISIBLE.ordinal()].isEmpty();
+                return !higherPending && background < MAX_BACKGROUND;
+        }
+    }
+
+    private void submit(ScheduledCall<?> call) {
+        boolean start;
+        synchronized (this) {
+            int index = call.priority.ordinal();
+            start = queues[index].isEmpty() && canStart(call.priority, call.enqueuedAt, call.enqueuedAt);
+            if (start) {
+                running[index]++;
+                call.started = true;
+            } else {
+                queues[index].addLast(call);
+            }
+        }
+        if (start) {
+            call.start();
+        } else {
+            // Re-check once the call has waited long enough to bypass the caps
+            agingTimer.schedule(this::promote, MAX_DEFER_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Frees the slot of a started call. Both cancel() and the call's own
+     * callback end up here, only the first one counts.
+     */
+    private void finished(ScheduledCall<?> call) {
+        synchronized (this) {
+            if (!call.started || call.released) {
+                return;
+            }
+            call.released = true;
+            running[call.priority.ordinal()]--;
+        }
+        promote();
+    }
+
+    private void promote() {
+        while (true) {
+            ScheduledCall<?> next = null;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < CLASSES && next == null; i++) {
+                    ScheduledCall<?> head = queues[i].peekFirst();
+                    if (head != null && canStart(head.priority, now, head.enqueuedAt)) {
+                        next = queues[i].pollFirst();
+                        running[i]++;
+                        next.started = true;
+                    }
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            next.start();
+        }
+    }
+
+    private synchronized boolean dequeue(ScheduledCall<?> call) {
+        return queues[call.priority.ordinal()].remove(call);
+    }
+
+    private void recordWait(CallPriority priority, long waitMillis) {
+        int index = priority.ordinal();
+        admitted[index].incrementAndGet();
+        totalWaitMillis[index].addAndGet(waitMillis);
+        long max;
+        do {
+            max = maxWaitMillis[index].get();
+        } while (waitMillis > max && !maxWaitMillis[index].compareAndSet(max, waitMillis));
+    }
+
+    private final class ScheduledCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        private final CallPriority priority;
+        // Taken by whichever of the response, the failure or cancel() comes first
+        private final AtomicReference<Callback<T>> callback = new AtomicReference<>();
+        private long enqueuedAt;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+        // Guarded by the factory: holds a running slot from start until released
+        private boolean started;
+        private boolean released;
+
+        ScheduledCall(Call<T> delegate, CallPriority priority) {
+            this.delegate = delegate;
+            this.priority = priority;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+            }
+            this.callback.set(callback);
+            enqueuedAt = System.currentTimeMillis();
+            submit(this);
+        }
+
+        void start() {
+            recordWait(priority, System.currentTimeMillis() - enqueuedAt);
+            if (canceled) {
+                finished(this);
+                failCanceled();
+                return;
+            }
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    finished(ScheduledCall.this);
+                    Callback<T> target = callback.getAndSet(null);
+                    if (target != null) {
+                        target.onResponse(ScheduledCall.this, response);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    finished(ScheduledCall.this);
+                    Callback<T> target = callback.getAndSet(null);
+                    if (target != null) {
+                        target.onFailure(ScheduledCall.this, t);
+                    }
+                }
+            });
+        }
+
+        private void failCanceled() {
+            Callback<T> target = callback.getAndSet(null);
+            if (target != null) {
+                target.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            // Synchronous calls already block their own thread, they bypass the queues
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+            }
+            return delegate.execute();
+        }
+
+        /**
+         * A queued call leaves its queue, a started one gives its slot back
+         * right away instead of when the delegate gets round to failing.
+         * Either way the caller gets one onFailure.
+         */
+        @Override
+        public void cancel() {
+            canceled = true;
+            if (dequeue(this)) {
+                promote();
+            } else {
+                finished(this);
+                delegate.cancel();
+            }
+            failCanceled();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new ScheduledCall<>(delegate.clone(), priority);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.riyadhtransport.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Turns responses into ready-to-bind UI models off the main thread. The
+ * transform (walking the response, building lists and indexes) runs on one
+ * background thread, so results are delivered in submission order, and only
+ * the receiver runs on the main thread. Nothing is delivered once the owner is
+ * destroyed.
+ *
+ * Main-thread time of each stage (the Retrofit callback hop plus the
+ * receiver) is recorded per stage name, see {@link #snapshot()}.
+ *
+ * Must be used from the main thread, like {@link LifecycleCalls}.
+ */
+public class ResponsePipeline {
+
+    private static final String TAG = "ResponsePipeline";
+
+    // Longer than this on the main thread risks a dropped frame and is logged
+    private static final long SLOW_MAIN_THREAD_NANOS = 8_000_000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "response-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final ConcurrentHashMap<String, Stage> stages = new ConcurrentHashMap<>();
+
+    public interface Transform<T, R> {
+        R apply(T input) throws Exception;
+    }
+
+    public interface Receiver<R> {
+        void onResult(R result);
+
+        /**
+         * The call failed, the server answered with an error ({@link HttpException})
+         * or the transform threw
+         */
+        void onError(@NonNull Throwable error);
+    }
+
+    /**
+     * Enqueues the call bound to the owner and transforms a successful body
+     */
+    public static <T, R> void enqueue(@NonNull LifecycleOwner owner, @NonNull String name,
+                                      @NonNull Call<T> call, @NonNull Transform<T, R> transform,
+                                      @NonNull Receiver<R> receiver) {
+        LifecycleCalls.enqueue(owner, call, new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> c, @NonNull Response<T> response) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                T body = response.body();
+                if (response.isSuccessful() && body != null) {
+                    submit(owner, name, body, transform, receiver);
+                } else {
+                    receiver.onError(new HttpException(response));
+                }
+                stage(name).recordMain(SystemClock.elapsedRealtimeNanos() - start);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> c, @NonNull Throwable t) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                receiver.onError(t);
+                stage(name).recordMain(SystemClock.elapsedRealtimeNanos() - start);
+            }
+        });
+    }
+
+    /**
+     * Transforms data that is already at hand, e.g. a repository value
+     */
+    public static <T, R> void submit(@NonNull LifecycleOwner owner, @NonNull String name, T input,
+                                     @NonNull Transform<T, R> transform, @NonNull Receiver<R> receiver) {
+        Stage stage = stage(name);
+        executor.execute(() -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            R result;
+            Throwable error = null;
+            try {
+                result = transform.apply(input);
+            } catch (Exception e) {
+                result = null;
+                error = e;
+            }
+            stage.recordBackground(SystemClock.elapsedRealtimeNanos() - start);
+
+            R ready = result;
+            Throwable failure = error;
+            mainHandler.post(() -> {
+                if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                    return;
+                }
+                long mainStart = SystemClock.elapsedRealtimeNanos();
+                if (failure != null) {
+                    receiver.onError(failure);
+                } else {
+                    receiver.onResult(ready);
+                }
+                long mainNanos = SystemClock.elapsedRealtimeNanos() - mainStart;
+                stage.recordMain(mainNanos);
+                if (mainNanos > SLOW_MAIN_THREAD_NANOS) {
+                    Log.w(TAG, String.format(Locale.US, "%s held the main thread for %.1fms",
+                            name, mainNanos / 1e6));
+                }
+            });
+        });
+    }
+
+    /**
+     * Per-stage statistics, ordered by name
+     */
+    public static Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().toString());
+        }
+        return snapshot;
+    }
+
+    public static void reset() {
+        stages.clear();
+    }
+
+    private static Stage stage(String name) {
+        Stage stage = stages.get(name);
+        if (stage == null) {
+            stage = new Stage();
+            Stage existing = stages.putIfAbsent(name, stage);
+            if (existing != null) {
+                stage = existing;
+            }
+        }
+        return stage;
+    }
+
+    private static final class Stage {
+        private final LongAdder results = new LongAdder();
+        private final LongAdder backgroundNanos = new LongAdder();
+        private final LongAdder mainCalls = new LongAdder();
+        private final LongAdder mainNanos = new LongAdder();
+        private final AtomicLong maxMainNanos = new AtomicLong();
+
+        void recordBackground(long nanos) {
+            results.increment();
+            backgroundNanos.add(nanos);
+        }
+
+        void recordMain(long nanos) {
+            mainCalls.increment();
+            mainNanos.add(nanos);
+            long max;
+            do {
+                max = maxMainNanos.get();
+            } while (nanos > max && !maxMainNanos.compareAndSet(max, nanos));
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            long transforms = results.sum();
+            long calls = mainCalls.sum();
+            return String.format(Locale.US, "n=%d background=%.2fms main=%.2fms main_max=%.2fms",
+                    transforms, backgroundNanos.sum() / 1e6 / Math.max(1, transforms),
+                    mainNanos.sum() / 1e6 / Math.max(1, calls), maxMainNanos.get() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.riyadhtransport.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an idempotent endpoint whose calls may be retried with exponential
+ * backoff and, when {@link #hedge()} is set, duplicated once the call has
+ * been running longer than the endpoint's observed p95 latency.
+ * Handled by {@link RetryCallAdapterFactory}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Retry {
+
+    int maxAttempts() default 3;
+
+    long initialBackoffMillis() default 500;
+
+    // Per-attempt limit in seconds, 0 keeps the client's own timeouts
+    int attemptTimeoutSeconds() default 0;
+
+    boolean hedge() default false;
+}
@@ -0,0 +1,316 @@
+package com.riyadhtransport.api;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Applies the {@link Retry} policy to annotated service methods.
+ *
+ * Failed attempts (I/O errors, 408, 429 and 5xx responses) are retried after an
+ * exponential backoff with jitter. Hedged endpoints also start a duplicate
+ * attempt once the first one has been running for longer than the p95 total
+ * latency recorded in {@link NetworkMetrics}; the first usable response wins and
+ * the other attempt is cancelled.
+ */
+public class RetryCallAdapterFactory extends CallAdapter.Factory {
+
+    private static final long MAX_BACKOFF_MILLIS = 8000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "api-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        Retry retry = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Retry) {
+                retry = (Retry) annotation;
+            }
+        }
+        if (retry == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        CallAdapter<Object, Call<Object>> delegate = (CallAdapter<Object, Call<Object>>)
+                retrofit.nextCallAdapter(this, returnType, annotations);
+        Retry policy = retry;
+
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new RetryingCall<>(delegate.adapt(call), policy);
+            }
+        };
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    private static long backoffMillis(Retry policy, int failedAttempts) {
+        long backoff = policy.initialBackoffMillis() << Math.min(failedAttempts - 1, 10);
+        backoff = Math.min(backoff, MAX_BACKOFF_MILLIS);
+        // Jitter spreads retries from many clients over the second half of the window
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private final class RetryingCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        private final Retry policy;
+        private final List<Call<T>> running = new ArrayList<>();
+        private Callback<T> callback;
+        private ScheduledFuture<?> pending;
+        private int attempts;
+        private int failures;
+        private boolean executed;
+        private boolean done;
+        private volatile boolean canceled;
+
+        RetryingCall(Call<T> delegate, Retry policy) {
+            this.delegate = delegate;
+            this.policy = policy;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                this.callback = callback;
+            }
+            startAttempt();
+        }
+
+        private void startAttempt() {
+            Call<T> attempt;
+            synchronized (this) {
+                if (done || canceled || attempts >= policy.maxAttempts()) {
+                    return;
+                }
+                attempt = attempts == 0 ? delegate : delegate.clone();
+                attempts++;
+                running.add(attempt);
+                if (policy.hedge() && running.size() == 1 && attempts < policy.maxAttempts()) {
+                    scheduleHedge();
+                }
+            }
+            if (policy.attemptTimeoutSeconds() > 0) {
+                attempt.timeout().timeout(policy.attemptTimeoutSeconds(), TimeUnit.SECONDS);
+            }
+            attempt.enqueue(new AttemptCallback(attempt));
+        }
+
+        private void scheduleHedge() {
+            Request request = delegate.request();
+            long p95 = NetworkMetrics.endpoint(request.method(), request.url().encodedPath())
+                    .percentile(NetworkMetrics.PHASE_TOTAL, 0.95);
+            if (p95 < 0) {
+                // No latency history for this endpoint yet
+                return;
+            }
+            pending = scheduler.schedule(this::startAttempt, p95, TimeUnit.MILLISECONDS);
+        }
+
+        private final class AttemptCallback implements Callback<T> {
+            private final Call<T> attempt;
+
+            AttemptCallback(Call<T> attempt) {
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                if (isRetryable(response.code())) {
+                    onAttemptFailed(attempt, target -> target.onResponse(RetryingCall.this, response));
+                } else {
+                    onAttemptSucceeded(attempt, target -> target.onResponse(RetryingCall.this, response));
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                onAttemptFailed(attempt, target -> target.onFailure(RetryingCall.this, t));
+            }
+        }
+
+        private void onAttemptSucceeded(Call<T> winner, Consumer<Callback<T>> deliver) {
+            List<Call<T>> losers;
+            Callback<T> target;
+            synchronized (this) {
+                if (done || canceled) {
+                    return;
+                }
+                done = true;
+                running.remove(winner);
+                losers = new ArrayList<>(running);
+                running.clear();
+                cancelPending();
+                target = callback;
+            }
+            for (Call<T> loser : losers) {
+                loser.cancel();
+            }
+            deliver.accept(target);
+        }
+
+        private void onAttemptFailed(Call<T> attempt, Consumer<Callback<T>> deliver) {
+            Callback<T> target;
+            synchronized (this) {
+                running.remove(attempt);
+                if (done || canceled) {
+                    return;
+                }
+                failures++;
+                if (!running.isEmpty()) {
+                    // A hedged attempt is still in flight, let it finish
+                    return;
+                }
+                if (attempts < policy.maxAttempts()) {
+                    cancelPending();
+                    pending = scheduler.schedule(this::startAttempt,
+                            backoffMillis(policy, failures), TimeUnit.MILLISECONDS);
+                    return;
+                }
+                done = true;
+                target = callback;
+            }
+            deliver.accept(target);
+        }
+
+        private void cancelPending() {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+            }
+            Call<T> attempt = delegate;
+            int failed = 0;
+            while (true) {
+                if (policy.attemptTimeoutSeconds() > 0) {
+                    attempt.timeout().timeout(policy.attemptTimeoutSeconds(), TimeUnit.SECONDS);
+                }
+                try {
+                    Response<T> response = attempt.execute();
+                    if (!isRetryable(response.code()) || ++failed >= policy.maxAttempts()) {
+                        return response;
+                    }
+                } catch (IOException e) {
+                    if (canceled || ++failed >= policy.maxAttempts()) {
+                        throw e;
+                    }
+                }
+                try {
+                    Thread.sleep(backoffMillis(policy, failed));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while retrying", e);
+                }
+                if (canceled) {
+                    throw new IOException("Canceled");
+                }
+                attempt = delegate.clone();
+            }
+        }
+
+        /**
+         * Cancels every attempt and any pending retry. An enqueued call that has
+         * not completed yet gets exactly one onFailure, whether it was cancelled
+         * during an attempt or while waiting out a backoff; the attempts' own
+         * late callbacks are ignored.
+         */
+        @Override
+        public void cancel() {
+            List<Call<T>> attemptsToCancel;
+            Callback<T> target = null;
+            synchronized (this) {
+                canceled = true;
+                cancelPending();
+                attemptsToCancel = new ArrayList<>(running);
+                running.clear();
+                if (!done) {
+                    done = true;
+                    target = callback;
+                }
+                callback = null;
+            }
+            delegate.cancel();
+            for (Call<T> attempt : attemptsToCancel) {
+                attempt.cancel();
+            }
+            if (target != null) {
+                target.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new RetryingCall<>(delegate.clone(), policy);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.riyadhtransport.api;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Coalesces identical in-flight calls of methods marked {@link Coalesce}. A
+ * call enqueued while another one with the same method, URL and body is still
+ * running joins it instead of opening a new request.
+ *
+ * Every caller of a successful response receives the same body object, which
+ * is why only methods with immutable result types opt in; the others would let
+ * one screen's edits show up in another's data. An error body can only be read
+ * once, so it is buffered and each caller gets its own copy.
+ *
+ * Cancelling a call detaches it with one onFailure; the shared request is
+ * cancelled once no caller is waiting for it anymore.
+ */
+public class SingleFlightCallAdapterFactory extends CallAdapter.Factory {
+
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+    private final AtomicLong joinedCount = new AtomicLong();
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        boolean coalesce = false;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Coalesce) {
+                coalesce = true;
+            }
+        }
+        if (!coalesce) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        CallAdapter<Object, Call<Object>> delegate = (CallAdapter<Object, Call<Object>>)
+                retrofit.nextCallAdapter(this, returnType, annotations);
+
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new SingleFlightCall<>(delegate.adapt(call));
+            }
+        };
+    }
+
+    /**
+     * Number of calls that joined an already running request instead of opening their own
+     */
+    public long getJoinedCount() {
+        return joinedCount.get();
+    }
+
+    private static String flightKey(Request request) {
+        Buffer buffer = new Buffer();
+        buffer.writeUtf8(request.method()).writeUtf8(" ").writeUtf8(request.url().toString());
+        if (request.body() != null) {
+            buffer.writeUtf8("\n");
+            try {
+                request.body().writeTo(buffer);
+            } catch (IOException e) {
+                // Unreadable body, make the key unique so the call is never shared
+                buffer.writeUtf8(String.valueOf(System.identityHashCode(request)));
+            }
+        }
+        return buffer.md5().hex();
+    }
+
+    private final class Flight<T> implements Callback<T> {
+        final String key;
+        final Call<T> call;
+        final List<SingleFlightCall<T>> members = new ArrayList<>();
+
+        Flight(String key, Call<T> call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            List<SingleFlightCall<T>> waiting = finish();
+            ResponseBody errorBody = response.errorBody();
+            if (errorBody == null) {
+                for (SingleFlightCall<T> member : waiting) {
+                    Callback<T> callback = member.callback.getAndSet(null);
+                    if (callback != null) {
+                        callback.onResponse(member, response);
+                    }
+                }
+                return;
+            }
+
+            // Retrofit has already buffered the error body, this does not block
+            MediaType contentType = errorBody.contentType();
+            byte[] bytes;
+            try {
+                bytes = errorBody.bytes();
+            } catch (IOException e) {
+                fail(waiting, e);
+                return;
+            }
+            for (SingleFlightCall<T> member : waiting) {
+                Callback<T> callback = member.callback.getAndSet(null);
+                if (callback != null) {
+                    callback.onResponse(member, Response.error(
+                            ResponseBody.create(bytes, contentType), response.raw()));
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            fail(finish(), t);
+        }
+
+        private void fail(List<SingleFlightCall<T>> waiting, Throwable t) {
+            for (SingleFlightCall<T> member : waiting) {
+                Callback<T> callback = member.callback.getAndSet(null);
+                if (callback != null) {
+                    callback.onFailure(member, t);
+                }
+            }
+        }
+
+        private List<SingleFlightCall<T>> finish() {
+            synchronized (SingleFlightCallAdapterFactory.this) {
+                if (flights.get(key) == this) {
+                    flights.remove(key);
+                }
+                List<SingleFlightCall<T>> waiting = new ArrayList<>(members);
+                members.clear();
+                return waiting;
+            }
+        }
+    }
+
+    private final class SingleFlightCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        // Taken by whichever of the flight's result or cancel() comes first
+        private final AtomicReference<Callback<T>> callback = new AtomicReference<>();
+        private Flight<T> flight;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+
+        SingleFlightCall(Call<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            Flight<T> started = null;
+            synchronized (SingleFlightCallAdapterFactory.this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                if (canceled) {
+                    return;
+                }
+                this.callback.set(callback);
+
+                String key = flightKey(delegate.request());
+                @SuppressWarnings("unchecked")
+                Flight<T> existing = (Flight<T>) flights.get(key);
+                if (existing == null) {
+                    existing = new Flight<>(key, delegate);
+                    flights.put(key, existing);
+                    started = existing;
+                } else {
+                    joinedCount.incrementAndGet();
+                }
+                existing.members.add(this);
+                flight = existing;
+            }
+            if (started != null) {
+                started.call.enqueue(started);
+            }
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            synchronized (SingleFlightCallAdapterFactory.this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+            }
+            return delegate.execute();
+        }
+
+        @Override
+        public void cancel() {
+            Call<T> toCancel = delegate;
+            synchronized (SingleFlightCallAdapterFactory.this) {
+                canceled = true;
+                if (flight != null) {
+                    // Only cancel the shared request when nobody else is waiting for it
+                    flight.members.remove(this);
+                    toCancel = flight.members.isEmpty() ? flight.call : null;
+                    if (toCancel != null && flights.get(flight.key) == flight) {
+                        flights.remove(flight.key);
+                    }
+                    flight = null;
+                }
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+            // Also drops the reference, so a cancelled screen is not kept alive by the request
+            Callback<T> target = callback.getAndSet(null);
+            if (target != null) {
+                target.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new SingleFlightCall<>(delegate.clone());
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.riyadhtransport.api;
 
 import com.google.gson.JsonObject;
 import com.riyadhtransport.models.Arrival;
-import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.RouteResponse;
 import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationTable;
 
 import java.util.List;
 import java.util.Map;
@@ -15,33 +17,56 @@ import retrofit2.http.POST;
 
 public interface TransportApiService {
     
+    @Priority(CallPriority.BACKGROUND)
+    @Retry
+    @Coalesce
     @GET("api/stations")
-    Call<List<Station>> getStations();
+    Call<StationTable> getStations();
     
+    @Priority(CallPriority.VISIBLE)
+    @Retry
     @POST("nearbystations")
     Call<List<Station>> getNearbyStations(@Body Map<String, Object> coordinates);
     
+    @Priority(CallPriority.INTERACTIVE)
+    @Retry(maxAttempts = 3, attemptTimeoutSeconds = 15, hedge = true)
     @POST("route_from_coords")
-    Call<Map<String, Object>> findRouteFromCoordinates(@Body Map<String, Object> coordinates);
+    Call<RouteResponse> findRouteFromCoordinates(@Body Map<String, Object> coordinates);
     
+    @Priority(CallPriority.INTERACTIVE)
+    @Retry
     @POST("searchstation")
     Call<Map<String, Object>> searchStation(@Body Map<String, String> stationName);
     
+    @Priority(CallPriority.VISIBLE)
+    @Retry
     @POST("metro_arrivals")
     Call<Map<String, Object>> getMetroArrivals(@Body Map<String, String> stationName);
     
+    @Priority(CallPriority.VISIBLE)
+    @Retry
     @POST("bus_arrivals")
     Call<Map<String, Object>> getBusArrivals(@Body Map<String, String> stationName);
     
+    @Priority(CallPriority.BACKGROUND)
+    @Retry
     @GET("buslines")
     Call<JsonObject> getBusLines();
     
+    @Priority(CallPriority.BACKGROUND)
+    @Retry
     @GET("mtrlines")
     Call<JsonObject> getMetroLines();
     
+    @Priority(CallPriority.VISIBLE)
+    @Retry
+    @Coalesce
     @POST("viewbus")
-    Call<JsonObject> viewBus(@Body JsonObject lineNumber);
+    Call<LineDetails> viewBus(@Body JsonObject lineNumber);
     
+    @Priority(CallPriority.VISIBLE)
+    @Retry
+    @Coalesce
     @POST("viewmtr")
-    Call<JsonObject> viewMetro(@Body JsonObject lineNumber);
+    Call<LineDetails> viewMetro(@Body JsonObject lineNumber);
 }
@@ -0,0 +1,56 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.Arrival;
+import java.io.IOException;
+
+final class ArrivalTypeAdapter extends TypeAdapter<Arrival> {
+
+    @Override
+    public void write(JsonWriter out, Arrival arrival) throws IOException {
+        if (arrival == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (arrival.getLine() != null) {
+            out.name("line").value(arrival.getLine());
+        }
+        if (arrival.getDestination() != null) {
+            out.name("destination").value(arrival.getDestination());
+        }
+        out.name("minutes_until").value(arrival.getMinutesUntil());
+        out.endObject();
+    }
+
+    @Override
+    public Arrival read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Arrival arrival = new Arrival();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "line":
+                    arrival.setLine(JsonReaders.nextString(in));
+                    break;
+                case "destination":
+                    arrival.setDestination(JsonReaders.nextString(in));
+                    break;
+                case "minutes_until":
+                    arrival.setMinutesUntil(JsonReaders.nextInt(in, 0));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return arrival;
+    }
+}
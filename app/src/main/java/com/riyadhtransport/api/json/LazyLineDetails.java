@@ -0,0 +1,308 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.stream.JsonReader;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.StationNames;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Reads /viewmtr and /viewbus responses in one pass over the bytes that only
+ * records where each direction's station array starts and ends. A direction is
+ * decoded into {@link StationNames} ids the first time it is asked for, so
+ * picking one direction of a bus line never touches the other.
+ *
+ * The response bytes are kept until every direction has been decoded.
+ */
+public final class LazyLineDetails {
+
+    private LazyLineDetails() {
+    }
+
+    /**
+     * Serves {@link LineDetails} responses through {@link #read}; register it
+     * before the Gson converter
+     */
+    public static Converter.Factory converterFactory() {
+        return new Converter.Factory() {
+            @Override
+            public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                                    Retrofit retrofit) {
+                if (type != LineDetails.class) {
+                    return null;
+                }
+                return (Converter<ResponseBody, LineDetails>) body -> {
+                    try {
+                        return read(body.bytes());
+                    } finally {
+                        body.close();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Scans a UTF-8 line details object. Members that are not arrays are
+     * skipped, as {@link LineDetailsTypeAdapter} does.
+     */
+    public static LineDetails read(byte[] json) throws IOException {
+        Scanner scanner = new Scanner(json);
+        String[] directions = new String[2];
+        int[] bounds = new int[4];
+        int count = 0;
+
+        scanner.expect('{');
+        if (scanner.peek() == '}') {
+            scanner.position++;
+        } else {
+            while (true) {
+                String direction = scanner.string();
+                scanner.expect(':');
+                if (scanner.peek() == '[') {
+                    if (count == directions.length) {
+                        directions = Arrays.copyOf(directions, count * 2);
+                        bounds = Arrays.copyOf(bounds, count * 4);
+                    }
+                    directions[count] = direction;
+                    bounds[count * 2] = scanner.position;
+                    scanner.skipStationArray();
+                    bounds[count * 2 + 1] = scanner.position;
+                    count++;
+                } else {
+                    scanner.skipValue();
+                }
+                int next = scanner.next();
+                if (next == '}') {
+                    break;
+                } else if (next != ',') {
+                    throw scanner.error("Expected , or }");
+                }
+            }
+        }
+        scanner.expectEnd();
+
+        StationNames names = StationNames.get();
+        String[] canonical = new String[count];
+        for (int i = 0; i < count; i++) {
+            // Bus directions are named after a station
+            canonical[i] = names.canonical(directions[i]);
+        }
+        return new LineDetails(canonical, new Source(json, Arrays.copyOf(bounds, count * 2)));
+    }
+
+    /**
+     * The still undecoded bytes of each direction's array
+     */
+    static final class Source implements LineDetails.DirectionSource {
+        private final byte[] json;
+        // Start and end offset of each direction's array
+        private final int[] bounds;
+
+        Source(byte[] json, int[] bounds) {
+            this.json = json;
+            this.bounds = bounds;
+        }
+
+        @Override
+        public int[] read(int direction) {
+            int start = bounds[direction * 2];
+            try (JsonReader in = new JsonReader(new InputStreamReader(
+                    new ByteArrayInputStream(json, start, bounds[direction * 2 + 1] - start),
+                    StandardCharsets.UTF_8))) {
+                return LineDetailsTypeAdapter.readStationIds(in, StationNames.get());
+            } catch (IOException e) {
+                // The scan checked the array's shape, so this is a bug rather than bad input
+                throw new IllegalStateException("Cannot decode direction " + direction, e);
+            }
+        }
+
+        /**
+         * The direction's array as JSON text, for writing it back undecoded
+         */
+        String rawJson(int direction) {
+            int start = bounds[direction * 2];
+            return new String(json, start, bounds[direction * 2 + 1] - start, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Just enough of a JSON tokenizer to find value boundaries. Every byte of
+     * a multi-byte UTF-8 sequence is >= 0x80, so it never matches a token.
+     */
+    private static final class Scanner {
+        private final byte[] json;
+        int position;
+
+        Scanner(byte[] json) {
+            this.json = json;
+            // Skip a byte order mark
+            if (json.length >= 3 && (json[0] & 0xff) == 0xEF && (json[1] & 0xff) == 0xBB
+                    && (json[2] & 0xff) == 0xBF) {
+                position = 3;
+            }
+        }
+
+        int peek() throws IOException {
+            skipWhitespace();
+            if (position >= json.length) {
+                throw error("Unexpected end of input");
+            }
+            return json[position];
+        }
+
+        int next() throws IOException {
+            int c = peek();
+            position++;
+            return c;
+        }
+
+        void expect(char c) throws IOException {
+            if (next() != c) {
+                throw error("Expected " + c);
+            }
+        }
+
+        void expectEnd() throws IOException {
+            skipWhitespace();
+            if (position != json.length) {
+                throw error("Unexpected data after the object");
+            }
+        }
+
+        /**
+         * Reads a string, decoding escapes only when there are any
+         */
+        String string() throws IOException {
+            if (peek() != '"') {
+                throw error("Expected a string");
+            }
+            int start = position++;
+            boolean escaped = false;
+            while (true) {
+                if (position >= json.length) {
+                    throw error("Unterminated string");
+                }
+                byte b = json[position++];
+                if (b == '"') {
+                    break;
+                } else if (b == '\\') {
+                    escaped = true;
+                    position++;
+                }
+            }
+            if (!escaped) {
+                return new String(json, start + 1, position - start - 2, StandardCharsets.UTF_8);
+            }
+            String raw = new String(json, start, position - start, StandardCharsets.UTF_8);
+            try (JsonReader reader = new JsonReader(new StringReader(raw))) {
+                return reader.nextString();
+            }
+        }
+
+        /**
+         * Skips an array of strings, numbers or nulls, the only shape a
+         * direction decodes from
+         */
+        void skipStationArray() throws IOException {
+            expect('[');
+            if (peek() == ']') {
+                position++;
+                return;
+            }
+            while (true) {
+                if (peek() == '"') {
+                    skipString();
+                } else {
+                    skipLiteral();
+                }
+                int next = next();
+                if (next == ']') {
+                    return;
+                } else if (next != ',') {
+                    throw error("Expected , or ]");
+                }
+            }
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                skipString();
+            } else if (c == '[' || c == '{') {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (c == '[' || c == '{') {
+                        depth++;
+                    } else if (c == ']' || c == '}') {
+                        depth--;
+                    }
+                    position++;
+                } while (depth > 0);
+            } else {
+                skipLiteral();
+            }
+        }
+
+        /**
+         * Number, true, false or null
+         */
+        private void skipLiteral() throws IOException {
+            int start = position;
+            while (position < json.length && isLiteral(json[position])) {
+                position++;
+            }
+            if (position == start) {
+                throw error("Unexpected character");
+            }
+        }
+
+        private void skipString() throws IOException {
+            position++;
+            while (true) {
+                if (position >= json.length) {
+                    throw error("Unterminated string");
+                }
+                byte b = json[position++];
+                if (b == '"') {
+                    return;
+                } else if (b == '\\') {
+                    position++;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length) {
+                byte b = json[position];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private static boolean isLiteral(byte b) {
+            return b >= '0' && b <= '9' || b >= 'a' && b <= 'z' || b == '-' || b == '+' || b == '.'
+                    || b == 'E';
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " at byte " + position + " of line details");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.StationNames;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams /viewmtr and /viewbus responses into {@link LineDetails}, mapping
+ * every station name to its {@link StationNames} id as it is read, so no
+ * per-line copy of the names is kept.
+ */
+final class LineDetailsTypeAdapter extends TypeAdapter<LineDetails> {
+
+    @Override
+    public void write(JsonWriter out, LineDetails details) throws IOException {
+        if (details == null) {
+            out.nullValue();
+            return;
+        }
+        StationNames names = StationNames.get();
+        LineDetails.DirectionSource source = details.getSource();
+        out.beginObject();
+        for (int d = 0; d < details.getDirectionCount(); d++) {
+            if (source instanceof LazyLineDetails.Source && !details.isDecoded(d)) {
+                // Written back as received rather than decoded just for storage
+                out.name(details.getDirection(d)).jsonValue(((LazyLineDetails.Source) source).rawJson(d));
+                continue;
+            }
+            out.name(details.getDirection(d)).beginArray();
+            for (int id : details.getStationIds(d)) {
+                out.value(names.name(id));
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public LineDetails read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        StationNames names = StationNames.get();
+        List<String> directions = new ArrayList<>(2);
+        List<int[]> stationIds = new ArrayList<>(2);
+        in.beginObject();
+        while (in.hasNext()) {
+            String direction = in.nextName();
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                continue;
+            }
+            // Bus directions are named after a station
+            directions.add(names.canonical(direction));
+            stationIds.add(readStationIds(in, names));
+        }
+        in.endObject();
+        return new LineDetails(directions.toArray(new String[0]), stationIds.toArray(new int[0][]));
+    }
+
+    /**
+     * Reads one direction's array of station names as ids, skipping nulls
+     */
+    static int[] readStationIds(JsonReader in, StationNames names) throws IOException {
+        int[] buffer = new int[64];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            String station = JsonReaders.nextString(in);
+            if (station == null) {
+                continue;
+            }
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, count * 2);
+            }
+            buffer[count++] = names.intern(station);
+        }
+        in.endArray();
+        return Arrays.copyOf(buffer, count);
+    }
+}
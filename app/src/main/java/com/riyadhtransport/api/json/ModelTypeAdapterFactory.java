@@ -0,0 +1,62 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.NominatimResult;
+import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.RouteEndpoint;
+import com.riyadhtransport.models.RouteResponse;
+import com.riyadhtransport.models.RouteSegment;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationTable;
+
+/**
+ * Hand-written streaming adapters for the models exchanged with the backend
+ * and Nominatim, so parsing does not go through reflection. Unknown fields are
+ * skipped while streaming. Line and SearchResult are built in code only and
+ * keep the default handling.
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+
+    /**
+     * Shared Gson with the model adapters registered, use it instead of new Gson()
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Station.class) {
+            return (TypeAdapter<T>) new StationTypeAdapter();
+        } else if (rawType == StationTable.class) {
+            return (TypeAdapter<T>) new StationTableTypeAdapter();
+        } else if (rawType == RouteEndpoint.class) {
+            return (TypeAdapter<T>) new RouteEndpointTypeAdapter();
+        } else if (rawType == RouteSegment.class) {
+            return (TypeAdapter<T>) new RouteSegmentTypeAdapter(gson.getAdapter(RouteEndpoint.class));
+        } else if (rawType == Route.class) {
+            return (TypeAdapter<T>) new RouteTypeAdapter(gson.getAdapter(RouteSegment.class));
+        } else if (rawType == RouteResponse.class) {
+            return (TypeAdapter<T>) new RouteResponseTypeAdapter(gson.getAdapter(Route.class));
+        } else if (rawType == Arrival.class) {
+            return (TypeAdapter<T>) new ArrivalTypeAdapter();
+        } else if (rawType == LineDetails.class) {
+            return (TypeAdapter<T>) new LineDetailsTypeAdapter();
+        } else if (rawType == NominatimResult.class) {
+            return (TypeAdapter<T>) new NominatimResultTypeAdapter();
+        }
+        return null;
+    }
+}
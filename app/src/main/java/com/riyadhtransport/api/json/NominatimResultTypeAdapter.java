@@ -0,0 +1,76 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.NominatimResult;
+import java.io.IOException;
+
+/**
+ * Reads the few fields the app uses, Nominatim's bounding boxes, licence and
+ * OSM ids are skipped without being materialized
+ */
+final class NominatimResultTypeAdapter extends TypeAdapter<NominatimResult> {
+
+    @Override
+    public void write(JsonWriter out, NominatimResult result) throws IOException {
+        if (result == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("place_id").value(result.getPlaceId());
+        if (result.getDisplayName() != null) {
+            out.name("display_name").value(result.getDisplayName());
+        }
+        if (result.getLatitude() != null) {
+            out.name("lat").value(result.getLatitude());
+        }
+        if (result.getLongitude() != null) {
+            out.name("lon").value(result.getLongitude());
+        }
+        if (result.getType() != null) {
+            out.name("type").value(result.getType());
+        }
+        out.name("importance").value(result.getImportance());
+        out.endObject();
+    }
+
+    @Override
+    public NominatimResult read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        NominatimResult result = new NominatimResult();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "place_id":
+                    result.setPlaceId(JsonReaders.nextLong(in, 0));
+                    break;
+                case "display_name":
+                    result.setDisplayName(JsonReaders.nextString(in));
+                    break;
+                case "lat":
+                    result.setLatitude(JsonReaders.nextString(in));
+                    break;
+                case "lon":
+                    result.setLongitude(JsonReaders.nextString(in));
+                    break;
+                case "type":
+                    result.setType(JsonReaders.nextString(in));
+                    break;
+                case "importance":
+                    result.setImportance(JsonReaders.nextDouble(in, 0));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.RouteEndpoint;
+import java.io.IOException;
+
+/**
+ * A segment endpoint is a station name string or a {"lat", "lng"} object.
+ * Objects without both coordinates decode to null, like an absent endpoint.
+ */
+final class RouteEndpointTypeAdapter extends TypeAdapter<RouteEndpoint> {
+
+    @Override
+    public void write(JsonWriter out, RouteEndpoint endpoint) throws IOException {
+        if (endpoint == null) {
+            out.nullValue();
+        } else if (endpoint.isStation()) {
+            out.value(endpoint.getStationName());
+        } else {
+            out.beginObject();
+            out.name("lat").value(endpoint.getLatitude());
+            out.name("lng").value(endpoint.getLongitude());
+            out.endObject();
+        }
+    }
+
+    @Override
+    public RouteEndpoint read(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+                return RouteEndpoint.station(in.nextString());
+            case BEGIN_OBJECT:
+                double lat = Double.NaN;
+                double lng = Double.NaN;
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if ("lat".equals(name) && in.peek() == JsonToken.NUMBER) {
+                        lat = in.nextDouble();
+                    } else if ("lng".equals(name) && in.peek() == JsonToken.NUMBER) {
+                        lng = in.nextDouble();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+                if (Double.isNaN(lat) || Double.isNaN(lng)) {
+                    return null;
+                }
+                return RouteEndpoint.coordinate(lat, lng);
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+}
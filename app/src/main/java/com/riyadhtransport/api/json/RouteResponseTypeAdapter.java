@@ -0,0 +1,79 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.RouteResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+final class RouteResponseTypeAdapter extends TypeAdapter<RouteResponse> {
+
+    private final TypeAdapter<Route> routeAdapter;
+
+    RouteResponseTypeAdapter(TypeAdapter<Route> routeAdapter) {
+        this.routeAdapter = routeAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, RouteResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (response.getRoutes() != null) {
+            out.name("routes").beginArray();
+            for (Route route : response.getRoutes()) {
+                routeAdapter.write(out, route);
+            }
+            out.endArray();
+        }
+        if (response.getError() != null) {
+            out.name("error").value(response.getError());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public RouteResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RouteResponse response = new RouteResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "routes":
+                    response.setRoutes(readRoutes(in));
+                    break;
+                case "error":
+                    response.setError(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private List<Route> readRoutes(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Route> routes = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            routes.add(routeAdapter.read(in));
+        }
+        in.endArray();
+        return routes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.RouteEndpoint;
+import com.riyadhtransport.models.RouteSegment;
+import java.io.IOException;
+
+final class RouteSegmentTypeAdapter extends TypeAdapter<RouteSegment> {
+
+    private final TypeAdapter<RouteEndpoint> endpointAdapter;
+
+    RouteSegmentTypeAdapter(TypeAdapter<RouteEndpoint> endpointAdapter) {
+        this.endpointAdapter = endpointAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, RouteSegment segment) throws IOException {
+        if (segment == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (segment.getType() != null) {
+            out.name("type").value(segment.getType());
+        }
+        if (segment.getLine() != null) {
+            out.name("line").value(segment.getLine());
+        }
+        if (segment.getStations() != null) {
+            out.name("stations").beginArray();
+            for (String station : segment.getStations()) {
+                out.value(station);
+            }
+            out.endArray();
+        }
+        out.name("duration").value(segment.getDuration());
+        if (segment.getDistance() != null) {
+            out.name("distance").value(segment.getDistance());
+        }
+        if (segment.getFrom() != null) {
+            endpointAdapter.write(out.name("from"), segment.getFrom());
+        }
+        if (segment.getTo() != null) {
+            endpointAdapter.write(out.name("to"), segment.getTo());
+        }
+        if (segment.getPolyline() != null) {
+            out.name("polyline").value(segment.getPolyline());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public RouteSegment read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RouteSegment segment = new RouteSegment();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "type":
+                    segment.setType(JsonReaders.nextString(in));
+                    break;
+                case "line":
+                    segment.setLine(JsonReaders.nextString(in));
+                    break;
+                case "stations":
+                    segment.setStations(JsonReaders.nextStringList(in));
+                    break;
+                case "duration":
+                    segment.setDuration(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "distance":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        segment.setDistance(in.nextDouble());
+                    }
+                    break;
+                case "from":
+                    segment.setFrom(endpointAdapter.read(in));
+                    break;
+                case "to":
+                    segment.setTo(endpointAdapter.read(in));
+                    break;
+                case "polyline":
+                    segment.setPolyline(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return segment;
+    }
+}
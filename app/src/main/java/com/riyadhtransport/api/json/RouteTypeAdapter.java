@@ -0,0 +1,77 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.RouteSegment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+final class RouteTypeAdapter extends TypeAdapter<Route> {
+
+    private final TypeAdapter<RouteSegment> segmentAdapter;
+
+    RouteTypeAdapter(TypeAdapter<RouteSegment> segmentAdapter) {
+        this.segmentAdapter = segmentAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Route route) throws IOException {
+        if (route == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (route.getSegments() != null) {
+            out.name("segments").beginArray();
+            for (RouteSegment segment : route.getSegments()) {
+                segmentAdapter.write(out, segment);
+            }
+            out.endArray();
+        }
+        out.name("total_time").value(route.getTotalTime());
+        out.endObject();
+    }
+
+    @Override
+    public Route read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Route route = new Route();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "segments":
+                    route.setSegments(readSegments(in));
+                    break;
+                case "total_time":
+                    route.setTotalTime(JsonReaders.nextDouble(in, 0));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return route;
+    }
+
+    private List<RouteSegment> readSegments(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<RouteSegment> segments = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            segments.add(segmentAdapter.read(in));
+        }
+        in.endArray();
+        return segments;
+    }
+}
@@ -0,0 +1,94 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.StationTable;
+import java.io.IOException;
+
+/**
+ * Streams the /api/stations array straight into a {@link StationTable}, without
+ * a Station per entry. Writes the same array back so stored copies stay
+ * readable as a station list.
+ */
+final class StationTableTypeAdapter extends TypeAdapter<StationTable> {
+
+    @Override
+    public void write(JsonWriter out, StationTable table) throws IOException {
+        if (table == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (int row = 0; row < table.size(); row++) {
+            out.beginObject();
+            if (table.getValue(row) != null) {
+                out.name("value").value(table.getValue(row));
+            }
+            if (table.getLabel(row) != null) {
+                out.name("label").value(table.getLabel(row));
+            }
+            if (table.getType(row) != null) {
+                out.name("type").value(table.getType(row));
+            }
+            out.name("lat").value(table.getLatitude(row));
+            out.name("lng").value(table.getLongitude(row));
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    @Override
+    public StationTable read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        StationTable.Builder builder = new StationTable.Builder();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            String value = null;
+            String label = null;
+            String name = null;
+            String type = null;
+            double latitude = 0;
+            double longitude = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "value":
+                        value = JsonReaders.nextString(in);
+                        break;
+                    case "label":
+                        label = JsonReaders.nextString(in);
+                        break;
+                    case "name":
+                        name = JsonReaders.nextString(in);
+                        break;
+                    case "type":
+                        type = JsonReaders.nextString(in);
+                        break;
+                    case "lat":
+                        latitude = JsonReaders.nextDouble(in, 0);
+                        break;
+                    case "lng":
+                        longitude = JsonReaders.nextDouble(in, 0);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            // Entries in the nearby format only carry a name
+            builder.add(value != null ? value : name, label, type, latitude, longitude);
+        }
+        in.endArray();
+        return builder.build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.riyadhtransport.api.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.models.Station;
+import java.io.IOException;
+
+/**
+ * Streams {@link Station} for both /api/stations and /nearbystations entries
+ */
+final class StationTypeAdapter extends TypeAdapter<Station> {
+
+    @Override
+    public void write(JsonWriter out, Station station) throws IOException {
+        if (station == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (station.getValue() != null) {
+            out.name("value").value(station.getValue());
+        }
+        if (station.getLabel() != null) {
+            out.name("label").value(station.getLabel());
+        }
+        if (station.getName() != null) {
+            out.name("name").value(station.getName());
+        }
+        if (station.getType() != null) {
+            out.name("type").value(station.getType());
+        }
+        out.name("lat").value(station.getLatitude());
+        out.name("lng").value(station.getLongitude());
+        if (station.hasDistance()) {
+            out.name("distance").value(station.getDistance());
+        }
+        if (station.hasDuration()) {
+            out.name("duration").value(station.getDuration());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Station read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Station station = new Station();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "value":
+                    station.setValue(JsonReaders.nextString(in));
+                    break;
+                case "label":
+                    station.setLabel(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    station.setName(JsonReaders.nextString(in));
+                    break;
+                case "type":
+                    station.setType(JsonReaders.nextString(in));
+                    break;
+                case "lat":
+                    station.setLatitude(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "lng":
+                    station.setLongitude(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "distance":
+                    station.setDistance(JsonReaders.nextDouble(in, Double.NaN));
+                    break;
+                case "duration":
+                    station.setDuration(JsonReaders.nextDouble(in, Double.NaN));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return station;
+    }
+}
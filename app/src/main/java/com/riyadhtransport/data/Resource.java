@@ -0,0 +1,55 @@
+package com.riyadhtransport.data;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Value published by {@link TransportRepository}: the best data known so far,
+ * whether it has been confirmed by the server, and the last error if the
+ * refresh failed.
+ */
+public class Resource<T> {
+    @Nullable
+    private final T data;
+    @Nullable
+    private final Throwable error;
+    private final boolean fresh;
+
+    private Resource(@Nullable T data, @Nullable Throwable error, boolean fresh) {
+        this.data = data;
+        this.error = error;
+        this.fresh = fresh;
+    }
+
+    /**
+     * Nothing known yet, a request is in flight
+     */
+    public static <T> Resource<T> loading() {
+        return new Resource<>(null, null, false);
+    }
+
+    public static <T> Resource<T> cached(T data) {
+        return new Resource<>(data, null, false);
+    }
+
+    public static <T> Resource<T> fresh(T data) {
+        return new Resource<>(data, null, true);
+    }
+
+    public static <T> Resource<T> error(@Nullable T staleData, Throwable error) {
+        return new Resource<>(staleData, error, false);
+    }
+
+    @Nullable
+    public T getData() {
+        return data;
+    }
+
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFresh() {
+        return fresh;
+    }
+}
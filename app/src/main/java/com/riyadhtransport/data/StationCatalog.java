@@ -0,0 +1,231 @@
+package com.riyadhtransport.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.models.StationAliases;
+import com.riyadhtransport.models.StationGrid;
+import com.riyadhtransport.models.StationTable;
+import com.riyadhtransport.utils.FuzzyIndex;
+import com.riyadhtransport.utils.PrefixIndex;
+import com.riyadhtransport.utils.TrigramIndex;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The station catalog of the process, shared by every screen. It follows
+ * {@link TransportRepository#getStations()} for the current language, so the
+ * stations are read from disk or downloaded once per process however many
+ * screens open, and every table that arrives is indexed off the main thread
+ * before it is published as an immutable {@link Snapshot}.
+ *
+ * Readers on the main thread observe {@link #getSnapshot()}; any thread can
+ * read {@link #current()} or block in {@link #awaitReady}. A new snapshot
+ * replaces the old one in a single write, so a reader sees one table with its
+ * own indexes, never a mix.
+ */
+public final class StationCatalog {
+
+    private static final String TAG = "StationCatalog";
+
+    private static StationCatalog instance;
+
+    private final TransportRepository repository;
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<Resource<Snapshot>> snapshots = new MutableLiveData<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final Observer<Resource<StationTable>> tableObserver = this::onTable;
+
+    @Nullable
+    private volatile Snapshot current;
+    // Main thread only
+    private LiveData<Resource<StationTable>> source;
+    private String sourceLanguage;
+    private StationTable indexing;
+
+    private StationCatalog(Context context) {
+        repository = TransportRepository.getInstance(context);
+    }
+
+    public static synchronized StationCatalog getInstance(Context context) {
+        if (instance == null) {
+            instance = new StationCatalog(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The catalog as it is published, starting the load on first use or
+     * after a language change. Must be called on the main thread.
+     */
+    public LiveData<Resource<Snapshot>> getSnapshot() {
+        String language = ApiClient.getLanguageCode();
+        if (!language.equals(sourceLanguage)) {
+            if (source != null) {
+                source.removeObserver(tableObserver);
+            }
+            sourceLanguage = language;
+            source = repository.getStations();
+            source.observeForever(tableObserver);
+        }
+        return snapshots;
+    }
+
+    /**
+     * The last published snapshot, or null before the first one. Any thread.
+     */
+    @Nullable
+    public Snapshot current() {
+        return current;
+    }
+
+    /**
+     * Waits for the first snapshot, for background work that needs the
+     * catalog. Returns null on timeout. Never call it on the main thread,
+     * which publishes the snapshot; the load must have been started through
+     * {@link #getSnapshot()}.
+     */
+    @Nullable
+    public Snapshot awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("awaitReady would block the thread that publishes");
+        }
+        ready.await(timeout, unit);
+        return current;
+    }
+
+    private void onTable(Resource<StationTable> resource) {
+        StationTable table = resource.getData();
+        Snapshot snapshot = current;
+        if (table == null) {
+            // Loading or failed before anything was known, readers keep what they have
+            snapshots.setValue(resource.getError() != null
+                    ? Resource.error(snapshot, resource.getError())
+                    : snapshot != null ? Resource.cached(snapshot) : Resource.loading());
+            return;
+        }
+        if (snapshot != null && snapshot.table == table && snapshot.language.equals(sourceLanguage)) {
+            // Same table, only its state changed, e.g. a failed refresh
+            snapshots.setValue(resource.getError() != null
+                    ? Resource.error(snapshot, resource.getError())
+                    : resource.isFresh() ? Resource.fresh(snapshot) : Resource.cached(snapshot));
+            return;
+        }
+        if (table == indexing) {
+            return;
+        }
+
+        indexing = table;
+        String language = sourceLanguage;
+        boolean fresh = resource.isFresh();
+        indexExecutor.execute(() -> {
+            long start = System.nanoTime();
+            StationTable other = null;
+            try {
+                other = repository.readStoredStations(otherLanguage(language));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Snapshot built = new Snapshot(table, language, other);
+            Log.d(TAG, "Indexed " + table.size() + " stations in "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+            mainHandler.post(() -> publish(built, fresh));
+        });
+    }
+
+    // The app speaks English and Arabic, and names from the route server may be in either
+    private static String otherLanguage(String language) {
+        return "ar".equals(language) ? "en" : "ar";
+    }
+
+    private void publish(Snapshot snapshot, boolean fresh) {
+        if (indexing == snapshot.table) {
+            indexing = null;
+        }
+        if (!snapshot.language.equals(sourceLanguage) || source == null
+                || source.getValue() == null || source.getValue().getData() != snapshot.table) {
+            // Superseded while it was indexed
+            return;
+        }
+        current = snapshot;
+        ready.countDown();
+        snapshots.setValue(fresh ? Resource.fresh(snapshot) : Resource.cached(snapshot));
+    }
+
+    /**
+     * One station table with every index built over it. Immutable.
+     */
+    public static final class Snapshot {
+        private final StationTable table;
+        private final String language;
+        private final PrefixIndex suggestionIndex;
+        private final StationAliases aliases;
+
+        /**
+         * other is the same catalog in the other language, for the aliases, or null
+         */
+        Snapshot(StationTable table, String language, @Nullable StationTable other) {
+            this.table = table;
+            this.language = language;
+            // The table builds these lazily; building them here keeps that off the main thread
+            table.getSearchIndex();
+            table.getFuzzyIndex();
+            table.getGrid();
+            suggestionIndex = new PrefixIndex(table.getDisplayNames());
+            StationAliases.Builder builder = new StationAliases.Builder(table);
+            if (other != null) {
+                builder.addLanguage(other);
+            }
+            aliases = builder.build();
+        }
+
+        public StationTable getTable() {
+            return table;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Substring index over the distinct display names
+         */
+        public TrigramIndex getNameIndex() {
+            return table.getSearchIndex();
+        }
+
+        public FuzzyIndex getFuzzyIndex() {
+            return table.getFuzzyIndex();
+        }
+
+        /**
+         * Coordinate index for radius and nearest queries
+         */
+        public StationGrid getGrid() {
+            return table.getGrid();
+        }
+
+        /**
+         * Word-prefix index for autocomplete
+         */
+        public PrefixIndex getSuggestionIndex() {
+            return suggestionIndex;
+        }
+
+        /**
+         * Station ids, i.e. table rows, by any English or Arabic name
+         */
+        public StationAliases getAliases() {
+            return aliases;
+        }
+    }
+}
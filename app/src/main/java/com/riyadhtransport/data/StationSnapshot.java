@@ -0,0 +1,296 @@
+package com.riyadhtransport.data;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonObject;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.StationNames;
+import com.riyadhtransport.models.StationTable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary copy of the stations, the metro and bus line lists and the
+ * station lists of every line, so the app has a catalog before the network
+ * answers. The build bundles one per language (see GenerateSnapshotTask in
+ * buildSrc) and a newer downloaded one can be installed over it.
+ *
+ * Format version 1, big-endian:
+ * <pre>
+ * header    int magic "RTSN", short format version, short flags (0),
+ *           long data version, int string count, int station count,
+ *           int metro line count, int bus line count
+ * strings   int[count + 1] UTF-8 offsets, then the bytes; sorted
+ * stations  int[] value ids, int[] label ids (-1 = none), byte[] types,
+ *           double[] latitudes, double[] longitudes
+ * lines     metro then bus lines: int id string, short direction count
+ *           (-1 = details not recorded), then per direction: int name
+ *           string, int stop count, int[] stops
+ * </pre>
+ * A stop is a station row, or -(string id) - 2 for a name missing from the
+ * stations. Metro lines have one direction named "stations", matching the
+ * /viewmtr response.
+ */
+public final class StationSnapshot {
+
+    private static final String TAG = "StationSnapshot";
+
+    static final int MAGIC = 0x5254534E;
+    static final int FORMAT_VERSION = 1;
+
+    private final long version;
+    private final String[] strings;
+    private final StationTable stations;
+    private final Line[] metroLines;
+    private final Line[] busLines;
+
+    private static final class Line {
+        int id;
+        // Null when the line details were not recorded
+        int[] directionNames;
+        int[][] stops;
+    }
+
+    private StationSnapshot(long version, String[] strings, StationTable stations,
+                            Line[] metroLines, Line[] busLines) {
+        this.version = version;
+        this.strings = strings;
+        this.stations = stations;
+        this.metroLines = metroLines;
+        this.busLines = busLines;
+    }
+
+    /**
+     * The newest snapshot for the language, from a downloaded copy or the
+     * bundled asset, or null when neither is usable
+     */
+    @Nullable
+    public static StationSnapshot load(Context context, String language) {
+        StationSnapshot bundled = null;
+        try {
+            bundled = read(mapAsset(context, assetPath(language)));
+        } catch (IOException e) {
+            Log.i(TAG, "No bundled snapshot for " + language);
+        }
+
+        File downloaded = downloadedFile(context, language);
+        if (downloaded.exists()) {
+            try {
+                ByteBuffer buffer = mapFile(downloaded);
+                if (bundled == null || readVersion(buffer) > bundled.version) {
+                    return read(buffer);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable " + downloaded, e);
+                downloaded.delete();
+            }
+        }
+        return bundled;
+    }
+
+    /**
+     * Moves a downloaded snapshot into place after checking that it reads. It
+     * is used from the next {@link #load} on if it is newer than the bundled one.
+     */
+    public static void install(Context context, String language, File file) throws IOException {
+        read(mapFile(file));
+        File target = downloadedFile(context, language);
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        if (!file.renameTo(target)) {
+            throw new IOException("Cannot move " + file + " to " + target);
+        }
+    }
+
+    public static String assetPath(String language) {
+        return "snapshot/" + language + ".bin";
+    }
+
+    private static File downloadedFile(Context context, String language) {
+        return new File(new File(context.getFilesDir(), "snapshot"), language + ".bin");
+    }
+
+    /**
+     * Maps the asset when it is stored uncompressed, otherwise reads it in one pass
+     */
+    public static ByteBuffer mapAsset(Context context, String path) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(path);
+             FileInputStream in = descriptor.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+        } catch (IOException e) {
+            // Compressed assets cannot be opened as a file descriptor
+            try (InputStream in = context.getAssets().open(path)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+                byte[] buffer = new byte[16 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return ByteBuffer.wrap(out.toByteArray());
+            }
+        }
+    }
+
+    private static ByteBuffer mapFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static long readVersion(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("Not a version " + FORMAT_VERSION + " station snapshot");
+        }
+        return buffer.getLong(8);
+    }
+
+    public static StationSnapshot read(ByteBuffer source) throws IOException {
+        long version = readVersion(source);
+        ByteBuffer buffer = source.duplicate();
+        buffer.position(16);
+        try {
+            int stringCount = buffer.getInt();
+            int stationCount = buffer.getInt();
+            int metroCount = buffer.getInt();
+            int busCount = buffer.getInt();
+
+            int[] offsets = ints(buffer, stringCount + 1);
+            byte[] bytes = new byte[offsets[stringCount]];
+            buffer.get(bytes);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            int[] valueIds = ints(buffer, stationCount);
+            int[] labelIds = ints(buffer, stationCount);
+            byte[] types = new byte[stationCount];
+            buffer.get(types);
+            double[] latitudes = doubles(buffer, stationCount);
+            double[] longitudes = doubles(buffer, stationCount);
+            StationTable stations = StationTable.fromColumns(strings, valueIds, labelIds, types,
+                    latitudes, longitudes);
+
+            Line[] metroLines = lines(buffer, metroCount);
+            Line[] busLines = lines(buffer, busCount);
+            return new StationSnapshot(version, strings, stations, metroLines, busLines);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt station snapshot", e);
+        }
+    }
+
+    private static Line[] lines(ByteBuffer buffer, int count) {
+        Line[] lines = new Line[count];
+        for (int i = 0; i < count; i++) {
+            Line line = new Line();
+            line.id = buffer.getInt();
+            int directions = buffer.getShort();
+            if (directions >= 0) {
+                line.directionNames = new int[directions];
+                line.stops = new int[directions][];
+                for (int d = 0; d < directions; d++) {
+                    line.directionNames[d] = buffer.getInt();
+                    line.stops[d] = ints(buffer, buffer.getInt());
+                }
+            }
+            lines[i] = line;
+        }
+        return lines;
+    }
+
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static double[] doubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+
+    /**
+     * Data version, higher is newer
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public StationTable getStations() {
+        return stations;
+    }
+
+    /**
+     * Same shape as the /mtrlines response
+     */
+    public JsonObject getMetroLines() {
+        return lineList(metroLines);
+    }
+
+    /**
+     * Same shape as the /buslines response
+     */
+    public JsonObject getBusLines() {
+        return lineList(busLines);
+    }
+
+    /**
+     * Station lists of a metro or bus line, or null when the line is unknown
+     * or its details were not recorded
+     */
+    @Nullable
+    public LineDetails getLineDetails(String lineType, String lineId) {
+        for (Line line : "metro".equals(lineType) ? metroLines : busLines) {
+            if (strings[line.id].equals(lineId)) {
+                return line.directionNames != null ? details(line) : null;
+            }
+        }
+        return null;
+    }
+
+    private JsonObject lineList(Line[] lines) {
+        StringBuilder ids = new StringBuilder();
+        for (Line line : lines) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(strings[line.id]);
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("lines", ids.toString());
+        return result;
+    }
+
+    private LineDetails details(Line line) {
+        StationNames names = StationNames.get();
+        String[] directions = new String[line.directionNames.length];
+        int[][] stationIds = new int[directions.length][];
+        for (int d = 0; d < directions.length; d++) {
+            directions[d] = names.canonical(strings[line.directionNames[d]]);
+            int[] stops = line.stops[d];
+            stationIds[d] = new int[stops.length];
+            for (int i = 0; i < stops.length; i++) {
+                stationIds[d][i] = stops[i] >= 0
+                        ? stations.getNameId(stops[i])
+                        : names.intern(strings[-stops[i] - 2]);
+            }
+        }
+        return new LineDetails(directions, stationIds);
+    }
+}
@@ -0,0 +1,465 @@
+package com.riyadhtransport.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.TransportApiService;
+import com.riyadhtransport.api.json.LazyLineDetails;
+import com.riyadhtransport.api.json.ModelTypeAdapterFactory;
+import com.riyadhtransport.models.LineDetails;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationGrid;
+import com.riyadhtransport.models.StationTable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Offline-first access to stations, lines, line details and nearby stations.
+ *
+ * Each value is published as a LiveData that first receives the last known
+ * good copy (from memory, or from disk on a cold start) and is then updated
+ * when the background revalidation against the server returns. Stored copies
+ * are kept per language. Before anything has been stored, stations and lines
+ * are seeded from the {@link StationSnapshot}.
+ *
+ * The LiveData getters must be called on the main thread.
+ */
+public class TransportRepository {
+
+    private static final String TAG = "TransportRepository";
+
+    // A value is not revalidated again if it was fetched this recently
+    private static final long REVALIDATE_INTERVAL_MS = 5 * 60 * 1000;
+
+    // Average walking speed the server uses for nearby station durations
+    private static final double WALKING_METERS_PER_SECOND = 1.4;
+
+    // Nearby answers are kept for this many positions, in memory only
+    private static final int MAX_NEARBY_CELLS = 16;
+    private static final String NEARBY_PREFIX = "nearby_";
+
+    private static final Type STATION_LIST_TYPE = new TypeToken<List<Station>>() {}.getType();
+
+    private static TransportRepository instance;
+
+    private final Context context;
+    private final File directory;
+    private final Gson gson = ModelTypeAdapterFactory.gson();
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry<?>> entries = new HashMap<>();
+    // Least recently used first; each ~100 m cell has its own entry
+    private final Map<String, Entry<?>> nearbyEntries =
+            new LinkedHashMap<String, Entry<?>>(MAX_NEARBY_CELLS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry<?>> eldest) {
+                    return size() > MAX_NEARBY_CELLS;
+                }
+            };
+    // Loaded on the disk executor only, null values mean there is no snapshot
+    private final Map<String, StationSnapshot> snapshots = new HashMap<>();
+
+    private TransportRepository(Context context) {
+        this.context = context;
+        directory = new File(context.getFilesDir(), "repository");
+        diskExecutor.execute(this::deleteStoredNearbyCells);
+    }
+
+    public static synchronized TransportRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TransportRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The full station catalog, stored as columns rather than a Station per stop.
+     * Screens read it through {@link StationCatalog}, which indexes it once and
+     * keeps one copy per process; each call here may revalidate it.
+     */
+    public LiveData<Resource<StationTable>> getStations() {
+        return load("stations", StationTable.class, TransportApiService::getStations,
+                StationSnapshot::getStations);
+    }
+
+    /**
+     * The stored, or else bundled, station catalog of a language, without
+     * going to the network. Blocks on the disk executor, so never call it on
+     * the main thread. Null when there is none.
+     */
+    @Nullable
+    public StationTable readStoredStations(String language) throws InterruptedException {
+        Future<StationTable> result = diskExecutor.submit(() -> {
+            String fullKey = language + "/stations";
+            File file = fileFor(fullKey);
+            if (file.exists()) {
+                try {
+                    StationTable table = readFile(file, StationTable.class);
+                    if (table != null) {
+                        return table;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Unreadable " + fullKey, e);
+                }
+            }
+            StationSnapshot snapshot = snapshot(language);
+            return snapshot != null ? snapshot.getStations() : null;
+        });
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to read stored stations for " + language, e.getCause());
+            return null;
+        }
+    }
+
+    public LiveData<Resource<JsonObject>> getMetroLines() {
+        return load("mtrlines", JsonObject.class, TransportApiService::getMetroLines,
+                StationSnapshot::getMetroLines);
+    }
+
+    public LiveData<Resource<JsonObject>> getBusLines() {
+        return load("buslines", JsonObject.class, TransportApiService::getBusLines,
+                StationSnapshot::getBusLines);
+    }
+
+    /**
+     * Station lists of a metro line, or of each direction of a bus line
+     */
+    public LiveData<Resource<LineDetails>> getLineDetails(String lineType, String lineId) {
+        JsonObject body = new JsonObject();
+        body.addProperty("line", lineId);
+        boolean metro = "metro".equals(lineType);
+        return load((metro ? "viewmtr_" : "viewbus_") + lineId, LineDetails.class,
+                service -> metro ? service.viewMetro(body) : service.viewBus(body),
+                snapshot -> snapshot.getLineDetails(lineType, lineId));
+    }
+
+    /**
+     * Stations within the radius, closest first, with the distance and walking
+     * time filled in as the server does. Once the {@link StationCatalog} holds
+     * the server's current table they are answered from its
+     * {@link StationGrid}. Until then a stored or bundled catalog, which may be
+     * out of date, only gives a cached answer, and the server is asked too.
+     */
+    public LiveData<Resource<List<Station>>> getNearbyStations(double latitude, double longitude,
+                                                               double radiusKm) {
+        return new NearbyStations(latitude, longitude, radiusKm);
+    }
+
+    /**
+     * Local answer from the catalog and, while the catalog is not fresh, the
+     * server's. A fresh answer is never replaced by a cached one.
+     */
+    private final class NearbyStations extends MediatorLiveData<Resource<List<Station>>> {
+        private final double latitude;
+        private final double longitude;
+        private final double radiusKm;
+        private final LiveData<Resource<StationCatalog.Snapshot>> catalog;
+        @Nullable
+        private LiveData<Resource<List<Station>>> server;
+
+        NearbyStations(double latitude, double longitude, double radiusKm) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusKm = radiusKm;
+            catalog = StationCatalog.getInstance(context).getSnapshot();
+            addSource(catalog, this::onCatalog);
+        }
+
+        private void onCatalog(Resource<StationCatalog.Snapshot> resource) {
+            StationCatalog.Snapshot snapshot = resource.getData();
+            boolean usable = snapshot != null && !snapshot.getTable().isEmpty();
+            if (usable && resource.isFresh()) {
+                // The catalog is current, the server would give the same answer
+                removeSource(catalog);
+                if (server != null) {
+                    removeSource(server);
+                    server = null;
+                }
+                answerLocally(snapshot, true);
+                return;
+            }
+            if (usable) {
+                answerLocally(snapshot, false);
+            }
+            if (server == null && (usable || resource.getError() != null)) {
+                server = fetchNearbyStations(latitude, longitude, radiusKm);
+                addSource(server, this::onServer);
+            }
+        }
+
+        private void answerLocally(StationCatalog.Snapshot snapshot, boolean fresh) {
+            diskExecutor.execute(() -> {
+                List<Station> result = nearbyStations(snapshot, latitude, longitude, radiusKm * 1000);
+                mainHandler.post(() -> {
+                    Resource<List<Station>> current = getValue();
+                    if (fresh || current == null || !current.isFresh()) {
+                        setValue(fresh ? Resource.fresh(result) : Resource.cached(result));
+                    }
+                });
+            });
+        }
+
+        private void onServer(Resource<List<Station>> resource) {
+            Resource<List<Station>> current = getValue();
+            if (current != null && current.isFresh()) {
+                return;
+            }
+            if (resource.getData() != null || current == null || current.getData() == null) {
+                setValue(resource);
+            } else if (resource.getError() != null) {
+                // Keep showing the local answer with the failure
+                setValue(Resource.error(current.getData(), resource.getError()));
+            }
+        }
+    }
+
+    private static List<Station> nearbyStations(StationCatalog.Snapshot snapshot, double latitude,
+                                                double longitude, double radiusMeters) {
+        StationTable table = snapshot.getTable();
+        StationGrid.Hits hits = snapshot.getGrid().within(latitude, longitude, radiusMeters);
+        List<Station> stations = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            Station station = table.toStation(hits.getRow(i));
+            station.setDistance(Math.round(hits.getDistance(i)));
+            station.setDuration(Math.round(hits.getDistance(i) / WALKING_METERS_PER_SECOND));
+            stations.add(station);
+        }
+        return stations;
+    }
+
+    /**
+     * Nearby stations are kept per ~100 m cell, so a cached answer is only
+     * served for roughly the same position. Cells are not written to disk,
+     * there would be one file for every place the user has been.
+     */
+    private LiveData<Resource<List<Station>>> fetchNearbyStations(double latitude, double longitude,
+                                                                  double radiusKm) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("lat", latitude);
+        body.put("lng", longitude);
+        body.put("radius", radiusKm);
+        String cell = String.format(Locale.US, NEARBY_PREFIX + "%.3f_%.3f_%.1f",
+                latitude, longitude, radiusKm);
+        return load(nearbyEntries, false, cell, STATION_LIST_TYPE,
+                service -> service.getNearbyStations(body), null);
+    }
+
+    private interface Fetcher<T> {
+        Call<T> fetch(TransportApiService service);
+    }
+
+    private interface SnapshotReader<T> {
+        T read(StationSnapshot snapshot);
+    }
+
+    private static final class Entry<T> {
+        final MutableLiveData<Resource<T>> liveData = new MutableLiveData<>();
+        long lastFetch;
+        boolean fetching;
+    }
+
+    private <T> LiveData<Resource<T>> load(String key, Type type, Fetcher<T> fetcher,
+                                           SnapshotReader<T> snapshotReader) {
+        return load(entries, true, key, type, fetcher, snapshotReader);
+    }
+
+    /**
+     * stored is whether the value is kept on disk as well as in cache
+     */
+    private <T> LiveData<Resource<T>> load(Map<String, Entry<?>> cache, boolean stored, String key,
+                                           Type type, Fetcher<T> fetcher,
+                                           @Nullable SnapshotReader<T> snapshotReader) {
+        String language = ApiClient.getLanguageCode();
+        String fullKey = language + "/" + key;
+
+        @SuppressWarnings("unchecked")
+        Entry<T> entry = (Entry<T>) cache.get(fullKey);
+        if (entry == null) {
+            entry = new Entry<>();
+            cache.put(fullKey, entry);
+            if (stored) {
+                readFromDisk(language, fullKey, type, entry, snapshotReader);
+            }
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (!entry.fetching && (entry.lastFetch == 0 || now - entry.lastFetch > REVALIDATE_INTERVAL_MS)) {
+            revalidate(stored ? fullKey : null, type, entry, fetcher.fetch(ApiClient.getApiService(language)));
+        }
+        return entry.liveData;
+    }
+
+    private <T> void readFromDisk(String language, String fullKey, Type type, Entry<T> entry,
+                                  SnapshotReader<T> snapshotReader) {
+        File file = fileFor(fullKey);
+        diskExecutor.execute(() -> {
+            T data = null;
+            if (file.exists()) {
+                try {
+                    data = readFile(file, type);
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Discarding unreadable " + fullKey, e);
+                    file.delete();
+                }
+            }
+            if (data == null && snapshotReader != null) {
+                StationSnapshot snapshot = snapshot(language);
+                if (snapshot != null) {
+                    data = snapshotReader.read(snapshot);
+                }
+            }
+            if (data == null) {
+                return;
+            }
+            T loaded = data;
+            mainHandler.post(() -> {
+                // The network may have answered first, never replace fresher data
+                Resource<T> current = entry.liveData.getValue();
+                if (current == null || current.getData() == null) {
+                    entry.liveData.setValue(current != null && current.getError() != null
+                            ? Resource.error(loaded, current.getError())
+                            : Resource.cached(loaded));
+                }
+            });
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T readFile(File file, Type type) throws IOException {
+        if (type == LineDetails.class) {
+            // Directions are decoded when first shown, as for network responses
+            byte[] bytes = new byte[(int) file.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(bytes);
+            }
+            return (T) LazyLineDetails.read(bytes);
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        }
+    }
+
+    /**
+     * A null key means the value is not stored
+     */
+    private <T> void revalidate(@Nullable String fullKey, Type type, Entry<T> entry, Call<T> call) {
+        entry.fetching = true;
+        Resource<T> current = entry.liveData.getValue();
+        if (current != null && current.getData() == null) {
+            // Retrying after an error, don't let new observers see the old failure
+            entry.liveData.setValue(Resource.loading());
+        }
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                entry.fetching = false;
+                T body = response.body();
+                if (response.isSuccessful() && body != null) {
+                    entry.lastFetch = SystemClock.elapsedRealtime();
+                    entry.liveData.setValue(Resource.fresh(body));
+                    if (fullKey != null) {
+                        writeToDisk(fullKey, type, body);
+                    }
+                } else {
+                    publishError(entry, new IOException("HTTP " + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                entry.fetching = false;
+                publishError(entry, t);
+            }
+        });
+    }
+
+    private <T> void publishError(Entry<T> entry, Throwable error) {
+        Resource<T> current = entry.liveData.getValue();
+        entry.liveData.setValue(Resource.error(current != null ? current.getData() : null, error));
+    }
+
+    /**
+     * Must run on the disk executor
+     */
+    private StationSnapshot snapshot(String language) {
+        if (!snapshots.containsKey(language)) {
+            snapshots.put(language, StationSnapshot.load(context, language));
+        }
+        return snapshots.get(language);
+    }
+
+    /**
+     * Earlier versions stored every nearby cell; those files are never read
+     */
+    private void deleteStoredNearbyCells() {
+        File[] languages = directory.listFiles();
+        if (languages == null) {
+            return;
+        }
+        for (File language : languages) {
+            File[] files = language.listFiles((dir, name) -> name.startsWith(NEARBY_PREFIX));
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private void writeToDisk(String fullKey, Type type, Object data) {
+        File file = fileFor(fullKey);
+        diskExecutor.execute(() -> {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                return;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+                gson.toJson(data, type, writer);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to store " + fullKey, e);
+                return;
+            }
+            tmp.renameTo(file);
+        });
+    }
+
+    private File fileFor(String fullKey) {
+        return new File(directory, fullKey.replaceAll("[^A-Za-z0-9/_.-]", "_") + ".json");
+    }
+}
@@ -14,6 +14,8 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
@@ -21,23 +23,26 @@ import com.google.gson.JsonObject;
 import com.riyadhtransport.LineStationsActivity;
 import com.riyadhtransport.R;
 import com.riyadhtransport.adapters.LineAdapter;
-import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.ResponsePipeline;
+import com.riyadhtransport.data.Resource;
+import com.riyadhtransport.data.TransportRepository;
 import com.riyadhtransport.models.Line;
+import com.riyadhtransport.models.LineDetails;
 import com.riyadhtransport.utils.LineColorHelper;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class LinesFragment extends Fragment {
     
+    // How long a tapped line waits for fresh details before opening the stored copy
+    private static final long STALE_DETAILS_WAIT_MS = 1500;
+
     private TextInputEditText searchInput;
     private RecyclerView linesRecycler;
     private LineAdapter lineAdapter;
-    private boolean linesLoaded = false;
+    private LiveData<Resource<JsonObject>> metroLines;
+    private LiveData<Resource<JsonObject>> busLines;
     
     @Nullable
     @Override
@@ -74,66 +79,50 @@ public class LinesFragment extends Fragment {
         });
 
         // Load lines data
-        if (!linesLoaded) {
-            loadLines();
-        }
+        loadLines();
     }
 
     private void loadLines() {
-        List<Line> allLines = new ArrayList<>();
-
-        // Load metro lines
-        ApiClient.getApiService().getMetroLines().enqueue(new Callback<JsonObject>() {
-            @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String linesStr = response.body().get("lines").getAsString();
-                    String[] metroLines = linesStr.split(",");
-
-                    for (String lineId : metroLines) {
-                        String lineName = LineColorHelper.getMetroLineName(requireContext(), lineId);
-                        allLines.add(new Line(lineId, lineName, "metro"));
-                    }
-
-                    // After metro lines loaded, load bus lines
-                    loadBusLines(allLines);
-                }
-            }
+        TransportRepository repository = TransportRepository.getInstance(requireContext());
+        metroLines = repository.getMetroLines();
+        busLines = repository.getBusLines();
 
-            @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+        // Either list may come from storage or the network first, rebuild on every update
+        metroLines.observe(getViewLifecycleOwner(), resource -> {
+            if (resource.getData() == null && resource.getError() != null) {
                 Toast.makeText(requireContext(),
                         getString(R.string.error_network),
                         Toast.LENGTH_SHORT).show();
             }
+            updateLines();
         });
+        busLines.observe(getViewLifecycleOwner(), resource -> updateLines());
     }
 
-    private void loadBusLines(List<Line> allLines) {
-        ApiClient.getApiService().getBusLines().enqueue(new Callback<JsonObject>() {
-            @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String linesStr = response.body().get("lines").getAsString();
-                    String[] busLines = linesStr.split(",");
+    private void updateLines() {
+        Resource<JsonObject> metro = metroLines.getValue();
+        Resource<JsonObject> bus = busLines.getValue();
+        if (metro == null || metro.getData() == null) {
+            return;
+        }
 
-                    for (String lineId : busLines) {
-                        allLines.add(new Line(lineId, getString(R.string.bus) + " " + lineId, "bus"));
-                    }
+        List<Line> allLines = new ArrayList<>();
+        String[] metroIds = metro.getData().get("lines").getAsString().split(",");
+        for (String lineId : metroIds) {
+            String lineName = LineColorHelper.getMetroLineName(requireContext(), lineId);
+            allLines.add(new Line(lineId, lineName, "metro"));
+        }
 
-                    // Update adapter
-                    lineAdapter.setLines(allLines);
-                    linesLoaded = true;
-                }
+        // Still show metro lines if bus lines are not available
+        if (bus != null && bus.getData() != null) {
+            String[] busIds = bus.getData().get("lines").getAsString().split(",");
+            for (String lineId : busIds) {
+                allLines.add(new Line(lineId, getString(R.string.bus) + " " + lineId, "bus"));
             }
+        }
 
-            @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
-                // Still show metro lines if bus lines fail
-                lineAdapter.setLines(allLines);
-                linesLoaded = true;
-            }
-        });
+        lineAdapter.setLines(allLines);
+        lineAdapter.filter(searchInput.getText() != null ? searchInput.getText().toString() : "");
     }
 
     private void showLineDetails(Line line) {
@@ -146,71 +135,102 @@ public class LinesFragment extends Fragment {
     }
 
     private void loadMetroLineDetails(Line line) {
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("line", line.getId());
+        loadLineDetails(line, data -> data.getStationIds(LineDetails.METRO_STATIONS),
+                stationIds -> showStationsList(line, stationIds));
+    }
 
-        ApiClient.getApiService().viewMetro(requestBody).enqueue(new Callback<JsonObject>() {
-            @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    JsonObject data = response.body();
-                    List<String> stations = new ArrayList<>();
-                    if (data.has("stations")) {
-                        data.getAsJsonArray("stations").forEach(element ->
-                                stations.add(element.getAsString()));
-                    }
-                    showStationsList(line, stations);
-                }
+    private void loadBusLineDetails(Line line) {
+        // Bus lines have directions as keys, decoded when one is picked
+        loadLineDetails(line, data -> {
+            if (data.getDirectionCount() == 1) {
+                // A ring route opens straight away, decode it here rather than on the main thread
+                data.getStationIds(0);
             }
+            return data;
+        }, data -> {
+            List<String> directions = data.getDirections();
 
-            @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
-                Toast.makeText(requireContext(),
-                        getString(R.string.error_network),
-                        Toast.LENGTH_SHORT).show();
+            if (directions.size() == 1) {
+                // Ring route - single direction
+                showStationsList(line, data.getStationIds(0));
+            } else if (directions.size() >= 2) {
+                // Bi-directional route - show direction selector
+                showDirectionSelector(line, data, directions);
             }
         });
     }
 
-    private void loadBusLineDetails(Line line) {
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("line", line.getId());
+    private interface LineDetailsHandler<R> {
+        void onLineDetails(R result);
+    }
 
-        ApiClient.getApiService().viewBus(requestBody).enqueue(new Callback<JsonObject>() {
-            @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    JsonObject data = response.body();
-
-                    // Bus lines have directions as keys
-                    List<String> directions = new ArrayList<>();
-                    for (Map.Entry<String, com.google.gson.JsonElement> entry : data.entrySet()) {
-                        directions.add(entry.getKey());
-                    }
+    /**
+     * Handles a line's details exactly once, since the handler opens a screen.
+     * A stored copy may be out of date, so it is only used when the
+     * repository's revalidation fails or has not answered within
+     * STALE_DETAILS_WAIT_MS; otherwise the fresh copy is. The transform runs
+     * off the main thread.
+     */
+    private <R> void loadLineDetails(Line line, ResponsePipeline.Transform<LineDetails, R> transform,
+                                     LineDetailsHandler<R> handler) {
+        LiveData<Resource<LineDetails>> details = TransportRepository.getInstance(requireContext())
+                .getLineDetails(line.getType(), line.getId());
+        View view = requireView();
+        details.observe(getViewLifecycleOwner(), new Observer<Resource<LineDetails>>() {
+            private LineDetails stored;
+            private final Runnable useStored = () -> {
+                if (getView() != null && stored != null) {
+                    finish();
+                    handle(stored);
+                }
+            };
 
-                    if (directions.size() == 1) {
-                        // Ring route - single direction
-                        List<String> stations = new ArrayList<>();
-                        data.getAsJsonArray(directions.get(0)).forEach(element ->
-                                stations.add(element.getAsString()));
-                        showStationsList(line, stations);
-                    } else if (directions.size() >= 2) {
-                        // Bi-directional route - show direction selector
-                        showDirectionSelector(line, data, directions);
+            @Override
+            public void onChanged(Resource<LineDetails> resource) {
+                LineDetails data = resource.getData();
+                if (resource.isFresh() || resource.getError() != null) {
+                    finish();
+                    if (data != null) {
+                        // After an error this is the last known copy
+                        handle(data);
+                    } else {
+                        showLineDetailsError();
                     }
+                } else if (data != null && stored == null) {
+                    stored = data;
+                    view.postDelayed(useStored, STALE_DETAILS_WAIT_MS);
                 }
             }
 
-            @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
-                Toast.makeText(requireContext(),
-                        getString(R.string.error_network),
-                        Toast.LENGTH_SHORT).show();
+            private void finish() {
+                details.removeObserver(this);
+                view.removeCallbacks(useStored);
+            }
+
+            private void handle(LineDetails data) {
+                ResponsePipeline.submit(getViewLifecycleOwner(), "line_details", data,
+                        transform, new ResponsePipeline.Receiver<R>() {
+                    @Override
+                    public void onResult(R result) {
+                        handler.onLineDetails(result);
+                    }
+
+                    @Override
+                    public void onError(@NonNull Throwable error) {
+                        showLineDetailsError();
+                    }
+                });
             }
         });
     }
 
-    private void showDirectionSelector(Line line, JsonObject lineData, List<String> directions) {
+    private void showLineDetailsError() {
+        Toast.makeText(requireContext(),
+                getString(R.string.error_network),
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void showDirectionSelector(Line line, LineDetails lineData, List<String> directions) {
         String dir1 = directions.get(0);
         String dir2 = directions.get(1);
 
@@ -223,29 +243,43 @@ public class LinesFragment extends Fragment {
                 .setTitle(R.string.select_direction)
                 .setItems(options, (dialog, which) -> {
                     String selectedDirection = which == 0 ? dir1 : dir2;
-                    List<String> stations = new ArrayList<>();
-                    lineData.getAsJsonArray(selectedDirection).forEach(element ->
-                            stations.add(element.getAsString()));
-                    
-                    // Open activity with direction info
-                    Intent intent = new Intent(requireContext(), LineStationsActivity.class);
-                    intent.putExtra("line_id", line.getId());
-                    intent.putExtra("line_name", line.getName());
-                    intent.putExtra("line_type", line.getType());
-                    intent.putExtra("direction", selectedDirection);
-                    intent.putStringArrayListExtra("stations", new ArrayList<>(stations));
-                    startActivity(intent);
+
+                    // The picked direction is decoded off the main thread
+                    ResponsePipeline.submit(getViewLifecycleOwner(), "line_direction", lineData,
+                            data -> data.getStationIds(selectedDirection),
+                            new ResponsePipeline.Receiver<int[]>() {
+                        @Override
+                        public void onResult(int[] stationIds) {
+                            showDirectionStations(line, selectedDirection, stationIds);
+                        }
+
+                        @Override
+                        public void onError(@NonNull Throwable error) {
+                            showLineDetailsError();
+                        }
+                    });
                 })
                 .show();
     }
 
-    private void showStationsList(Line line, List<String> stations) {
+    private void showDirectionStations(Line line, String direction, int[] stationIds) {
+        // Open activity with direction info
+        Intent intent = new Intent(requireContext(), LineStationsActivity.class);
+        intent.putExtra("line_id", line.getId());
+        intent.putExtra("line_name", line.getName());
+        intent.putExtra("line_type", line.getType());
+        intent.putExtra("direction", direction);
+        LineStationsActivity.putStationIds(intent, stationIds);
+        startActivity(intent);
+    }
+
+    private void showStationsList(Line line, int[] stationIds) {
         // Open dedicated activity to show stations list
         Intent intent = new Intent(requireContext(), LineStationsActivity.class);
         intent.putExtra("line_id", line.getId());
         intent.putExtra("line_name", line.getName());
         intent.putExtra("line_type", line.getType());
-        intent.putStringArrayListExtra("stations", new ArrayList<>(stations));
+        LineStationsActivity.putStationIds(intent, stationIds);
         startActivity(intent);
     }
 }
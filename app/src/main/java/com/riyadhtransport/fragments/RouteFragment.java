@@ -3,12 +3,12 @@ package com.riyadhtransport.fragments;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.LinearLayout;
@@ -19,16 +19,23 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
-import com.riyadhtransport.models.Station;
 import com.riyadhtransport.MainActivity;
 import com.riyadhtransport.R;
 import com.riyadhtransport.SearchLocationActivity;
 import com.riyadhtransport.adapters.RouteSegmentAdapter;
+import com.riyadhtransport.adapters.StationSuggestionAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.LifecycleCalls;
+import com.riyadhtransport.api.NetworkWarmup;
+import com.riyadhtransport.data.StationCatalog;
 import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.RouteEndpoint;
+import com.riyadhtransport.models.RouteResponse;
 import com.riyadhtransport.models.RouteSegment;
+import com.riyadhtransport.models.StationAliases;
+import com.riyadhtransport.models.StationTable;
 import com.riyadhtransport.utils.LocationHelper;
-import com.google.gson.Gson;
+import com.riyadhtransport.utils.PolylineDecoder;
 import com.google.gson.reflect.TypeToken;
 import java.util.HashMap;
 import java.util.List;
@@ -52,13 +59,18 @@ public class RouteFragment extends Fragment {
     private LinearLayout routeDetailsContainer;
     private RecyclerView routeSegmentsRecycler;
     private RouteSegmentAdapter segmentAdapter;
+    private StationSuggestionAdapter startSuggestions;
+    private StationSuggestionAdapter endSuggestions;
     private LocationHelper locationHelper;
     private double currentLat = 0;
     private double currentLng = 0;
     private double startLat = 0, startLng = 0, endLat = 0, endLng = 0;
     private String startName = "", endName = "";
-    private List<Station> allStations = new ArrayList<>();
-    private Map<String, Station> stationMap = new HashMap<>();
+    private StationTable stations = StationTable.EMPTY;
+    // Ids of the stations above by their English and Arabic names
+    private StationAliases stationIds = StationAliases.EMPTY;
+    // Reused for every segment drawn
+    private final PolylineDecoder routePoints = new PolylineDecoder();
     
     @Nullable
     @Override
@@ -86,6 +98,12 @@ public class RouteFragment extends Fragment {
         routeSegmentsRecycler.setLayoutManager(new LinearLayoutManager(requireContext()));
         routeSegmentsRecycler.setAdapter(segmentAdapter);
         
+        // Setup autocomplete adapters, filled once the station index is built
+        startSuggestions = new StationSuggestionAdapter(requireContext());
+        endSuggestions = new StationSuggestionAdapter(requireContext());
+        startInput.setAdapter(startSuggestions);
+        endInput.setAdapter(endSuggestions);
+        
         // Setup listeners
         findRouteButton.setOnClickListener(v -> findRoute());
         useLocationButton.setOnClickListener(v -> useMyLocation());
@@ -110,6 +128,11 @@ public class RouteFragment extends Fragment {
         } else {
             intent.putExtra(SearchLocationActivity.EXTRA_SEARCH_TYPE, "destination");
         }
+        // Lets the search rank nearby places first
+        if (currentLat != 0 || currentLng != 0) {
+            intent.putExtra(SearchLocationActivity.EXTRA_USER_LAT, currentLat);
+            intent.putExtra(SearchLocationActivity.EXTRA_USER_LNG, currentLng);
+        }
         startActivityForResult(intent, requestCode);
     }
     
@@ -137,43 +160,23 @@ public class RouteFragment extends Fragment {
     }
 
     private void loadStations() {
-        ApiClient.getApiService().getStations().enqueue(new Callback<List<Station>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Station>> call,
-                                   @NonNull Response<List<Station>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    allStations = response.body();
-
-                    // Build station name list and map
-                    List<String> stationNames = new ArrayList<>();
-                    for (Station station : allStations) {
-                        String name = station.getDisplayName();
-                        stationNames.add(name);
-                        stationMap.put(name, station);
+        // The process-wide catalog, already indexed; served from the last stored
+        // copy first, then refreshed in the background
+        StationCatalog.getInstance(requireContext()).getSnapshot()
+                .observe(getViewLifecycleOwner(), resource -> {
+                    StationCatalog.Snapshot snapshot = resource.getData();
+                    if (snapshot != null) {
+                        // Route stations are looked up by name, in either language
+                        stations = snapshot.getTable();
+                        stationIds = snapshot.getAliases();
+                        startSuggestions.setIndex(snapshot.getSuggestionIndex());
+                        endSuggestions.setIndex(snapshot.getSuggestionIndex());
+                    } else if (resource.getError() != null) {
+                        Toast.makeText(requireContext(),
+                                getString(R.string.error_network) + ": " + resource.getError().getMessage(),
+                                Toast.LENGTH_SHORT).show();
                     }
-
-                    // Setup autocomplete adapters
-                    ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                            requireContext(),
-                            android.R.layout.simple_dropdown_item_1line,
-                            stationNames
-                    );
-                    startInput.setAdapter(adapter);
-                    endInput.setAdapter(adapter);
-                } else {
-                    Toast.makeText(requireContext(),
-                            R.string.error_network,
-                            Toast.LENGTH_SHORT).show();
-                }
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
-                Toast.makeText(requireContext(),
-                        getString(R.string.error_network) + ": " + t.getMessage(),
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+                });
     }
     
     private void getCurrentLocation() {
@@ -235,30 +238,30 @@ public class RouteFragment extends Fragment {
         requestBody.put("end_lat", endLat);
         requestBody.put("end_lng", endLng);
 
-        ApiClient.getApiService().findRouteFromCoordinates(requestBody)
-                .enqueue(new Callback<Map<String, Object>>() {
+        long requestStart = SystemClock.elapsedRealtime();
+        LifecycleCalls.enqueue(getViewLifecycleOwner(),
+                ApiClient.getApiService().findRouteFromCoordinates(requestBody),
+                new Callback<RouteResponse>() {
             @Override
-            public void onResponse(@NonNull Call<Map<String, Object>> call,
-                                   @NonNull Response<Map<String, Object>> response) {
+            public void onResponse(@NonNull Call<RouteResponse> call,
+                                   @NonNull Response<RouteResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> responseBody = response.body();
+                    RouteResponse responseBody = response.body();
+                    NetworkWarmup.recordFirstRoute(SystemClock.elapsedRealtime() - requestStart);
 
-                    if (responseBody.containsKey("routes")) {
-                        List<Map<String, Object>> routes =
-                                (List<Map<String, Object>>) responseBody.get("routes");
+                    if (responseBody.getRoutes() != null) {
+                        List<Route> routes = responseBody.getRoutes();
 
-                        if (routes != null && !routes.isEmpty()) {
-                            Map<String, Object> route = routes.get(0);
-                            displayRoute(route);
+                        if (!routes.isEmpty() && routes.get(0) != null) {
+                            displayRoute(routes.get(0));
                         } else {
                             Toast.makeText(requireContext(),
                                     R.string.no_route_found,
                                     Toast.LENGTH_SHORT).show();
                         }
-                    } else if (responseBody.containsKey("error")) {
-                        String error = (String) responseBody.get("error");
+                    } else if (responseBody.getError() != null) {
                         Toast.makeText(requireContext(),
-                                "Error: " + error,
+                                "Error: " + responseBody.getError(),
                                 Toast.LENGTH_SHORT).show();
                     }
                 } else {
@@ -269,7 +272,7 @@ public class RouteFragment extends Fragment {
             }
 
             @Override
-            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Call<RouteResponse> call, @NonNull Throwable t) {
                 Toast.makeText(requireContext(),
                         getString(R.string.error_network) + ": " + t.getMessage(),
                         Toast.LENGTH_LONG).show();
@@ -277,19 +280,14 @@ public class RouteFragment extends Fragment {
         });
     }
 
-    private void displayRoute(Map<String, Object> route) {
+    private void displayRoute(Route route) {
         try {
-            // Parse route segments
-            Gson gson = new Gson();
-            String json = gson.toJson(route);
-            Route routeObj = gson.fromJson(json, Route.class);
-
-            if (routeObj != null && routeObj.getSegments() != null) {
-                segmentAdapter.setSegments(routeObj.getSegments());
+            if (route.getSegments() != null) {
+                segmentAdapter.setSegments(route.getSegments());
                 routeDetailsContainer.setVisibility(View.VISIBLE);
 
                 // Draw route on map
-                drawRouteOnMap(routeObj);
+                drawRouteOnMap(route);
             }
         } catch (Exception e) {
             Toast.makeText(requireContext(),
@@ -312,10 +310,12 @@ public class RouteFragment extends Fragment {
         // Clear existing route overlays (keep location overlay)
         mapView.getOverlays().removeIf(overlay -> overlay instanceof Polyline);
 
+        double minLat = 90, maxLat = -90, minLon = 180, maxLon = -180;
+
         // Draw each segment
         for (RouteSegment segment : route.getSegments()) {
             Polyline line = new Polyline();
-            List<GeoPoint> points = new ArrayList<>();
+            routePoints.clear();
 
             // Get segment coordinates based on type
             if (segment.isWalking()) {
@@ -329,7 +329,7 @@ public class RouteFragment extends Fragment {
 
                 // Add start and end points for walking
                 // Note: You may need to parse the from/to objects to get coordinates
-                addSegmentPoints(segment, points);
+                addSegmentPoints(segment, routePoints);
 
             } else if (segment.isMetro()) {
                 // Metro segment - color based on line (matching frontend colors)
@@ -339,7 +339,7 @@ public class RouteFragment extends Fragment {
                 line.getPaint().setStrokeWidth(10f);
 
                 // Add all station points for metro
-                addSegmentPoints(segment, points);
+                addSegmentPoints(segment, routePoints);
 
             } else if (segment.isBus()) {
                 // Bus segment - green line (matching frontend bus color)
@@ -347,108 +347,88 @@ public class RouteFragment extends Fragment {
                 line.getPaint().setStrokeWidth(10f);
 
                 // Add all station points for bus
-                addSegmentPoints(segment, points);
+                addSegmentPoints(segment, routePoints);
             }
 
-            if (!points.isEmpty()) {
-                line.setPoints(points);
+            if (routePoints.size() > 0) {
+                line.setPoints(toGeoPoints(routePoints));
                 mapView.getOverlays().add(line);
+
+                minLat = Math.min(minLat, routePoints.getMinLatitude());
+                maxLat = Math.max(maxLat, routePoints.getMaxLatitude());
+                minLon = Math.min(minLon, routePoints.getMinLongitude());
+                maxLon = Math.max(maxLon, routePoints.getMaxLongitude());
             }
         }
 
         mapView.invalidate();
 
         // Zoom to show the entire route
-        if (!route.getSegments().isEmpty()) {
-            zoomToRoute(mapView, route);
-        }
+        zoomToRoute(mapView, minLat, maxLat, minLon, maxLon);
     }
 
-    private void addSegmentPoints(RouteSegment segment, List<GeoPoint> points) {
-        if (segment.isWalking()) {
-            // For walking segments, use from/to coordinates
+    private void addSegmentPoints(RouteSegment segment, PolylineDecoder points) {
+        // Prefer the path geometry sent by the server
+        String polyline = segment.getPolyline();
+        if (polyline != null && !polyline.isEmpty()) {
             try {
-                if (segment.getFrom() != null) {
-                    if (segment.getFrom() instanceof Map) {
-                        Map<String, Object> fromMap = (Map<String, Object>) segment.getFrom();
-                        Object latObj = fromMap.get("lat");
-                        Object lngObj = fromMap.get("lng");
-                        if (latObj instanceof Number && lngObj instanceof Number) {
-                            double lat = ((Number) latObj).doubleValue();
-                            double lng = ((Number) lngObj).doubleValue();
-                            points.add(new GeoPoint(lat, lng));
-                        }
-                    } else if (segment.getFrom() instanceof String) {
-                        // It's a station name
-                        Station station = stationMap.get((String) segment.getFrom());
-                        if (station != null) {
-                            points.add(new GeoPoint(station.getLatitude(), station.getLongitude()));
-                        }
-                    }
+                if (points.append(polyline) > 0) {
+                    return;
                 }
-                
-                if (segment.getTo() != null) {
-                    if (segment.getTo() instanceof Map) {
-                        Map<String, Object> toMap = (Map<String, Object>) segment.getTo();
-                        Object latObj = toMap.get("lat");
-                        Object lngObj = toMap.get("lng");
-                        if (latObj instanceof Number && lngObj instanceof Number) {
-                            double lat = ((Number) latObj).doubleValue();
-                            double lng = ((Number) lngObj).doubleValue();
-                            points.add(new GeoPoint(lat, lng));
-                        }
-                    } else if (segment.getTo() instanceof String) {
-                        // It's a station name
-                        Station station = stationMap.get((String) segment.getTo());
-                        if (station != null) {
-                            points.add(new GeoPoint(station.getLatitude(), station.getLongitude()));
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                // If parsing fails, fall back to stations list if available
-                if (segment.getStations() != null && !segment.getStations().isEmpty()) {
-                    for (String stationName : segment.getStations()) {
-                        Station station = stationMap.get(stationName);
-                        if (station != null) {
-                            points.add(new GeoPoint(station.getLatitude(), station.getLongitude()));
-                        }
-                    }
+            } catch (IllegalArgumentException e) {
+                // Fall back to the station coordinates below
+            }
+        }
+
+        if (segment.isWalking()) {
+            // For walking segments, use from/to endpoints
+            addEndpointPoint(segment.getFrom(), points);
+            addEndpointPoint(segment.getTo(), points);
+
+            // Fall back to the stations list if neither endpoint could be placed
+            if (points.size() == 0 && segment.getStations() != null) {
+                for (String stationName : segment.getStations()) {
+                    addStationPoint(stationName, points);
                 }
             }
         } else {
             // For metro/bus segments, use stations list
             if (segment.getStations() != null && !segment.getStations().isEmpty()) {
                 for (String stationName : segment.getStations()) {
-                    Station station = stationMap.get(stationName);
-                    if (station != null) {
-                        points.add(new GeoPoint(station.getLatitude(), station.getLongitude()));
-                    }
+                    addStationPoint(stationName, points);
                 }
             }
         }
     }
 
-    private void zoomToRoute(MapView mapView, Route route) {
-        double minLat = 90, maxLat = -90, minLon = 180, maxLon = -180;
+    private void addEndpointPoint(RouteEndpoint endpoint, PolylineDecoder points) {
+        if (endpoint == null) {
+            return;
+        }
+        if (endpoint.isStation()) {
+            addStationPoint(endpoint.getStationName(), points);
+        } else {
+            points.add(endpoint.getLatitude(), endpoint.getLongitude());
+        }
+    }
 
-        for (RouteSegment segment : route.getSegments()) {
-            if (segment.getStations() != null) {
-                for (String stationName : segment.getStations()) {
-                    Station station = stationMap.get(stationName);
-                    if (station != null) {
-                        double lat = station.getLatitude();
-                        double lon = station.getLongitude();
-
-                        minLat = Math.min(minLat, lat);
-                        maxLat = Math.max(maxLat, lat);
-                        minLon = Math.min(minLon, lon);
-                        maxLon = Math.max(maxLon, lon);
-                    }
-                }
-            }
+    private void addStationPoint(String stationName, PolylineDecoder points) {
+        int id = stationIds.idOf(stationName);
+        if (id >= 0) {
+            points.add(stations.getLatitude(id), stations.getLongitude(id));
+        }
+    }
+
+    // The overlay keeps the points it is given, so they are created only here
+    private static List<GeoPoint> toGeoPoints(PolylineDecoder points) {
+        List<GeoPoint> geoPoints = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            geoPoints.add(new GeoPoint(points.getLatitude(i), points.getLongitude(i)));
         }
+        return geoPoints;
+    }
 
+    private void zoomToRoute(MapView mapView, double minLat, double maxLat, double minLon, double maxLon) {
         if (minLat != 90) {
             // Calculate center and zoom
             double centerLat = (minLat + maxLat) / 2;
@@ -11,6 +11,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
@@ -18,12 +19,13 @@ import com.riyadhtransport.R;
 import com.riyadhtransport.StationLinesActivity;
 import com.riyadhtransport.adapters.StationAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.ResponsePipeline;
+import com.riyadhtransport.data.Resource;
+import com.riyadhtransport.data.TransportRepository;
 import com.riyadhtransport.models.Station;
-import java.util.ArrayList;
+import com.riyadhtransport.models.StationLines;
 import java.util.List;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import retrofit2.HttpException;
 import com.riyadhtransport.utils.LocationHelper;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,6 +38,7 @@ public class StationsFragment extends Fragment {
     private LocationHelper locationHelper;
     private double currentLat = 0;
     private double currentLng = 0;
+    private LiveData<Resource<List<Station>>> nearbyStations;
     
     @Nullable
     @Override
@@ -109,28 +112,24 @@ public class StationsFragment extends Fragment {
     }
 
     public void fetchNearbyStations(double latitude, double longitude) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("lat", latitude);
-        body.put("lng", longitude);
-        body.put("radius", 1.5); // 1.5 km radius
+        if (getView() == null) {
+            // View already destroyed, e.g. a late location fix
+            return;
+        }
 
-        ApiClient.getApiService().getNearbyStations(body).enqueue(new Callback<List<Station>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Station>> call, 
-                                   @NonNull Response<List<Station>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    stationAdapter.setStations(response.body());
-                } else {
-                    Toast.makeText(requireContext(), 
-                            R.string.error_network, 
-                            Toast.LENGTH_SHORT).show();
-                }
-            }
-            
-            @Override
-            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
-                Toast.makeText(requireContext(), 
-                        getString(R.string.error_network) + ": " + t.getMessage(), 
+        // Stop following the previous position before showing the new one
+        if (nearbyStations != null) {
+            nearbyStations.removeObservers(getViewLifecycleOwner());
+        }
+
+        nearbyStations = TransportRepository.getInstance(requireContext())
+                .getNearbyStations(latitude, longitude, 1.5); // 1.5 km radius
+        nearbyStations.observe(getViewLifecycleOwner(), resource -> {
+            if (resource.getData() != null) {
+                stationAdapter.setStations(resource.getData());
+            } else if (resource.getError() != null) {
+                Toast.makeText(requireContext(),
+                        getString(R.string.error_network) + ": " + resource.getError().getMessage(),
                         Toast.LENGTH_SHORT).show();
             }
         });
@@ -140,58 +139,26 @@ public class StationsFragment extends Fragment {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("station_name", stationName);
         
-        ApiClient.getApiService().searchStation(requestBody).enqueue(new Callback<Map<String, Object>>() {
+        ResponsePipeline.enqueue(getViewLifecycleOwner(), "searchstation",
+                ApiClient.getApiService().searchStation(requestBody),
+                data -> StationLines.fromResponse(stationName, data),
+                new ResponsePipeline.Receiver<StationLines>() {
             @Override
-            public void onResponse(@NonNull Call<Map<String, Object>> call,
-                                   @NonNull Response<Map<String, Object>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> data = response.body();
-                    
-                    // Extract lines from response
-                    List<String> metroLines = new ArrayList<>();
-                    List<String> busLines = new ArrayList<>();
-                    
-                    if (data.containsKey("metro_lines")) {
-                        Object metroObj = data.get("metro_lines");
-                        if (metroObj instanceof List) {
-                            List<?> rawList = (List<?>) metroObj;
-                            for (Object item : rawList) {
-                                if (item instanceof String) {
-                                    metroLines.add((String) item);
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (data.containsKey("bus_lines")) {
-                        Object busObj = data.get("bus_lines");
-                        if (busObj instanceof List) {
-                            List<?> rawList = (List<?>) busObj;
-                            for (Object item : rawList) {
-                                if (item instanceof String) {
-                                    busLines.add((String) item);
-                                }
-                            }
-                        }
-                    }
-                    
-                    // Open activity to show lines passing through this station
-                    Intent intent = new Intent(requireContext(), StationLinesActivity.class);
-                    intent.putExtra("station_name", stationName);
-                    intent.putStringArrayListExtra("metro_lines", new ArrayList<>(metroLines));
-                    intent.putStringArrayListExtra("bus_lines", new ArrayList<>(busLines));
-                    startActivity(intent);
-                } else {
-                    Toast.makeText(requireContext(),
-                            R.string.error_network,
-                            Toast.LENGTH_SHORT).show();
-                }
+            public void onResult(StationLines lines) {
+                // Open activity to show lines passing through this station
+                Intent intent = new Intent(requireContext(), StationLinesActivity.class);
+                intent.putExtra("station_name", lines.getStationName());
+                intent.putStringArrayListExtra("metro_lines", lines.getMetroLines());
+                intent.putStringArrayListExtra("bus_lines", lines.getBusLines());
+                startActivity(intent);
             }
             
             @Override
-            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
+            public void onError(@NonNull Throwable t) {
                 Toast.makeText(requireContext(),
-                        getString(R.string.error_network) + ": " + t.getMessage(),
+                        t instanceof HttpException
+                                ? getString(R.string.error_network)
+                                : getString(R.string.error_network) + ": " + t.getMessage(),
                         Toast.LENGTH_SHORT).show();
             }
         });
@@ -0,0 +1,112 @@
+package com.riyadhtransport.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Station lists of a line from /viewmtr or /viewbus, as ids in
+ * {@link StationNames}. Metro lines have a single list named "stations", bus
+ * lines one per direction named after its terminal.
+ *
+ * The lists can also be read lazily from a {@link DirectionSource}: a
+ * direction is decoded the first time its stations are asked for, and the
+ * source is dropped once every direction has been decoded.
+ */
+public final class LineDetails {
+
+    public static final String METRO_STATIONS = "stations";
+
+    /**
+     * Decodes the station ids of one direction on demand
+     */
+    public interface DirectionSource {
+        int[] read(int direction);
+    }
+
+    private final String[] directions;
+    // Entries are null until decoded from the source
+    private final int[][] stationIds;
+    private DirectionSource source;
+    private int pending;
+
+    public LineDetails(String[] directions, int[][] stationIds) {
+        if (directions.length != stationIds.length) {
+            throw new IllegalArgumentException("Directions and station lists differ");
+        }
+        this.directions = directions;
+        this.stationIds = stationIds;
+    }
+
+    public LineDetails(String[] directions, DirectionSource source) {
+        this.directions = directions;
+        this.stationIds = new int[directions.length][];
+        this.source = directions.length > 0 ? source : null;
+        this.pending = directions.length;
+    }
+
+    public int getDirectionCount() {
+        return directions.length;
+    }
+
+    public String getDirection(int index) {
+        return directions[index];
+    }
+
+    public List<String> getDirections() {
+        List<String> list = new ArrayList<>(directions.length);
+        for (String direction : directions) {
+            list.add(direction);
+        }
+        return list;
+    }
+
+    /**
+     * Index of a direction, or of {@link #METRO_STATIONS}, or -1
+     */
+    public int indexOfDirection(String direction) {
+        for (int i = 0; i < directions.length; i++) {
+            if (directions[i].equals(direction)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized int[] getStationIds(int direction) {
+        int[] ids = stationIds[direction];
+        if (ids == null) {
+            ids = source.read(direction);
+            stationIds[direction] = ids;
+            if (--pending == 0) {
+                source = null;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Whether the direction has been decoded, always true without a source
+     */
+    public synchronized boolean isDecoded(int direction) {
+        return stationIds[direction] != null;
+    }
+
+    /**
+     * The source of the directions not decoded yet, or null
+     */
+    public synchronized DirectionSource getSource() {
+        return source;
+    }
+
+    public ArrayList<String> getStationNames(int direction) {
+        return StationNames.get().names(getStationIds(direction));
+    }
+
+    /**
+     * Station ids of a direction, empty when the line does not have it
+     */
+    public int[] getStationIds(String direction) {
+        int index = indexOfDirection(direction);
+        return index >= 0 ? getStationIds(index) : new int[0];
+    }
+}
@@ -0,0 +1,41 @@
+package com.riyadhtransport.models;
+
+/**
+ * Start or end of a route segment: either a station, referenced by name, or
+ * a coordinate such as the user's position or chosen destination
+ */
+public class RouteEndpoint {
+    private final String stationName;
+    private final double latitude;
+    private final double longitude;
+
+    private RouteEndpoint(String stationName, double latitude, double longitude) {
+        this.stationName = stationName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public static RouteEndpoint station(String stationName) {
+        return new RouteEndpoint(stationName, 0, 0);
+    }
+
+    public static RouteEndpoint coordinate(double latitude, double longitude) {
+        return new RouteEndpoint(null, latitude, longitude);
+    }
+
+    public boolean isStation() {
+        return stationName != null;
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+}
@@ -0,0 +1,31 @@
+package com.riyadhtransport.models;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+
+public class RouteResponse {
+    @SerializedName("routes")
+    private List<Route> routes;
+
+    @SerializedName("error")
+    private String error; // Set instead of routes when no route could be computed
+
+    public RouteResponse() {
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -20,10 +20,13 @@ public class RouteSegment {
     private Double distance; // in meters (for walking)
     
     @SerializedName("from")
-    private Object from; // Can be String or coordinate object
+    private RouteEndpoint from; // Station name or coordinate object on the wire
     
     @SerializedName("to")
-    private Object to; // Can be String or coordinate object
+    private RouteEndpoint to; // Station name or coordinate object on the wire
+    
+    @SerializedName("polyline")
+    private String polyline; // Encoded path geometry (Google polyline, 5 decimals), if sent
     
     public RouteSegment() {
     }
@@ -68,22 +71,30 @@ public class RouteSegment {
         this.distance = distance;
     }
     
-    public Object getFrom() {
+    public RouteEndpoint getFrom() {
         return from;
     }
     
-    public void setFrom(Object from) {
+    public void setFrom(RouteEndpoint from) {
         this.from = from;
     }
     
-    public Object getTo() {
+    public RouteEndpoint getTo() {
         return to;
     }
     
-    public void setTo(Object to) {
+    public void setTo(RouteEndpoint to) {
         this.to = to;
     }
     
+    public String getPolyline() {
+        return polyline;
+    }
+    
+    public void setPolyline(String polyline) {
+        this.polyline = polyline;
+    }
+    
     public boolean isWalking() {
         return "walk".equalsIgnoreCase(type);
     }
@@ -6,6 +6,7 @@ public class SearchResult {
     private double latitude;
     private double longitude;
     private boolean isStation;
+    private double score;
     
     public SearchResult() {
     }
@@ -49,4 +50,15 @@ public class SearchResult {
     public void setStation(boolean station) {
         isStation = station;
     }
+    
+    /**
+     * Rank within the results of one query, higher first
+     */
+    public double getScore() {
+        return score;
+    }
+    
+    public void setScore(double score) {
+        this.score = score;
+    }
 }
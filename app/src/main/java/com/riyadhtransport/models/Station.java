@@ -24,10 +24,10 @@ public class Station {
     private double longitude;
 
     @SerializedName("distance")
-    private Double distance; // Distance in meters
+    private double distance = Double.NaN; // Distance in meters, NaN when not provided
 
     @SerializedName("duration")
-    private Double duration; // Walking duration in seconds
+    private double duration = Double.NaN; // Walking duration in seconds, NaN when not provided
 
     
     public Station() {
@@ -104,19 +104,27 @@ public class Station {
         this.name = name;
     }
 
-    public Double getDistance() {
+    public boolean hasDistance() {
+        return !Double.isNaN(distance);
+    }
+
+    public double getDistance() {
         return distance;
     }
 
-    public void setDistance(Double distance) {
+    public void setDistance(double distance) {
         this.distance = distance;
     }
 
-    public Double getDuration() {
+    public boolean hasDuration() {
+        return !Double.isNaN(duration);
+    }
+
+    public double getDuration() {
         return duration;
     }
 
-    public void setDuration(Double duration) {
+    public void setDuration(double duration) {
         this.duration = duration;
     }
 }
@@ -0,0 +1,158 @@
+package com.riyadhtransport.models;
+
+import com.riyadhtransport.utils.TextNormalizer;
+import java.util.Arrays;
+
+/**
+ * Every known name of the stations of one {@link StationTable}, in English and
+ * Arabic, mapped to the station's id: its row in that table, which its unique
+ * value identifies. The table's own values and labels are added as they are;
+ * names from a catalog in another language are matched to a row by
+ * coordinates, since the server localizes the value too. Each name is also
+ * stored folded by {@link TextNormalizer}.
+ *
+ * Names live in an open-addressing table of parallel arrays, so a lookup
+ * hashes the name once, compares a few slots and allocates nothing; only a
+ * name missing in its exact form is folded and looked up again. Immutable once
+ * built.
+ */
+public final class StationAliases {
+
+    public static final StationAliases EMPTY = new Builder(StationTable.EMPTY).build();
+
+    // Names from another catalog are only taken for a station this close
+    private static final double MATCH_METERS = 5;
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final int[] ids;
+    private final int mask;
+    private final int size;
+
+    private StationAliases(String[] keys, int[] hashes, int[] ids, int size) {
+        this.keys = keys;
+        this.hashes = hashes;
+        this.ids = ids;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * Id of the station with this name in any known language, or -1
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int id = find(name);
+        return id >= 0 ? id : find(TextNormalizer.fold(name));
+    }
+
+    /**
+     * Number of distinct names, folded forms included
+     */
+    public int size() {
+        return size;
+    }
+
+    private int find(String name) {
+        int hash = name.hashCode();
+        for (int slot = mix(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && (keys[slot] == name || keys[slot].equals(name))) {
+                return ids[slot];
+            }
+        }
+        return -1;
+    }
+
+    // Spreads String hashes, whose low bits are weak for similar names
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Collects the names of a table, then of the same stations in other languages
+     */
+    public static final class Builder {
+        private final StationTable table;
+        private String[] names = new String[256];
+        private int[] nameIds = new int[256];
+        private int size;
+
+        public Builder(StationTable table) {
+            this.table = table;
+            for (int row = 0; row < table.size(); row++) {
+                add(table.getValue(row), row);
+                add(table.getLabel(row), row);
+            }
+        }
+
+        /**
+         * Adds the names of another language's catalog for every station that
+         * is at the same place in both
+         */
+        public Builder addLanguage(StationTable other) {
+            if (table.isEmpty()) {
+                return this;
+            }
+            StationGrid grid = table.getGrid();
+            for (int row = 0; row < other.size(); row++) {
+                StationGrid.Hits hits = grid.nearest(other.getLatitude(row), other.getLongitude(row),
+                        1, MATCH_METERS);
+                if (hits.size() > 0) {
+                    add(other.getValue(row), hits.getRow(0));
+                    add(other.getLabel(row), hits.getRow(0));
+                }
+            }
+            return this;
+        }
+
+        private void add(String name, int id) {
+            if (name == null) {
+                return;
+            }
+            if (size + 2 > names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+                nameIds = Arrays.copyOf(nameIds, nameIds.length * 2);
+            }
+            names[size] = name;
+            nameIds[size++] = id;
+            String folded = TextNormalizer.fold(name);
+            if (!folded.isEmpty() && !folded.equals(name)) {
+                names[size] = folded;
+                nameIds[size++] = id;
+            }
+        }
+
+        /**
+         * The first station added under a name keeps it
+         */
+        public StationAliases build() {
+            int capacity = 16;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            String[] keys = new String[capacity];
+            int[] hashes = new int[capacity];
+            int[] ids = new int[capacity];
+            int mask = capacity - 1;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                String name = names[i];
+                int hash = name.hashCode();
+                int slot = mix(hash) & mask;
+                while (keys[slot] != null && !(hashes[slot] == hash && keys[slot].equals(name))) {
+                    slot = (slot + 1) & mask;
+                }
+                if (keys[slot] == null) {
+                    keys[slot] = name;
+                    hashes[slot] = hash;
+                    ids[slot] = nameIds[i];
+                    count++;
+                }
+            }
+            return new StationAliases(keys, hashes, ids, count);
+        }
+    }
+}
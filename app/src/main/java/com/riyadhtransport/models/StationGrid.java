@@ -0,0 +1,304 @@
+package com.riyadhtransport.models;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the coordinates of a {@link StationTable}, for radius and
+ * k-nearest queries without scanning every station. Cells are about
+ * {@link #CELL_METERS} on a side and store their rows contiguously, so a query
+ * only measures the stations in the cells its circle touches. Distances are
+ * great-circle meters from {@link StationTable#distanceMeters}, as the server
+ * computes them.
+ *
+ * Built once per table and immutable; queries are thread-safe.
+ */
+public final class StationGrid {
+
+    public static final double CELL_METERS = 400;
+
+    private static final double METERS_PER_DEGREE = 111320;
+    // Keeps a catalog with stray far-away coordinates from allocating a huge grid
+    private static final int MAX_CELLS = 1 << 18;
+
+    private final StationTable table;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double latitudeStep;
+    private final double longitudeStep;
+    private final int columns;
+    private final int rows;
+    // Rows of cell c are cellRows[cellStart[c]] up to cellRows[cellStart[c + 1]]
+    private final int[] cellStart;
+    private final int[] cellRows;
+
+    StationGrid(StationTable table) {
+        this.table = table;
+        int size = table.size();
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < size; row++) {
+            minLat = Math.min(minLat, table.getLatitude(row));
+            maxLat = Math.max(maxLat, table.getLatitude(row));
+            minLng = Math.min(minLng, table.getLongitude(row));
+            maxLng = Math.max(maxLng, table.getLongitude(row));
+        }
+        if (size == 0) {
+            minLat = maxLat = minLng = maxLng = 0;
+        }
+
+        double cellMeters = CELL_METERS;
+        double cos = Math.max(0.01, Math.cos(Math.toRadians((minLat + maxLat) / 2)));
+        double latStep, lngStep;
+        long cells;
+        do {
+            latStep = cellMeters / METERS_PER_DEGREE;
+            lngStep = cellMeters / (METERS_PER_DEGREE * cos);
+            cells = ((long) ((maxLat - minLat) / latStep) + 1) * ((long) ((maxLng - minLng) / lngStep) + 1);
+            cellMeters *= 2;
+        } while (cells > MAX_CELLS);
+
+        this.minLatitude = minLat;
+        this.minLongitude = minLng;
+        this.latitudeStep = latStep;
+        this.longitudeStep = lngStep;
+        this.rows = (int) ((maxLat - minLat) / latStep) + 1;
+        this.columns = (int) ((maxLng - minLng) / lngStep) + 1;
+
+        // Counting sort of the rows by cell
+        int[] cellOf = new int[size];
+        cellStart = new int[rows * columns + 1];
+        for (int row = 0; row < size; row++) {
+            cellOf[row] = cell(table.getLatitude(row), table.getLongitude(row));
+            cellStart[cellOf[row] + 1]++;
+        }
+        for (int c = 0; c < rows * columns; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellRows = new int[size];
+        int[] next = Arrays.copyOf(cellStart, rows * columns);
+        for (int row = 0; row < size; row++) {
+            cellRows[next[cellOf[row]]++] = row;
+        }
+    }
+
+    /**
+     * Stations within the radius of a point, closest first
+     */
+    public Hits within(double latitude, double longitude, double radiusMeters) {
+        Hits hits = new Hits(16);
+        if (table.isEmpty()) {
+            return hits;
+        }
+        double latitudeSpan = radiusMeters / METERS_PER_DEGREE;
+        double longitudeSpan = radiusMeters
+                / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        int firstRow = clampRow(latitude - latitudeSpan);
+        int lastRow = clampRow(latitude + latitudeSpan);
+        int firstColumn = clampColumn(longitude - longitudeSpan);
+        int lastColumn = clampColumn(longitude + longitudeSpan);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int row = cellRows[i];
+                    double distance = StationTable.distanceMeters(latitude, longitude,
+                            table.getLatitude(row), table.getLongitude(row));
+                    if (distance <= radiusMeters) {
+                        hits.add(row, distance);
+                    }
+                }
+            }
+        }
+        hits.sort();
+        return hits;
+    }
+
+    /**
+     * The k stations closest to a point and no farther than maxMeters, closest first
+     */
+    public Hits nearest(double latitude, double longitude, int k, double maxMeters) {
+        Hits hits = new Hits(k);
+        if (table.isEmpty() || k <= 0) {
+            return hits;
+        }
+        int centerRow = (int) Math.floor((latitude - minLatitude) / latitudeStep);
+        int centerColumn = (int) Math.floor((longitude - minLongitude) / longitudeStep);
+        if (centerRow < 0 || centerRow >= rows || centerColumn < 0 || centerColumn >= columns) {
+            // The ring bound below assumes the point is inside the grid
+            return nearestByScan(latitude, longitude, k, maxMeters);
+        }
+
+        // Any station in ring n is at least n - 1 cells away; shrink a little
+        // for the curvature the flat cells ignore
+        double cellMeters = 0.99 * Math.min(latitudeStep * METERS_PER_DEGREE,
+                longitudeStep * METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        int maxRing = Math.max(Math.max(centerRow, rows - 1 - centerRow),
+                Math.max(centerColumn, columns - 1 - centerColumn));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringMeters = (ring - 1) * cellMeters;
+            if (ring > 0 && (ringMeters > maxMeters || hits.size == k && ringMeters > hits.worst())) {
+                break;
+            }
+            for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+                for (int c = centerColumn - ring; c <= centerColumn + ring;
+                     c += edgeRow || ring == 0 ? 1 : 2 * ring) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        offer(hits, k, maxMeters, cellRows[i], latitude, longitude);
+                    }
+                }
+            }
+        }
+        hits.sort();
+        return hits;
+    }
+
+    private Hits nearestByScan(double latitude, double longitude, int k, double maxMeters) {
+        Hits hits = new Hits(k);
+        for (int row = 0; row < table.size(); row++) {
+            offer(hits, k, maxMeters, row, latitude, longitude);
+        }
+        hits.sort();
+        return hits;
+    }
+
+    private void offer(Hits hits, int k, double maxMeters, int row, double latitude, double longitude) {
+        double distance = StationTable.distanceMeters(latitude, longitude,
+                table.getLatitude(row), table.getLongitude(row));
+        if (distance > maxMeters) {
+            return;
+        }
+        if (hits.size < k) {
+            hits.add(row, distance);
+        } else if (distance < hits.worst()) {
+            hits.replaceWorst(row, distance);
+        }
+    }
+
+    private int cell(double latitude, double longitude) {
+        return clampRow(latitude) * columns + clampColumn(longitude);
+    }
+
+    private int clampRow(double latitude) {
+        int row = (int) Math.floor((latitude - minLatitude) / latitudeStep);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private int clampColumn(double longitude) {
+        int column = (int) Math.floor((longitude - minLongitude) / longitudeStep);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * Table rows and their distance in meters from the query point
+     */
+    public static final class Hits {
+        private int[] rows;
+        private double[] distances;
+        private int size;
+
+        Hits(int capacity) {
+            rows = new int[Math.max(1, capacity)];
+            distances = new double[rows.length];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getRow(int index) {
+            return rows[index];
+        }
+
+        public double getDistance(int index) {
+            return distances[index];
+        }
+
+        public int[] getRows() {
+            return Arrays.copyOf(rows, size);
+        }
+
+        void add(int row, double distance) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            rows[size] = row;
+            distances[size] = distance;
+            size++;
+        }
+
+        // k is small, so the worst hit is found by a scan rather than kept in a heap
+        double worst() {
+            double worst = distances[0];
+            for (int i = 1; i < size; i++) {
+                worst = Math.max(worst, distances[i]);
+            }
+            return worst;
+        }
+
+        void replaceWorst(int row, double distance) {
+            int worst = 0;
+            for (int i = 1; i < size; i++) {
+                if (distances[i] > distances[worst]) {
+                    worst = i;
+                }
+            }
+            rows[worst] = row;
+            distances[worst] = distance;
+        }
+
+        void sort() {
+            sort(0, size - 1);
+        }
+
+        // Quicksort of the (distance, row) pairs, ties by row for a stable order
+        private void sort(int low, int high) {
+            while (low < high) {
+                if (high - low < 16) {
+                    for (int i = low + 1; i <= high; i++) {
+                        for (int j = i; j > low && less(j, j - 1); j--) {
+                            swap(j, j - 1);
+                        }
+                    }
+                    return;
+                }
+                swap((low + high) >>> 1, high);
+                int store = low;
+                for (int i = low; i < high; i++) {
+                    if (less(i, high)) {
+                        swap(i, store++);
+                    }
+                }
+                swap(store, high);
+                if (store - low < high - store) {
+                    sort(low, store - 1);
+                    low = store + 1;
+                } else {
+                    sort(store + 1, high);
+                    high = store - 1;
+                }
+            }
+        }
+
+        private boolean less(int a, int b) {
+            return distances[a] < distances[b] || distances[a] == distances[b] && rows[a] < rows[b];
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
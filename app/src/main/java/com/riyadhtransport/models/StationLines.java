@@ -0,0 +1,52 @@
+package com.riyadhtransport.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metro and bus lines through a station, from a /searchstation response
+ */
+public class StationLines {
+    private final String stationName;
+    private final ArrayList<String> metroLines;
+    private final ArrayList<String> busLines;
+
+    public StationLines(String stationName, ArrayList<String> metroLines, ArrayList<String> busLines) {
+        this.stationName = stationName;
+        this.metroLines = metroLines;
+        this.busLines = busLines;
+    }
+
+    /**
+     * Reads the line ids out of the loosely typed response, ignoring anything that is not a string
+     */
+    public static StationLines fromResponse(String stationName, Map<String, Object> response) {
+        return new StationLines(stationName, strings(response.get("metro_lines")),
+                strings(response.get("bus_lines")));
+    }
+
+    private static ArrayList<String> strings(Object value) {
+        ArrayList<String> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof String) {
+                    result.add((String) item);
+                }
+            }
+        }
+        return result;
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    public ArrayList<String> getMetroLines() {
+        return metroLines;
+    }
+
+    public ArrayList<String> getBusLines() {
+        return busLines;
+    }
+}
@@ -0,0 +1,89 @@
+package com.riyadhtransport.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide dictionary of station names. Every name from the station
+ * catalog, line payloads and the snapshot is stored once and given a compact
+ * int id, so line station lists can be kept as int[] and name lookups become
+ * id lookups.
+ *
+ * Ids are only valid within the process, never persist them or pass them to
+ * another process.
+ */
+public final class StationNames {
+
+    private static final StationNames INSTANCE = new StationNames();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    // Replaced when it grows, readers may use it without the lock
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    private StationNames() {
+    }
+
+    public static StationNames get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Id of the name, adding it if it is new
+     */
+    public synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+
+    /**
+     * Id of a known name, or -1
+     */
+    public synchronized int find(String name) {
+        Integer id = name != null ? ids.get(name) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * The stored copy of a name, so equal names share one String
+     */
+    public String canonical(String name) {
+        return name != null ? name(intern(name)) : null;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public ArrayList<String> names(int[] ids) {
+        String[] current = names;
+        ArrayList<String> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(current[id]);
+        }
+        return list;
+    }
+
+    public int[] intern(List<String> names) {
+        int[] result = new int[names.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(names.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,479 @@
+package com.riyadhtransport.models;
+
+import com.riyadhtransport.utils.FuzzyIndex;
+import com.riyadhtransport.utils.TextNormalizer;
+import com.riyadhtransport.utils.TrigramIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented station catalog for /api/stations. Coordinates and types are
+ * kept in parallel primitive arrays and names are dictionary-encoded, so the
+ * value and label of a station (usually the same text) share one String and
+ * there is no object per station. Name searches go through a
+ * {@link TrigramIndex}, or a {@link FuzzyIndex} for misspellings, and distance
+ * queries through a {@link StationGrid}.
+ * Names are the {@link StationNames} copies and rows can be looked up by their
+ * id there.
+ *
+ * Rows are read through {@link Row} views or the indexed getters. A table is
+ * immutable once built.
+ */
+public final class StationTable {
+
+    public static final byte TYPE_OTHER = 0;
+    public static final byte TYPE_METRO = 1;
+    public static final byte TYPE_BUS = 2;
+
+    public static final StationTable EMPTY = new Builder().build();
+
+    private static final int NO_NAME = -1;
+
+    private final int size;
+    private final String[] names;
+    // StationNames id of each entry in names
+    private final int[] nameIds;
+    private final int[] valueIds;
+    private final int[] labelIds;
+    private final byte[] types;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    // First row whose display name has each StationNames id, or -1
+    private final int[] rowById;
+    private volatile StationGrid grid;
+    private volatile TrigramIndex searchIndex;
+    private volatile FuzzyIndex fuzzyIndex;
+
+    private StationTable(int size, String[] names, int[] valueIds, int[] labelIds, byte[] types,
+                         double[] latitudes, double[] longitudes) {
+        this.size = size;
+        this.names = names;
+        this.valueIds = valueIds;
+        this.labelIds = labelIds;
+        this.types = types;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        StationNames dictionary = StationNames.get();
+        nameIds = new int[names.length];
+        int maxId = -1;
+        for (int i = 0; i < names.length; i++) {
+            nameIds[i] = dictionary.intern(names[i]);
+            names[i] = dictionary.name(nameIds[i]);
+            maxId = Math.max(maxId, nameIds[i]);
+        }
+        rowById = new int[maxId + 1];
+        Arrays.fill(rowById, -1);
+        for (int row = size - 1; row >= 0; row--) {
+            int nameId = displayNameId(row);
+            if (nameId != NO_NAME) {
+                rowById[nameIds[nameId]] = row;
+            }
+        }
+    }
+
+    /**
+     * Wraps columns that were already built, e.g. read from a snapshot. The
+     * arrays are used as is. Ids are -1 or an index into the names.
+     */
+    public static StationTable fromColumns(String[] names, int[] valueIds, int[] labelIds, byte[] types,
+                                           double[] latitudes, double[] longitudes) {
+        int size = valueIds.length;
+        if (labelIds.length != size || types.length != size
+                || latitudes.length != size || longitudes.length != size) {
+            throw new IllegalArgumentException("Column lengths differ");
+        }
+        for (int row = 0; row < size; row++) {
+            if (valueIds[row] < NO_NAME || valueIds[row] >= names.length
+                    || labelIds[row] < NO_NAME || labelIds[row] >= names.length) {
+                throw new IllegalArgumentException("Name id out of range at row " + row);
+            }
+        }
+        return new StationTable(size, names, valueIds, labelIds, types, latitudes, longitudes);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getValue(int row) {
+        return name(valueIds[row]);
+    }
+
+    public String getLabel(int row) {
+        return name(labelIds[row]);
+    }
+
+    /**
+     * Label, falling back to the value, as {@link Station#getDisplayName()}
+     */
+    public String getDisplayName(int row) {
+        return name(displayNameId(row));
+    }
+
+    public byte getTypeCode(int row) {
+        return types[row];
+    }
+
+    public String getType(int row) {
+        switch (types[row]) {
+            case TYPE_METRO:
+                return "metro";
+            case TYPE_BUS:
+                return "bus";
+            default:
+                return null;
+        }
+    }
+
+    public boolean isMetro(int row) {
+        return types[row] == TYPE_METRO;
+    }
+
+    public boolean isBus(int row) {
+        return types[row] == TYPE_BUS;
+    }
+
+    public double getLatitude(int row) {
+        return latitudes[row];
+    }
+
+    public double getLongitude(int row) {
+        return longitudes[row];
+    }
+
+    /**
+     * {@link StationNames} id of the display name, or -1 when there is none
+     */
+    public int getNameId(int row) {
+        int nameId = displayNameId(row);
+        return nameId != NO_NAME ? nameIds[nameId] : -1;
+    }
+
+    /**
+     * Row of the first station with this display name, or -1
+     */
+    public int indexOf(String displayName) {
+        return indexOfId(StationNames.get().find(displayName));
+    }
+
+    /**
+     * Row of the first station whose display name has this {@link StationNames} id, or -1
+     */
+    public int indexOfId(int nameId) {
+        return nameId >= 0 && nameId < rowById.length ? rowById[nameId] : -1;
+    }
+
+    public Row row(int row) {
+        return new Row(this).moveTo(row);
+    }
+
+    /**
+     * Reusable view positioned on no row, for scans that should not allocate per row
+     */
+    public Row cursor() {
+        return new Row(this);
+    }
+
+    /**
+     * Copy of a row as a standalone Station, for code that still needs one
+     */
+    public Station toStation(int row) {
+        return new Station(getValue(row), getLabel(row), getType(row), latitudes[row], longitudes[row]);
+    }
+
+    /**
+     * Display names of all rows, in row order
+     */
+    public List<String> getDisplayNames() {
+        List<String> list = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            list.add(getDisplayName(row));
+        }
+        return list;
+    }
+
+    /**
+     * Rows whose display name contains the query, folded as
+     * {@link TextNormalizer} does, best-matching names first and rows sharing a
+     * name in row order. Goes through {@link #getSearchIndex()}.
+     */
+    public int[] matching(String query) {
+        return rowsByName(getSearchIndex().search(query));
+    }
+
+    /**
+     * Rows whose display name is within a few typos of the query, as
+     * {@link FuzzyIndex} matches them, best first and metro stations before bus
+     * stops among equal matches. Goes through {@link #getFuzzyIndex()}.
+     */
+    public int[] fuzzyMatching(String query) {
+        return rowsByName(getFuzzyIndex().search(query));
+    }
+
+    /**
+     * Rows whose display name is one of the ranked names, best first and rows
+     * sharing a name in row order
+     */
+    private int[] rowsByName(int[] ranked) {
+        // Rank of each matching name, then a counting sort of the rows by it
+        int[] rankOf = new int[names.length];
+        Arrays.fill(rankOf, -1);
+        for (int rank = 0; rank < ranked.length; rank++) {
+            rankOf[ranked[rank]] = rank;
+        }
+        int[] start = new int[ranked.length + 1];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            int nameId = displayNameId(row);
+            if (nameId != NO_NAME && rankOf[nameId] >= 0) {
+                start[rankOf[nameId] + 1]++;
+                count++;
+            }
+        }
+        for (int rank = 0; rank < ranked.length; rank++) {
+            start[rank + 1] += start[rank];
+        }
+        int[] rows = new int[count];
+        for (int row = 0; row < size; row++) {
+            int nameId = displayNameId(row);
+            if (nameId != NO_NAME && rankOf[nameId] >= 0) {
+                rows[start[rankOf[nameId]]++] = row;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Name search index, one document per distinct name, built on first use.
+     * Costs a pass over every name, so warm it off the main thread.
+     */
+    public TrigramIndex getSearchIndex() {
+        TrigramIndex current = searchIndex;
+        if (current == null) {
+            synchronized (this) {
+                current = searchIndex;
+                if (current == null) {
+                    current = TrigramIndex.of(Arrays.asList(names));
+                    searchIndex = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Typo-tolerant name index, one document per distinct name, built on first
+     * use. The catalog has no ridership, so a name used by a metro station
+     * weighs more than one used only by bus stops. Warm it off the main thread.
+     */
+    public FuzzyIndex getFuzzyIndex() {
+        FuzzyIndex current = fuzzyIndex;
+        if (current == null) {
+            synchronized (this) {
+                current = fuzzyIndex;
+                if (current == null) {
+                    boolean[] metro = new boolean[names.length];
+                    for (int row = 0; row < size; row++) {
+                        int nameId = displayNameId(row);
+                        if (nameId != NO_NAME && types[row] == TYPE_METRO) {
+                            metro[nameId] = true;
+                        }
+                    }
+                    FuzzyIndex.Builder builder = new FuzzyIndex.Builder();
+                    for (int i = 0; i < names.length; i++) {
+                        builder.add(names[i], metro[i] ? 1 : 0);
+                    }
+                    current = builder.build();
+                    fuzzyIndex = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Rows within the radius of a point, closest first
+     */
+    public int[] nearest(double latitude, double longitude, double radiusMeters) {
+        return getGrid().within(latitude, longitude, radiusMeters).getRows();
+    }
+
+    /**
+     * Spatial index over the coordinates, built on first use
+     */
+    public StationGrid getGrid() {
+        StationGrid current = grid;
+        if (current == null) {
+            synchronized (this) {
+                current = grid;
+                if (current == null) {
+                    current = new StationGrid(this);
+                    grid = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6371000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private int displayNameId(int row) {
+        return labelIds[row] != NO_NAME ? labelIds[row] : valueIds[row];
+    }
+
+    private String name(int nameId) {
+        return nameId == NO_NAME ? null : names[nameId];
+    }
+
+    private static byte typeCode(String type) {
+        if ("metro".equalsIgnoreCase(type)) {
+            return TYPE_METRO;
+        } else if ("bus".equalsIgnoreCase(type)) {
+            return TYPE_BUS;
+        }
+        return TYPE_OTHER;
+    }
+
+    /**
+     * Flyweight over one row of a table, with the same getters as {@link Station}.
+     * {@link #moveTo(int)} repositions it, so one instance can serve a whole scan.
+     */
+    public static final class Row {
+        private final StationTable table;
+        private int index = -1;
+
+        private Row(StationTable table) {
+            this.table = table;
+        }
+
+        public Row moveTo(int index) {
+            if (index < 0 || index >= table.size) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + table.size);
+            }
+            this.index = index;
+            return this;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getValue() {
+            return table.getValue(index);
+        }
+
+        public String getLabel() {
+            return table.getLabel(index);
+        }
+
+        public String getDisplayName() {
+            return table.getDisplayName(index);
+        }
+
+        public String getType() {
+            return table.getType(index);
+        }
+
+        public boolean isMetro() {
+            return table.isMetro(index);
+        }
+
+        public boolean isBus() {
+            return table.isBus(index);
+        }
+
+        public double getLatitude() {
+            return table.latitudes[index];
+        }
+
+        public double getLongitude() {
+            return table.longitudes[index];
+        }
+
+        public Station toStation() {
+            return table.toStation(index);
+        }
+    }
+
+    /**
+     * Appends rows while the response streams in. Equal names are stored once,
+     * and build() sorts the name column as the snapshot's string table is
+     * sorted, so a parsed table and a loaded one rank equal matches alike.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private int size;
+        private int[] valueIds = new int[64];
+        private int[] labelIds = new int[64];
+        private byte[] types = new byte[64];
+        private double[] latitudes = new double[64];
+        private double[] longitudes = new double[64];
+
+        public Builder add(String value, String label, String type, double latitude, double longitude) {
+            if (size == types.length) {
+                int capacity = size * 2;
+                valueIds = Arrays.copyOf(valueIds, capacity);
+                labelIds = Arrays.copyOf(labelIds, capacity);
+                types = Arrays.copyOf(types, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            valueIds[size] = intern(value);
+            labelIds[size] = intern(label);
+            types[size] = typeCode(type);
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+            return this;
+        }
+
+        private int intern(String name) {
+            if (name == null) {
+                return NO_NAME;
+            }
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                id = names.size();
+                nameIds.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+        public StationTable build() {
+            String[] sorted = names.toArray(new String[0]);
+            Arrays.sort(sorted);
+            int[] sortedId = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sortedId[nameIds.get(sorted[i])] = i;
+            }
+            return new StationTable(size, sorted, remap(valueIds, sortedId),
+                    remap(labelIds, sortedId), Arrays.copyOf(types, size),
+                    Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size));
+        }
+
+        private int[] remap(int[] ids, int[] sortedId) {
+            int[] remapped = new int[size];
+            for (int row = 0; row < size; row++) {
+                remapped[row] = ids[row] == NO_NAME ? NO_NAME : sortedId[ids[row]];
+            }
+            return remapped;
+        }
+    }
+}
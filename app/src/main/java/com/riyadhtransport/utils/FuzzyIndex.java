@@ -0,0 +1,326 @@
+package com.riyadhtransport.utils;
+
+import java.util.Arrays;
+
+/**
+ * Typo-tolerant search over a fixed list of names, for when a substring search
+ * finds nothing, e.g. "Qasr al Hokm" for "Qasr Al-Hukm". Names are folded with
+ * {@link TextNormalizer} and split into words; the distinct words, plus each
+ * pair of adjacent words written together, form a trie. Every query word is
+ * matched by walking the trie with one row of the edit distance table per
+ * node (a Levenshtein automaton over the dictionary), pruning a branch as soon
+ * as its row exceeds the word's budget. Transposed letters count as one edit.
+ *
+ * A query word of up to two chars must match exactly, up to five chars allows
+ * one edit and longer words two. The last word may still be being typed, so
+ * it also matches the start of a name word. A name matches when every query
+ * word does; results rank the fewest total edits first, then the higher
+ * weight, then shorter names, then document order.
+ *
+ * Immutable once built and safe to query from any thread.
+ */
+public final class FuzzyIndex {
+
+    public static final FuzzyIndex EMPTY = new Builder().build();
+
+    private static final int NO_WORD = -1;
+
+    private final int[] lengths;
+    private final int[] weights;
+
+    // Trie in flat arrays; node 0 is the root
+    private final char[] nodeChar;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] nodeWord;
+    // Words under a node, in sorted order, are [subtreeFrom, subtreeTo)
+    private final int[] subtreeFrom;
+    private final int[] subtreeTo;
+    private final int maxDepth;
+
+    // Documents of word w are wordDocs[wordStart[w]] up to wordDocs[wordStart[w + 1]]
+    private final int[] wordStart;
+    private final int[] wordDocs;
+
+    private FuzzyIndex(String[] texts, int[] weights) {
+        this.weights = weights;
+        lengths = new int[texts.length];
+
+        // Every (word, document) pair, sorted by word then document
+        int pairs = 0;
+        String[][] words = new String[texts.length][];
+        for (int doc = 0; doc < texts.length; doc++) {
+            lengths[doc] = texts[doc].length();
+            words[doc] = dictionaryWords(texts[doc]);
+            pairs += words[doc].length;
+        }
+        String[] pairWord = new String[pairs];
+        int[] pairDoc = new int[pairs];
+        int count = 0;
+        for (int doc = 0; doc < texts.length; doc++) {
+            for (String word : words[doc]) {
+                pairWord[count] = word;
+                pairDoc[count] = doc;
+                count++;
+            }
+        }
+        Integer[] order = new Integer[pairs];
+        for (int i = 0; i < pairs; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byWord = pairWord[a].compareTo(pairWord[b]);
+            return byWord != 0 ? byWord : pairDoc[a] - pairDoc[b];
+        });
+
+        String[] distinct = new String[pairs];
+        int[] start = new int[pairs + 1];
+        int[] docs = new int[pairs];
+        int wordCount = 0;
+        int docCount = 0;
+        for (int i = 0; i < pairs; i++) {
+            String word = pairWord[order[i]];
+            int doc = pairDoc[order[i]];
+            if (wordCount == 0 || !word.equals(distinct[wordCount - 1])) {
+                distinct[wordCount] = word;
+                start[wordCount] = docCount;
+                wordCount++;
+            } else if (docs[docCount - 1] == doc) {
+                continue;
+            }
+            docs[docCount++] = doc;
+        }
+        start[wordCount] = docCount;
+        wordStart = Arrays.copyOf(start, wordCount + 1);
+        wordDocs = Arrays.copyOf(docs, docCount);
+
+        // Sorted insertion keeps the words under any node contiguous
+        int capacity = 1;
+        int depth = 0;
+        for (int w = 0; w < wordCount; w++) {
+            capacity += distinct[w].length();
+            depth = Math.max(depth, distinct[w].length());
+        }
+        maxDepth = depth;
+        char[] chars = new char[capacity];
+        int[] child = new int[capacity];
+        int[] sibling = new int[capacity];
+        int[] word = new int[capacity];
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        Arrays.fill(child, -1);
+        Arrays.fill(sibling, -1);
+        Arrays.fill(word, NO_WORD);
+        int nodes = 1;
+        to[0] = wordCount;
+        for (int w = 0; w < wordCount; w++) {
+            int node = 0;
+            for (int i = 0; i < distinct[w].length(); i++) {
+                char c = distinct[w].charAt(i);
+                // Children are added in sorted order, so the match is the first
+                int next = child[node];
+                if (next < 0 || chars[next] != c) {
+                    next = nodes++;
+                    chars[next] = c;
+                    from[next] = w;
+                    sibling[next] = child[node];
+                    child[node] = next;
+                }
+                to[next] = w + 1;
+                node = next;
+            }
+            word[node] = w;
+        }
+        nodeChar = Arrays.copyOf(chars, nodes);
+        firstChild = Arrays.copyOf(child, nodes);
+        nextSibling = Arrays.copyOf(sibling, nodes);
+        nodeWord = Arrays.copyOf(word, nodes);
+        subtreeFrom = Arrays.copyOf(from, nodes);
+        subtreeTo = Arrays.copyOf(to, nodes);
+    }
+
+    public int size() {
+        return lengths.length;
+    }
+
+    /**
+     * Documents matching every word of the query within its edit budget, best
+     * first. A query that folds to nothing matches nothing.
+     */
+    public int[] search(CharSequence query) {
+        String folded = TextNormalizer.fold(query);
+        if (folded.isEmpty() || lengths.length == 0) {
+            return new int[0];
+        }
+        String[] tokens = folded.split(" ");
+        // A trailing separator means the last word is complete
+        boolean lastIsPrefix = TextNormalizer.foldChar(query.charAt(query.length() - 1)) != ' ';
+
+        int[] total = new int[lengths.length];
+        int[] distances = new int[lengths.length];
+        Search search = new Search();
+        for (int t = 0; t < tokens.length; t++) {
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            search.run(tokens[t], budget(tokens[t].length()), lastIsPrefix && t == tokens.length - 1, distances);
+            boolean any = false;
+            for (int doc = 0; doc < total.length; doc++) {
+                if (total[doc] >= 0 && distances[doc] != Integer.MAX_VALUE) {
+                    total[doc] += distances[doc];
+                    any = true;
+                } else {
+                    total[doc] = -1;
+                }
+            }
+            if (!any) {
+                return new int[0];
+            }
+        }
+
+        // Rank key: edits, then weight (higher first), then length, then document
+        long[] keys = new long[lengths.length];
+        int matches = 0;
+        for (int doc = 0; doc < total.length; doc++) {
+            if (total[doc] >= 0) {
+                long edits = Math.min(total[doc], 0xFF);
+                long weight = 0x3FF - Math.max(0, Math.min(weights[doc], 0x3FF));
+                long length = Math.min(lengths[doc], 0x3FF);
+                keys[matches++] = edits << 52 | weight << 42 | length << 32 | doc;
+            }
+        }
+        Arrays.sort(keys, 0, matches);
+        int[] result = new int[matches];
+        for (int i = 0; i < matches; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    static int budget(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Name words and each pair of adjacent words joined, so "al hukm" in a
+     * name also matches "alhukm"
+     */
+    private static String[] dictionaryWords(String text) {
+        if (text.isEmpty()) {
+            return new String[0];
+        }
+        String[] words = text.split(" ");
+        String[] all = Arrays.copyOf(words, words.length * 2 - 1);
+        for (int i = 0; i + 1 < words.length; i++) {
+            all[words.length + i] = words[i] + words[i + 1];
+        }
+        return all;
+    }
+
+    /**
+     * One query word's walk of the trie, reusing its rows between words
+     */
+    private final class Search {
+        private int[][] rows = new int[0][];
+        private String token;
+        private int budget;
+        private boolean prefix;
+        private int[] distances;
+
+        void run(String token, int budget, boolean prefix, int[] distances) {
+            this.token = token;
+            this.budget = budget;
+            this.prefix = prefix;
+            this.distances = distances;
+            int columns = token.length() + 1;
+            if (rows.length < maxDepth + 1 || rows[0].length < columns) {
+                rows = new int[maxDepth + 1][columns];
+            }
+            for (int j = 0; j < columns; j++) {
+                rows[0][j] = j;
+            }
+            for (int node = firstChild[0]; node >= 0; node = nextSibling[node]) {
+                visit(node, 1, (char) 0, 0, Integer.MAX_VALUE);
+            }
+        }
+
+        /**
+         * aboveMin is the smallest value of the parent's row; marked is the
+         * distance a prefix match already gave the whole subtree
+         */
+        private void visit(int node, int depth, char parentChar, int aboveMin, int marked) {
+            char c = nodeChar[node];
+            int n = token.length();
+            int[] row = rows[depth];
+            int[] above = rows[depth - 1];
+            row[0] = depth;
+            int rowMin = depth;
+            for (int j = 1; j <= n; j++) {
+                char q = token.charAt(j - 1);
+                int value = Math.min(Math.min(above[j] + 1, row[j - 1] + 1),
+                        above[j - 1] + (q == c ? 0 : 1));
+                if (depth > 1 && j > 1 && q == parentChar && token.charAt(j - 2) == c) {
+                    value = Math.min(value, rows[depth - 2][j - 2] + 1);
+                }
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+
+            int distance = row[n];
+            if (distance <= budget) {
+                if (prefix && distance < marked) {
+                    mark(node, distance);
+                    marked = distance;
+                } else if (!prefix && nodeWord[node] != NO_WORD) {
+                    markWord(nodeWord[node], distance);
+                }
+            }
+            // A transposition can reach back one more row, so that row bounds it too
+            if (Math.min(rowMin, aboveMin + 1) > budget || marked == 0) {
+                return;
+            }
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                visit(child, depth + 1, c, rowMin, marked);
+            }
+        }
+
+        private void mark(int node, int distance) {
+            for (int w = subtreeFrom[node]; w < subtreeTo[node]; w++) {
+                markWord(w, distance);
+            }
+        }
+
+        private void markWord(int word, int distance) {
+            for (int i = wordStart[word]; i < wordStart[word + 1]; i++) {
+                if (distance < distances[wordDocs[i]]) {
+                    distances[wordDocs[i]] = distance;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds documents in order; the first is document 0
+     */
+    public static final class Builder {
+        private String[] texts = new String[64];
+        private int[] weights = new int[64];
+        private int size;
+
+        /**
+         * Adds a document; a higher weight ranks it first among equal matches
+         */
+        public Builder add(String text, int weight) {
+            if (size == texts.length) {
+                texts = Arrays.copyOf(texts, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            texts[size] = TextNormalizer.fold(text);
+            weights[size] = weight;
+            size++;
+            return this;
+        }
+
+        public FuzzyIndex build() {
+            return new FuzzyIndex(Arrays.copyOf(texts, size), Arrays.copyOf(weights, size));
+        }
+    }
+}
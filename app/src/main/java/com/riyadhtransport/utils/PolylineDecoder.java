@@ -0,0 +1,173 @@
+package com.riyadhtransport.utils;
+
+import java.util.Arrays;
+
+/**
+ * Decodes Google encoded polylines into parallel latitude and longitude arrays
+ * that are kept between calls, so decoding a route or a full line shape does
+ * not allocate per point. Points from several polylines, or single coordinates
+ * added with {@link #add}, accumulate until {@link #clear()}, and the bounds of
+ * everything added are tracked alongside.
+ *
+ * Route segments use the usual precision of 5 decimals; pass 6 for shapes
+ * encoded at a finer precision. Not thread-safe; use one instance per thread.
+ */
+public final class PolylineDecoder {
+
+    public static final int PRECISION_5 = 5;
+    public static final int PRECISION_6 = 6;
+
+    private final double factor;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int size;
+    // Read position in the polyline being appended
+    private int cursor;
+    private double minLatitude, maxLatitude, minLongitude, maxLongitude;
+
+    public PolylineDecoder() {
+        this(PRECISION_5);
+    }
+
+    public PolylineDecoder(int precision) {
+        this.factor = Math.pow(10, precision);
+        this.latitudes = new double[64];
+        this.longitudes = new double[64];
+        clear();
+    }
+
+    /**
+     * Forgets all points but keeps the buffers
+     */
+    public void clear() {
+        size = 0;
+        minLatitude = Double.POSITIVE_INFINITY;
+        maxLatitude = Double.NEGATIVE_INFINITY;
+        minLongitude = Double.POSITIVE_INFINITY;
+        maxLongitude = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Appends the points of an encoded polyline and returns how many were
+     * added. A malformed polyline adds nothing and throws.
+     */
+    public int append(String encoded) {
+        int start = size;
+        double[] bounds = {minLatitude, maxLatitude, minLongitude, maxLongitude};
+        cursor = 0;
+        long latitude = 0;
+        long longitude = 0;
+        try {
+            while (cursor < encoded.length()) {
+                latitude += nextValue(encoded);
+                longitude += nextValue(encoded);
+                add(latitude / factor, longitude / factor);
+            }
+        } catch (IllegalArgumentException e) {
+            size = start;
+            minLatitude = bounds[0];
+            maxLatitude = bounds[1];
+            minLongitude = bounds[2];
+            maxLongitude = bounds[3];
+            throw e;
+        }
+        return size - start;
+    }
+
+    /**
+     * Reads one zig-zag encoded varint of 5-bit groups, each offset by 63
+     */
+    private long nextValue(String encoded) {
+        long value = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (cursor >= encoded.length() || shift > 60) {
+                throw new IllegalArgumentException("Truncated polyline at " + cursor);
+            }
+            chunk = encoded.charAt(cursor) - 63;
+            if (chunk < 0 || chunk > 63) {
+                throw new IllegalArgumentException("Invalid polyline character at " + cursor);
+            }
+            cursor++;
+            value |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (value & 1) != 0 ? ~(value >> 1) : value >> 1;
+    }
+
+    /**
+     * Appends one point, e.g. a station used where no polyline was sent
+     */
+    public void add(double latitude, double longitude) {
+        if (size == latitudes.length) {
+            latitudes = Arrays.copyOf(latitudes, size * 2);
+            longitudes = Arrays.copyOf(longitudes, size * 2);
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+        minLatitude = Math.min(minLatitude, latitude);
+        maxLatitude = Math.max(maxLatitude, latitude);
+        minLongitude = Math.min(minLongitude, longitude);
+        maxLongitude = Math.max(maxLongitude, longitude);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * Bounds of every point added since the last clear; infinite while empty
+     */
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    /**
+     * Encodes points at this decoder's precision, the inverse of {@link #append}
+     */
+    public String encode(double[] latitudes, double[] longitudes, int count) {
+        StringBuilder out = new StringBuilder(count * 8);
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        for (int i = 0; i < count; i++) {
+            long latitude = Math.round(latitudes[i] * factor);
+            long longitude = Math.round(longitudes[i] * factor);
+            encodeValue(latitude - previousLatitude, out);
+            encodeValue(longitude - previousLongitude, out);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+        }
+        return out.toString();
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long zigzag = value < 0 ? ~(value << 1) : value << 1;
+        while (zigzag >= 0x20) {
+            out.append((char) ((0x20 | (zigzag & 0x1f)) + 63));
+            zigzag >>= 5;
+        }
+        out.append((char) (zigzag + 63));
+    }
+}
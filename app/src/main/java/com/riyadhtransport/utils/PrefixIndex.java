@@ -0,0 +1,176 @@
+package com.riyadhtransport.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Prefix search over a fixed set of names that matches at the start of any
+ * word, so "fahd" finds "King Fahd Rd 6". Names and queries are folded with
+ * {@link TextNormalizer}, as in the other station searches, so case, accents
+ * and Arabic spelling variants match. Every word start of every folded name is
+ * one entry in a sorted suffix array over a single char buffer; a query is a
+ * binary search for its range plus a ranking pass over that range only.
+ *
+ * Results rank matches at the start of the name first, then shorter names,
+ * then alphabetically. Immutable once built and safe to query from any thread.
+ */
+public final class PrefixIndex {
+
+    public static final PrefixIndex EMPTY = new PrefixIndex(new ArrayList<>());
+
+    private final String[] names;
+    // Folded names back to back, name i at [nameStart[i], nameStart[i + 1])
+    private final char[] text;
+    private final int[] nameStart;
+    // Offsets in text of every word start, sorted by the text that follows
+    private final int[] suffixes;
+    private final int[] suffixName;
+
+    /**
+     * Builds the index; duplicates and nulls are dropped. Costs a sort of all
+     * word starts, so build it off the main thread.
+     */
+    public PrefixIndex(Collection<String> names) {
+        TreeSet<String> unique = new TreeSet<>();
+        for (String name : names) {
+            if (name != null && !name.isEmpty()) {
+                unique.add(name);
+            }
+        }
+        this.names = unique.toArray(new String[0]);
+
+        String[] folded = new String[this.names.length];
+        nameStart = new int[this.names.length + 1];
+        for (int i = 0; i < this.names.length; i++) {
+            folded[i] = TextNormalizer.fold(this.names[i]);
+            nameStart[i + 1] = nameStart[i] + folded[i].length();
+        }
+        text = new char[nameStart[this.names.length]];
+        int[] starts = new int[text.length];
+        int[] owners = new int[text.length];
+        int count = 0;
+        for (int i = 0; i < this.names.length; i++) {
+            String name = folded[i];
+            name.getChars(0, name.length(), text, nameStart[i]);
+            for (int c = 0; c < name.length(); c++) {
+                // Folded words are separated by exactly one space
+                if (name.charAt(c) != ' ' && (c == 0 || name.charAt(c - 1) == ' ')) {
+                    starts[count] = nameStart[i] + c;
+                    owners[count] = i;
+                    count++;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareSuffixes(starts[a], owners[a], starts[b], owners[b]));
+        suffixes = new int[count];
+        suffixName = new int[count];
+        for (int i = 0; i < count; i++) {
+            suffixes[i] = starts[order[i]];
+            suffixName[i] = owners[order[i]];
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Up to limit names with a word starting with the prefix, best first
+     */
+    public List<String> search(CharSequence prefix, int limit) {
+        String query = TextNormalizer.fold(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int from = lowerBound(query);
+        int to = from;
+        while (to < suffixes.length && startsWith(suffixes[to], suffixName[to], query)) {
+            to++;
+        }
+
+        // Rank key: name-start matches first, then length, then the sorted name order
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            int name = suffixName[i];
+            long tier = suffixes[i] == nameStart[name] ? 0 : 1;
+            long length = Math.min(names[name].length(), 0xFFFFF);
+            keys[i - from] = tier << 52 | length << 32 | name;
+        }
+        Arrays.sort(keys);
+
+        List<String> results = new ArrayList<>(Math.min(limit, keys.length));
+        boolean[] seen = new boolean[names.length];
+        for (long key : keys) {
+            int name = (int) key;
+            if (!seen[name]) {
+                // The first key of a name is its best match
+                seen[name] = true;
+                results.add(names[name]);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private int lowerBound(String query) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToQuery(suffixes[mid], suffixName[mid], query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWith(int offset, int name, String query) {
+        int end = nameStart[name + 1];
+        if (end - offset < query.length()) {
+            return false;
+        }
+        for (int i = 0; i < query.length(); i++) {
+            if (text[offset + i] != query.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int compareToQuery(int offset, int name, String query) {
+        int end = nameStart[name + 1];
+        int length = Math.min(end - offset, query.length());
+        for (int i = 0; i < length; i++) {
+            int diff = text[offset + i] - query.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (end - offset) - query.length();
+    }
+
+    private int compareSuffixes(int a, int nameA, int b, int nameB) {
+        int endA = nameStart[nameA + 1];
+        int endB = nameStart[nameB + 1];
+        int length = Math.min(endA - a, endB - b);
+        for (int i = 0; i < length; i++) {
+            int diff = text[a + i] - text[b + i];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (endA - a) - (endB - b);
+    }
+}
@@ -0,0 +1,176 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.SearchResult;
+import com.riyadhtransport.models.StationTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Orders the combined station and Nominatim results of one query. A result's
+ * score mixes how well its name matches the query, how close it is to the
+ * user's last fix and how important the place is (a metro station over a bus
+ * stop, Nominatim's own importance for places), so local and remote hits can
+ * be merged into one list as each arrives.
+ */
+public final class SearchRanker {
+
+    private static final double MATCH_WEIGHT = 0.6;
+    private static final double DISTANCE_WEIGHT = 0.25;
+    private static final double IMPORTANCE_WEIGHT = 0.15;
+    // Proximity halves every this many meters from the user
+    private static final double HALF_PROXIMITY_METERS = 5000;
+    // A place this close to a listed station, with the same name, is taken to be that station
+    private static final double SAME_PLACE_METERS = 75;
+    // Words that only say what kind of stop a name is, "Olaya (Metro)" and
+    // "Olaya Metro Station" are the same stop but "Granada Mall" is not "Granada (Metro)"
+    private static final Set<String> STOP_WORDS = new HashSet<>();
+
+    static {
+        for (String word : Arrays.asList("metro", "station", "bus", "stop",
+                "مترو", "محطة", "حافلات", "حافلة", "موقف")) {
+            STOP_WORDS.add(TextNormalizer.fold(word));
+        }
+    }
+
+    public static final double METRO_IMPORTANCE = 1.0;
+    public static final double BUS_IMPORTANCE = 0.6;
+
+    private static final Comparator<SearchResult> BEST_FIRST =
+            (a, b) -> Double.compare(b.getScore(), a.getScore());
+
+    private final String query;
+    private final boolean hasLocation;
+    private final double latitude;
+    private final double longitude;
+
+    /**
+     * Without a fix, pass NaN coordinates and distance does not count
+     */
+    public SearchRanker(String query, double latitude, double longitude) {
+        this.query = TextNormalizer.fold(query);
+        this.hasLocation = !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Sets the score of a result; importance is 0 to 1
+     */
+    public void score(SearchResult result, double importance) {
+        double proximity = 0;
+        if (hasLocation) {
+            double meters = StationTable.distanceMeters(latitude, longitude,
+                    result.getLatitude(), result.getLongitude());
+            proximity = HALF_PROXIMITY_METERS / (HALF_PROXIMITY_METERS + meters);
+        }
+        result.setScore(MATCH_WEIGHT * matchQuality(result.getName())
+                + DISTANCE_WEIGHT * proximity
+                + IMPORTANCE_WEIGHT * Math.max(0, Math.min(1, importance)));
+    }
+
+    /**
+     * 1 for the whole name, less for a match at its start, at a word start or
+     * inside a word, and least for a name that does not contain the query,
+     * e.g. a fuzzy or Nominatim hit
+     */
+    double matchQuality(String name) {
+        String folded = TextNormalizer.fold(name);
+        if (query.isEmpty() || folded.isEmpty()) {
+            return 0;
+        }
+        if (folded.equals(query)) {
+            return 1;
+        }
+        if (folded.startsWith(query)) {
+            return 0.85;
+        }
+        int at = folded.indexOf(query);
+        if (at > 0) {
+            return folded.charAt(at - 1) == ' ' ? 0.7 : 0.5;
+        }
+        return 0.25;
+    }
+
+    /**
+     * Scored results, best first; equal scores keep their order
+     */
+    public List<SearchResult> rank(List<SearchResult> results) {
+        List<SearchResult> ranked = new ArrayList<>(results);
+        Collections.sort(ranked, BEST_FIRST);
+        return ranked;
+    }
+
+    /**
+     * The ranked list with scored places merged in, dropping places that are
+     * one of the listed stations: close to it and named after it
+     */
+    public List<SearchResult> merge(List<SearchResult> ranked, List<SearchResult> places) {
+        List<SearchResult> merged = new ArrayList<>(ranked.size() + places.size());
+        merged.addAll(ranked);
+        for (SearchResult place : places) {
+            if (!isListedStation(ranked, place)) {
+                merged.add(place);
+            }
+        }
+        Collections.sort(merged, BEST_FIRST);
+        return merged;
+    }
+
+    private static boolean isListedStation(List<SearchResult> ranked, SearchResult place) {
+        List<String> placeName = null;
+        for (SearchResult result : ranked) {
+            if (result.isStation() && StationTable.distanceMeters(result.getLatitude(),
+                    result.getLongitude(), place.getLatitude(), place.getLongitude()) < SAME_PLACE_METERS) {
+                if (placeName == null) {
+                    placeName = nameWords(firstPart(place.getName()));
+                }
+                if (!placeName.isEmpty() && placeName.equals(nameWords(result.getName()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The place itself from a Nominatim display name, without the district,
+     * city and country that follow it
+     */
+    static String firstPart(String displayName) {
+        if (displayName == null) {
+            return "";
+        }
+        int end = displayName.length();
+        int comma = displayName.indexOf(',');
+        int arabicComma = displayName.indexOf('\u060C');
+        if (comma >= 0) {
+            end = comma;
+        }
+        if (arabicComma >= 0 && arabicComma < end) {
+            end = arabicComma;
+        }
+        return displayName.substring(0, end);
+    }
+
+    /**
+     * Folded words of a name without the ones naming the kind of stop
+     */
+    static List<String> nameWords(String name) {
+        String folded = TextNormalizer.fold(name);
+        List<String> words = new ArrayList<>();
+        if (folded.isEmpty()) {
+            return words;
+        }
+        for (String word : folded.split(" ")) {
+            if (!STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,104 @@
+package com.riyadhtransport.utils;
+
+import java.text.Normalizer;
+
+/**
+ * Folds station and line names, and what users type, to one searchable
+ * spelling. Latin text is lowercased with accents removed. Arabic loses its
+ * tashkeel and tatweel, alef forms fold to ا, ة to ه, ى and ئ to ي, ؤ to و,
+ * and Persian keheh and yeh to their Arabic letters. Arabic-Indic digits
+ * become ASCII. Anything that is not a letter or digit becomes one space, and
+ * the result is trimmed.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    public static String fold(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = foldChar(text.charAt(i));
+            if (c == 0) {
+                // Dropped mark, the word goes on
+                continue;
+            }
+            if (c == ' ') {
+                if (!space) {
+                    out.append(' ');
+                    space = true;
+                }
+            } else {
+                out.append(c);
+                space = false;
+            }
+        }
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') {
+            out.setLength(length - 1);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Folded form of one char, ' ' for a separator or 0 when it is dropped
+     */
+    static char foldChar(char c) {
+        if (c < 0x80) {
+            if (c >= 'A' && c <= 'Z') {
+                return (char) (c + ('a' - 'A'));
+            }
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : ' ';
+        }
+        switch (c) {
+            case '\u0622': // alef with madda
+            case '\u0623': // alef with hamza above
+            case '\u0625': // alef with hamza below
+            case '\u0671': // alef wasla
+                return '\u0627';
+            case '\u0629': // teh marbuta to heh
+                return '\u0647';
+            case '\u0649': // alef maksura
+            case '\u0626': // yeh with hamza
+            case '\u06CC': // Persian yeh
+                return '\u064A';
+            case '\u0624': // waw with hamza
+                return '\u0648';
+            case '\u06A9': // Persian keheh to kaf
+                return '\u0643';
+            case '\u0640': // tatweel
+            case '\u0670': // superscript alef
+                return 0;
+            default:
+                break;
+        }
+        if (c >= '\u064B' && c <= '\u065F') {
+            // Tashkeel
+            return 0;
+        }
+        if (c >= '\u0660' && c <= '\u0669') {
+            return (char) ('0' + (c - '\u0660'));
+        }
+        if (c >= '\u06F0' && c <= '\u06F9') {
+            return (char) ('0' + (c - '\u06F0'));
+        }
+        if (c >= '\u0600' && c <= '\u06FF') {
+            return Character.isLetter(c) ? c : ' ';
+        }
+        if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            return 0;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return ' ';
+        }
+        if (c >= '\u00C0' && c <= '\u024F') {
+            // Latin with accents: keep the base letter
+            c = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        }
+        return Character.toLowerCase(c);
+    }
+}
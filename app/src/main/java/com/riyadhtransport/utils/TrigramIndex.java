@@ -0,0 +1,268 @@
+package com.riyadhtransport.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Substring search over a fixed list of documents, each one or more short
+ * fields such as a station name or a line's id and name. Text is folded with
+ * {@link TextNormalizer}, so Arabic spelling variants and case match. Every
+ * three-char gram of every field has a sorted posting list of the documents
+ * containing it; a query intersects the lists of its own grams, smallest
+ * first, and checks the few candidates left. Queries shorter than a gram scan
+ * the folded text instead.
+ *
+ * Results rank a field equal to the query first, then a match at the start
+ * of a field, then at the start of a word, then shorter documents, then
+ * document order. Immutable once built and safe to query from any thread.
+ */
+public final class TrigramIndex {
+
+    public static final TrigramIndex EMPTY = new Builder().build();
+
+    // Joins the fields of a document; fold() never outputs it, so no gram or
+    // query spans two fields
+    private static final char FIELD_SEPARATOR = '\n';
+
+    // Folded text of each document, fields joined by FIELD_SEPARATOR
+    private final String[] texts;
+    // Sorted distinct grams, each three chars packed into a long
+    private final long[] grams;
+    // Documents of gram g are postings[postingStart[g]] up to postings[postingStart[g + 1]]
+    private final int[] postingStart;
+    private final int[] postings;
+
+    private TrigramIndex(String[] texts) {
+        this.texts = texts;
+
+        int total = 0;
+        for (String text : texts) {
+            total += Math.max(0, text.length() - 2);
+        }
+        long[] all = new long[total];
+        int count = 0;
+        for (String text : texts) {
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                long gram = gram(text, i);
+                if (gram >= 0) {
+                    all[count++] = gram;
+                }
+            }
+        }
+        Arrays.sort(all, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || all[i] != all[unique - 1]) {
+                all[unique++] = all[i];
+            }
+        }
+        grams = Arrays.copyOf(all, unique);
+
+        // Counting sort of (gram, document) pairs; documents are visited in
+        // order, so each list comes out sorted and a repeat is the last entry
+        int[] lastDocument = new int[unique];
+        Arrays.fill(lastDocument, -1);
+        postingStart = new int[unique + 1];
+        for (int doc = 0; doc < texts.length; doc++) {
+            String text = texts[doc];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                int g = indexOfGram(text, i);
+                if (g >= 0 && lastDocument[g] != doc) {
+                    lastDocument[g] = doc;
+                    postingStart[g + 1]++;
+                }
+            }
+        }
+        for (int g = 0; g < unique; g++) {
+            postingStart[g + 1] += postingStart[g];
+        }
+        postings = new int[postingStart[unique]];
+        int[] next = Arrays.copyOf(postingStart, unique);
+        Arrays.fill(lastDocument, -1);
+        for (int doc = 0; doc < texts.length; doc++) {
+            String text = texts[doc];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                int g = indexOfGram(text, i);
+                if (g >= 0 && lastDocument[g] != doc) {
+                    lastDocument[g] = doc;
+                    postings[next[g]++] = doc;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index with one single-field document per text, in list order
+     */
+    public static TrigramIndex of(List<String> texts) {
+        Builder builder = new Builder();
+        for (String text : texts) {
+            builder.add(text);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * Documents with a field containing the query, best first. A query that
+     * folds to nothing matches nothing.
+     */
+    public int[] search(CharSequence query) {
+        String needle = TextNormalizer.fold(query);
+        if (needle.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] candidates;
+        int count;
+        if (needle.length() < 3) {
+            candidates = null;
+            count = texts.length;
+        } else {
+            // Posting ranges of the query's grams, smallest first
+            int[] ranges = new int[needle.length() - 2];
+            for (int i = 0; i < ranges.length; i++) {
+                int g = indexOfGram(needle, i);
+                if (g < 0) {
+                    return new int[0];
+                }
+                ranges[i] = g;
+            }
+            sortBySize(ranges);
+            int first = ranges[0];
+            count = postingStart[first + 1] - postingStart[first];
+            candidates = Arrays.copyOfRange(postings, postingStart[first], postingStart[first + 1]);
+            for (int r = 1; r < ranges.length && count > 0; r++) {
+                count = retain(candidates, count, ranges[r]);
+            }
+        }
+
+        // The grams can match out of order, so every candidate is checked
+        long[] keys = new long[count];
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            int doc = candidates != null ? candidates[i] : i;
+            int tier = tier(texts[doc], needle);
+            if (tier >= 0) {
+                long length = Math.min(texts[doc].length(), 0xFFFFF);
+                keys[matches++] = (long) tier << 52 | length << 32 | doc;
+            }
+        }
+        Arrays.sort(keys, 0, matches);
+        int[] result = new int[matches];
+        for (int i = 0; i < matches; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the candidates that are also in the postings of gram g
+     */
+    private int retain(int[] candidates, int count, int g) {
+        int from = postingStart[g];
+        int to = postingStart[g + 1];
+        int kept = 0;
+        for (int i = 0; i < count && from < to; i++) {
+            int found = Arrays.binarySearch(postings, from, to, candidates[i]);
+            if (found >= 0) {
+                candidates[kept++] = candidates[i];
+                from = found + 1;
+            } else {
+                // Both lists are sorted, later candidates can start here
+                from = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    private void sortBySize(int[] ranges) {
+        for (int i = 1; i < ranges.length; i++) {
+            int g = ranges[i];
+            int size = postingStart[g + 1] - postingStart[g];
+            int j = i;
+            while (j > 0 && postingStart[ranges[j - 1] + 1] - postingStart[ranges[j - 1]] > size) {
+                ranges[j] = ranges[j - 1];
+                j--;
+            }
+            ranges[j] = g;
+        }
+    }
+
+    private int indexOfGram(String text, int offset) {
+        long gram = gram(text, offset);
+        if (gram < 0) {
+            return -1;
+        }
+        int g = Arrays.binarySearch(grams, gram);
+        return g >= 0 ? g : -1;
+    }
+
+    /**
+     * 0 for a whole field, 1 for a match at the start of a field, 2 at the
+     * start of a word, 3 inside a word and -1 for none
+     */
+    private static int tier(String text, String needle) {
+        int best = -1;
+        for (int at = text.indexOf(needle); at >= 0; at = text.indexOf(needle, at + 1)) {
+            int end = at + needle.length();
+            char before = at == 0 ? FIELD_SEPARATOR : text.charAt(at - 1);
+            char after = end == text.length() ? FIELD_SEPARATOR : text.charAt(end);
+            int tier = before != FIELD_SEPARATOR ? (before == ' ' ? 2 : 3)
+                    : after == FIELD_SEPARATOR ? 0 : 1;
+            if (best < 0 || tier < best) {
+                best = tier;
+            }
+            if (best == 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private static long gram(String text, int offset) {
+        char a = text.charAt(offset);
+        char b = text.charAt(offset + 1);
+        char c = text.charAt(offset + 2);
+        if (a == FIELD_SEPARATOR || b == FIELD_SEPARATOR || c == FIELD_SEPARATOR) {
+            return -1;
+        }
+        return (long) a << 32 | (long) b << 16 | c;
+    }
+
+    /**
+     * Adds documents in order; the first is document 0
+     */
+    public static final class Builder {
+        private String[] texts = new String[64];
+        private int size;
+
+        /**
+         * Adds a document made of the given fields; null fields are skipped
+         */
+        public Builder add(String... fields) {
+            StringBuilder text = new StringBuilder();
+            for (String field : fields) {
+                String folded = TextNormalizer.fold(field);
+                if (!folded.isEmpty()) {
+                    if (text.length() > 0) {
+                        text.append(FIELD_SEPARATOR);
+                    }
+                    text.append(folded);
+                }
+            }
+            if (size == texts.length) {
+                texts = Arrays.copyOf(texts, size * 2);
+            }
+            texts[size++] = text.toString();
+            return this;
+        }
+
+        public TrigramIndex build() {
+            return new TrigramIndex(Arrays.copyOf(texts, size));
+        }
+    }
+}
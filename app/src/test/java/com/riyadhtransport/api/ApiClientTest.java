@@ -0,0 +1,64 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ApiClientTest {
+
+    private final MockWebServer server = new MockWebServer();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void reusesTheConnectionForTheSecondCall() throws Exception {
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        get(ApiClient.getHttpClient(), "/api/stations");
+        get(ApiClient.getHttpClient(), "/mtrlines");
+
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        // Second request on the same socket
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void derivedClientsShareTheConnectionPool() throws Exception {
+        server.enqueue(new MockResponse().setBody("backend"));
+        server.enqueue(new MockResponse().setBody("derived"));
+        OkHttpClient derived = ApiClient.getHttpClient().newBuilder().build();
+
+        get(ApiClient.getHttpClient(), "/buslines");
+        get(derived, "/search");
+
+        assertSame(ApiClient.getHttpClient().connectionPool(), derived.connectionPool());
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    private void get(OkHttpClient client, String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            // The connection returns to the pool once the body is consumed
+            response.body().string();
+        }
+    }
+}
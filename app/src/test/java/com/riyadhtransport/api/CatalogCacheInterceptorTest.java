@@ -0,0 +1,119 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CatalogCacheInterceptorTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void servesEntryWithoutValidatorsWithinTtl() throws Exception {
+        CatalogCacheInterceptor cache = cache(1, TimeUnit.HOURS);
+        server.enqueue(new MockResponse().setBody("stations"));
+
+        assertEquals("stations", get(cache, "/api/stations"));
+        assertEquals("stations", get(cache, "/api/stations"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void fetchesAgainOnceTheTtlRunsOut() throws Exception {
+        CatalogCacheInterceptor cache = cache(50, TimeUnit.MILLISECONDS);
+        server.enqueue(new MockResponse().setBody("old"));
+        server.enqueue(new MockResponse().setBody("new"));
+
+        assertEquals("old", get(cache, "/mtrlines"));
+        Thread.sleep(100);
+        assertEquals("new", get(cache, "/mtrlines"));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void answersNotModifiedFromDisk() throws Exception {
+        CatalogCacheInterceptor cache = cache(1, TimeUnit.HOURS);
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("lines"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("lines", get(cache, "/buslines"));
+        assertEquals("lines", get(cache, "/buslines"));
+
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(1, cache.getRevalidatedCount());
+    }
+
+    @Test
+    public void refetchesWhenTheEntryIsRemovedBeforeNotModified() throws Exception {
+        CatalogCacheInterceptor cache = cache(1, TimeUnit.HOURS);
+        AtomicInteger requests = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                if (requests.getAndIncrement() == 0) {
+                    return new MockResponse().setHeader("ETag", "\"v1\"").setBody("v1");
+                }
+                if (request.getHeader("If-None-Match") != null) {
+                    // The entry goes away while the revalidation is out
+                    cache.clear();
+                    return new MockResponse().setResponseCode(304);
+                }
+                return new MockResponse().setHeader("ETag", "\"v2\"").setBody("v2");
+            }
+        });
+
+        assertEquals("v1", get(cache, "/buslines"));
+        assertEquals("v2", get(cache, "/buslines"));
+
+        assertEquals(3, server.getRequestCount());
+        assertEquals(0, cache.getRevalidatedCount());
+    }
+
+    private CatalogCacheInterceptor cache(long ttl, TimeUnit unit) throws IOException {
+        return new CatalogCacheInterceptor(folder.newFolder(), ttl, unit);
+    }
+
+    private String get(CatalogCacheInterceptor cache, String path) throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(cache).build();
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Timeout;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+public class PriorityCallAdapterFactoryTest {
+
+    interface Service {
+        @Priority(CallPriority.VISIBLE)
+        @GET("visible")
+        Call<ResponseBody> visible();
+
+        @Priority(CallPriority.BACKGROUND)
+        @GET("background")
+        Call<ResponseBody> background();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    // The server holds every response until the test lets them through
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger arrived = new AtomicInteger();
+    private final AtomicInteger backgroundArrived = new AtomicInteger();
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                arrived.incrementAndGet();
+                if (request.getPath().startsWith("/background")) {
+                    backgroundArrived.incrementAndGet();
+                }
+                release.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addCallAdapterFactory(new PriorityCallAdapterFactory())
+                .addCallAdapterFactory(new SilentOnCancelFactory())
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void capsVisibleCalls() throws Exception {
+        List<Callbacks> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(enqueue(service.visible()));
+        }
+
+        Thread.sleep(300);
+        assertEquals(4, arrived.get());
+
+        release.countDown();
+        for (Callbacks callbacks : calls) {
+            callbacks.await();
+            assertEquals(1, callbacks.responses.get());
+        }
+        assertEquals(6, arrived.get());
+    }
+
+    @Test
+    public void holdsBackgroundCallsWhileVisibleCallsRun() throws Exception {
+        enqueue(service.visible());
+        Callbacks background = enqueue(service.background());
+
+        Thread.sleep(300);
+        assertEquals(0, backgroundArrived.get());
+
+        release.countDown();
+        background.await();
+        assertEquals(1, background.responses.get());
+    }
+
+    @Test
+    public void admitsBackgroundCallAfterWaitingTooLong() throws Exception {
+        enqueue(service.visible());
+        long start = System.currentTimeMillis();
+        enqueue(service.background());
+
+        while (backgroundArrived.get() == 0 && System.currentTimeMillis() - start < 8000) {
+            Thread.sleep(50);
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        assertEquals(1, backgroundArrived.get());
+        assertTrue("admitted after " + waited + "ms", waited >= 5000);
+    }
+
+    @Test
+    public void cancelledQueuedCallFailsOnceAndNeverStarts() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            enqueue(service.visible());
+        }
+        Call<ResponseBody> queued = service.visible();
+        Callbacks callbacks = enqueue(queued);
+
+        queued.cancel();
+        release.countDown();
+
+        callbacks.await();
+        Thread.sleep(300);
+        assertEquals(1, callbacks.failures.get());
+        assertEquals(0, callbacks.responses.get());
+        assertEquals(4, arrived.get());
+    }
+
+    @Test
+    public void cancelledRunningCallReleasesItsSlotOnce() throws Exception {
+        Call<ResponseBody> first = service.visible();
+        Callbacks cancelled = enqueue(first);
+        for (int i = 0; i < 3; i++) {
+            enqueue(service.visible());
+        }
+        Thread.sleep(300);
+        Callbacks queued = enqueue(service.visible());
+
+        // Freed by cancel() itself; a late failure must not free a second slot
+        first.cancel();
+        Thread.sleep(300);
+        assertEquals(5, arrived.get());
+
+        // Three still running plus the promoted one fill the cap again
+        enqueue(service.visible());
+        Thread.sleep(300);
+        assertEquals(5, arrived.get());
+
+        release.countDown();
+        queued.await();
+        assertEquals(1, queued.responses.get());
+        assertEquals(1, cancelled.failures.get());
+        assertEquals(0, cancelled.responses.get());
+    }
+
+    @Test
+    public void cancelledRunningCallFailsOnce() throws Exception {
+        Call<ResponseBody> call = service.visible();
+        Callbacks callbacks = enqueue(call);
+        Thread.sleep(300);
+
+        call.cancel();
+
+        Thread.sleep(300);
+        assertEquals(1, callbacks.failures.get());
+        assertEquals(0, callbacks.responses.get());
+    }
+
+    /**
+     * Below the scheduler: a delegate that never reports its own cancellation,
+     * so the scheduler cannot rely on it to give the slot back
+     */
+    private static final class SilentOnCancelFactory extends CallAdapter.Factory {
+        @Override
+        public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                     @NonNull Retrofit retrofit) {
+            @SuppressWarnings("unchecked")
+            CallAdapter<Object, Call<Object>> delegate = (CallAdapter<Object, Call<Object>>)
+                    retrofit.nextCallAdapter(this, returnType, annotations);
+            return new CallAdapter<Object, Call<Object>>() {
+                @NonNull
+                @Override
+                public Type responseType() {
+                    return delegate.responseType();
+                }
+
+                @NonNull
+                @Override
+                public Call<Object> adapt(@NonNull Call<Object> call) {
+                    return new SilentOnCancelCall<>(delegate.adapt(call));
+                }
+            };
+        }
+    }
+
+    private static final class SilentOnCancelCall<T> implements Call<T> {
+        private final Call<T> delegate;
+
+        SilentOnCancelCall(Call<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    if (!call.isCanceled()) {
+                        callback.onResponse(SilentOnCancelCall.this, response);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    if (!call.isCanceled()) {
+                        callback.onFailure(SilentOnCancelCall.this, t);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            return delegate.execute();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return delegate.isCanceled();
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new SilentOnCancelCall<>(delegate.clone());
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+
+    private static Callbacks enqueue(Call<ResponseBody> call) {
+        Callbacks callbacks = new Callbacks();
+        call.enqueue(callbacks);
+        return callbacks;
+    }
+
+    private static final class Callbacks implements Callback<ResponseBody> {
+        final AtomicInteger responses = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+            responses.incrementAndGet();
+            response.body().close();
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("no callback", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+
+public class RetryCallAdapterFactoryTest {
+
+    interface Service {
+        @Retry(initialBackoffMillis = 10)
+        @GET("catalog")
+        Call<ResponseBody> catalog();
+
+        @Retry(initialBackoffMillis = 10, attemptTimeoutSeconds = 1)
+        @GET("slow")
+        Call<ResponseBody> slow();
+
+        @Retry(initialBackoffMillis = 10, hedge = true)
+        @POST("route")
+        Call<ResponseBody> route();
+
+        @Retry(initialBackoffMillis = 1000)
+        @GET("backoff")
+        Call<ResponseBody> backoff();
+
+        @POST("report")
+        Call<ResponseBody> report();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger canceledCalls = new AtomicInteger();
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        NetworkMetrics.reset();
+        // OkHttp's own silent retry of a dropped connection would hide ours
+        OkHttpClient client = new OkHttpClient.Builder()
+                .retryOnConnectionFailure(false)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void canceled(@NonNull okhttp3.Call call) {
+                        canceledCalls.incrementAndGet();
+                    }
+                })
+                .build();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addCallAdapterFactory(new RetryCallAdapterFactory())
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        NetworkMetrics.reset();
+    }
+
+    @Test
+    public void retriesAfterServiceUnavailable() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("stations"));
+
+        Response<ResponseBody> response = await(service.catalog()).response;
+
+        assertEquals(200, response.code());
+        assertEquals("stations", response.body().string());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void retriesAfterAttemptTimeout() throws Exception {
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("stations"));
+
+        Result result = await(service.slow());
+
+        assertNull(result.failure);
+        assertEquals("stations", result.response.body().string());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void retriesExecuteAfterServiceUnavailable() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("stations"));
+
+        Response<ResponseBody> response = service.catalog().execute();
+
+        assertEquals("stations", response.body().string());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void hedgesAfterP95AndCancelsTheLoser() throws Exception {
+        // Every recorded route call took under 100 ms, so p95 is the 100 ms bucket
+        NetworkMetrics.Endpoint endpoint = NetworkMetrics.endpoint("POST", "/route");
+        for (int i = 0; i < 20; i++) {
+            endpoint.recordPhase(NetworkMetrics.PHASE_TOTAL, 80);
+        }
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("hedged"));
+
+        long start = System.nanoTime();
+        Response<ResponseBody> response = await(service.route()).response;
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("hedged", response.body().string());
+        assertEquals(2, server.getRequestCount());
+        assertTrue("hedge fired after " + elapsedMillis + "ms", elapsedMillis >= 100 && elapsedMillis < 2000);
+        assertEquals(1, canceledCalls.get());
+    }
+
+    @Test
+    public void doesNotHedgeWithoutLatencyHistory() throws Exception {
+        server.enqueue(new MockResponse().setBody("route").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        Response<ResponseBody> response = await(service.route()).response;
+
+        assertEquals("route", response.body().string());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void neverRepeatsCallsWithoutRetry() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+
+        assertEquals(503, await(service.report()).response.code());
+        assertNotNull(await(service.report()).failure);
+
+        // Give a wrongly scheduled retry time to arrive
+        server.takeRequest();
+        server.takeRequest();
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelDuringAttemptFailsOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(3, TimeUnit.SECONDS));
+        Call<ResponseBody> call = service.catalog();
+        Callbacks callbacks = new Callbacks();
+        call.enqueue(callbacks);
+        server.takeRequest();
+
+        call.cancel();
+
+        // Leave time for the cancelled attempt's own failure to arrive
+        Thread.sleep(300);
+        assertEquals(1, callbacks.failures.get());
+        assertEquals(0, callbacks.responses.get());
+        assertEquals("Canceled", callbacks.failure.getMessage());
+    }
+
+    @Test
+    public void cancelDuringBackoffFailsOnceAndDoesNotRetry() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("stations"));
+        Call<ResponseBody> call = service.backoff();
+        Callbacks callbacks = new Callbacks();
+        call.enqueue(callbacks);
+        server.takeRequest();
+        // The 503 has arrived and the retry waits out a backoff of at least 500 ms
+        Thread.sleep(200);
+
+        call.cancel();
+
+        assertNull(server.takeRequest(1200, TimeUnit.MILLISECONDS));
+        assertEquals(1, callbacks.failures.get());
+        assertEquals(0, callbacks.responses.get());
+    }
+
+    private static final class Callbacks implements Callback<ResponseBody> {
+        final AtomicInteger responses = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile Throwable failure;
+
+        @Override
+        public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+            responses.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+            failure = t;
+            failures.incrementAndGet();
+        }
+    }
+
+    private static final class Result {
+        Response<ResponseBody> response;
+        Throwable failure;
+    }
+
+    private static Result await(Call<ResponseBody> call) throws InterruptedException {
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(1);
+        call.enqueue(new Callback<ResponseBody>() {
+            @Override
+            public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+                result.response = response;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+                result.failure = t;
+                done.countDown();
+            }
+        });
+        assertTrue("no callback", done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+}
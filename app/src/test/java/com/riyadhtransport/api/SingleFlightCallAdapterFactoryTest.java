@@ -0,0 +1,196 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.http.GET;
+
+public class SingleFlightCallAdapterFactoryTest {
+
+    interface Service {
+        @Coalesce
+        @GET("lines")
+        Call<JsonObject> lines();
+
+        @Coalesce
+        @GET("failing")
+        Call<JsonObject> failing();
+
+        @GET("arrivals")
+        Call<JsonObject> arrivals();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    // The server holds every response until the test lets them through
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger canceledCalls = new AtomicInteger();
+    private final SingleFlightCallAdapterFactory singleFlight = new SingleFlightCallAdapterFactory();
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                release.await(10, TimeUnit.SECONDS);
+                if (request.getPath().startsWith("/failing")) {
+                    return new MockResponse().setResponseCode(503).setBody("down");
+                }
+                return new MockResponse().setBody("{\"line\":\"1\"}");
+            }
+        });
+        server.start();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .eventListener(new EventListener() {
+                    @Override
+                    public void canceled(@NonNull okhttp3.Call call) {
+                        canceledCalls.incrementAndGet();
+                    }
+                })
+                .build();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addCallAdapterFactory(singleFlight)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void joinsTheRunningCall() throws Exception {
+        Callbacks first = enqueue(service.lines());
+        Callbacks second = enqueue(service.lines());
+
+        release.countDown();
+        first.await();
+        second.await();
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, singleFlight.getJoinedCount());
+        assertEquals("1", first.response.body().get("line").getAsString());
+        assertSame(first.response.body(), second.response.body());
+    }
+
+    @Test
+    public void neverJoinsMethodsWithoutCoalesce() throws Exception {
+        Callbacks first = enqueue(service.arrivals());
+        Callbacks second = enqueue(service.arrivals());
+
+        release.countDown();
+        first.await();
+        second.await();
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, singleFlight.getJoinedCount());
+    }
+
+    @Test
+    public void leavingMemberKeepsTheSharedCallRunning() throws Exception {
+        Call<JsonObject> leaving = service.lines();
+        Callbacks left = enqueue(leaving);
+        Callbacks staying = enqueue(service.lines());
+
+        leaving.cancel();
+        release.countDown();
+        staying.await();
+
+        assertEquals(1, left.failures.get());
+        assertEquals(0, left.responses.get());
+        assertEquals(1, staying.responses.get());
+        assertEquals(0, canceledCalls.get());
+    }
+
+    @Test
+    public void lastMemberCancelsTheSharedCall() throws Exception {
+        Call<JsonObject> first = service.lines();
+        Call<JsonObject> second = service.lines();
+        Callbacks firstCallbacks = enqueue(first);
+        Callbacks secondCallbacks = enqueue(second);
+
+        first.cancel();
+        assertEquals(0, canceledCalls.get());
+        second.cancel();
+
+        // Leave time for the shared call's own failure to arrive
+        Thread.sleep(300);
+        assertEquals(1, canceledCalls.get());
+        assertEquals(1, firstCallbacks.failures.get());
+        assertEquals(1, secondCallbacks.failures.get());
+        assertEquals(0, firstCallbacks.responses.get() + secondCallbacks.responses.get());
+    }
+
+    @Test
+    public void eachMemberReadsItsOwnErrorBody() throws Exception {
+        Callbacks first = enqueue(service.failing());
+        Callbacks second = enqueue(service.failing());
+
+        release.countDown();
+        first.await();
+        second.await();
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(503, first.response.code());
+        assertEquals(503, second.response.code());
+        assertEquals("down", first.response.errorBody().string());
+        assertEquals("down", second.response.errorBody().string());
+    }
+
+    private static Callbacks enqueue(Call<JsonObject> call) {
+        Callbacks callbacks = new Callbacks();
+        call.enqueue(callbacks);
+        return callbacks;
+    }
+
+    private static final class Callbacks implements Callback<JsonObject> {
+        final AtomicInteger responses = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Response<JsonObject> response;
+
+        @Override
+        public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
+            this.response = response;
+            responses.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("no callback", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
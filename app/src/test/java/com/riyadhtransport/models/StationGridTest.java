@@ -0,0 +1,124 @@
+package com.riyadhtransport.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class StationGridTest {
+
+    private static final double RIYADH_LAT = 24.71;
+    private static final double RIYADH_LNG = 46.67;
+
+    @Test
+    public void nearestMatchesAScanOfEveryStation() {
+        StationTable table = randomTable(new Random(7), 800, 0.3);
+        Random queries = new Random(11);
+        for (int q = 0; q < 300; q++) {
+            // Some queries fall outside the grid
+            double latitude = RIYADH_LAT + (queries.nextDouble() - 0.5) * 0.8;
+            double longitude = RIYADH_LNG + (queries.nextDouble() - 0.5) * 0.8;
+            int k = 1 + queries.nextInt(12);
+            double maxMeters = queries.nextBoolean() ? Double.MAX_VALUE : 500 + queries.nextInt(5000);
+
+            assertNearest(table, latitude, longitude, k, maxMeters);
+        }
+    }
+
+    @Test
+    public void nearestSearchesPastEmptyRings() {
+        // A dense cluster and a few far stops leave most cells empty
+        StationTable.Builder builder = new StationTable.Builder();
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            builder.add("Cluster " + i, null, "bus", RIYADH_LAT + random.nextDouble() * 0.002,
+                    RIYADH_LNG + random.nextDouble() * 0.002);
+        }
+        builder.add("North", null, "metro", RIYADH_LAT + 0.25, RIYADH_LNG);
+        builder.add("East", null, "metro", RIYADH_LAT, RIYADH_LNG + 0.25);
+        StationTable table = builder.build();
+
+        assertNearest(table, RIYADH_LAT + 0.24, RIYADH_LNG + 0.01, 3, Double.MAX_VALUE);
+        assertNearest(table, RIYADH_LAT + 0.12, RIYADH_LNG + 0.12, 5, Double.MAX_VALUE);
+        assertNearest(table, RIYADH_LAT + 0.001, RIYADH_LNG + 0.001, 60, Double.MAX_VALUE);
+    }
+
+    @Test
+    public void nearestStopsAtMaxMeters() {
+        StationTable table = randomTable(new Random(5), 200, 0.2);
+
+        StationGrid.Hits hits = table.getGrid().nearest(RIYADH_LAT, RIYADH_LNG, 1000, 1500);
+
+        for (int i = 0; i < hits.size(); i++) {
+            assertTrue(hits.getDistance(i) <= 1500);
+        }
+        assertNearest(table, RIYADH_LAT, RIYADH_LNG, 1000, 1500);
+    }
+
+    @Test
+    public void withinMatchesAScanOfEveryStation() {
+        StationTable table = randomTable(new Random(9), 500, 0.3);
+        Random queries = new Random(13);
+        for (int q = 0; q < 100; q++) {
+            double latitude = RIYADH_LAT + (queries.nextDouble() - 0.5) * 0.4;
+            double longitude = RIYADH_LNG + (queries.nextDouble() - 0.5) * 0.4;
+            double radius = 200 + queries.nextInt(4000);
+
+            StationGrid.Hits hits = table.getGrid().within(latitude, longitude, radius);
+
+            double[] expected = scan(table, latitude, longitude, radius);
+            assertEquals(expected.length, hits.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], hits.getDistance(i), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void emptyTableFindsNothing() {
+        assertEquals(0, StationTable.EMPTY.getGrid().nearest(RIYADH_LAT, RIYADH_LNG, 5, 1000).size());
+        assertEquals(0, StationTable.EMPTY.getGrid().within(RIYADH_LAT, RIYADH_LNG, 1000).size());
+    }
+
+    private static void assertNearest(StationTable table, double latitude, double longitude,
+                                      int k, double maxMeters) {
+        StationGrid.Hits hits = table.getGrid().nearest(latitude, longitude, k, maxMeters);
+
+        // Rows at equal distance may come in either order, so compare distances
+        double[] all = scan(table, latitude, longitude, maxMeters);
+        double[] expected = Arrays.copyOf(all, Math.min(k, all.length));
+        assertEquals(expected.length, hits.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], hits.getDistance(i), 1e-6);
+            assertEquals(hits.getDistance(i), StationTable.distanceMeters(latitude, longitude,
+                    table.getLatitude(hits.getRow(i)), table.getLongitude(hits.getRow(i))), 1e-6);
+        }
+    }
+
+    private static double[] scan(StationTable table, double latitude, double longitude, double maxMeters) {
+        double[] distances = new double[table.size()];
+        int count = 0;
+        for (int row = 0; row < table.size(); row++) {
+            double distance = StationTable.distanceMeters(latitude, longitude,
+                    table.getLatitude(row), table.getLongitude(row));
+            if (distance <= maxMeters) {
+                distances[count++] = distance;
+            }
+        }
+        double[] found = Arrays.copyOf(distances, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    private static StationTable randomTable(Random random, int size, double spanDegrees) {
+        StationTable.Builder builder = new StationTable.Builder();
+        for (int i = 0; i < size; i++) {
+            builder.add("Stop " + i, null, i % 5 == 0 ? "metro" : "bus",
+                    RIYADH_LAT + (random.nextDouble() - 0.5) * spanDegrees,
+                    RIYADH_LNG + (random.nextDouble() - 0.5) * spanDegrees);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.riyadhtransport.models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class StationTableTest {
+
+    private final StationTable table = new StationTable.Builder()
+            .add("Olaya (Metro)", "Olaya (Metro)", "metro", 24.76, 46.54)
+            .add("Malaz Bus", null, "bus", 24.66, 46.73)
+            .add("Al Olaya", "Al Olaya Stop", "bus", 24.70, 46.68)
+            .add("Olaya (Metro)", "Olaya (Metro)", "metro", 24.76, 46.55)
+            .build();
+
+    @Test
+    public void rowsKeepTheirNamesWhenTheColumnIsSorted() {
+        assertEquals("Olaya (Metro)", table.getValue(0));
+        assertEquals("Malaz Bus", table.getValue(1));
+        assertNull(table.getLabel(1));
+        assertEquals("Al Olaya Stop", table.getLabel(2));
+        assertEquals("Al Olaya", table.getValue(2));
+        assertEquals(Arrays.asList("Olaya (Metro)", "Malaz Bus", "Al Olaya Stop", "Olaya (Metro)"),
+                table.getDisplayNames());
+    }
+
+    @Test
+    public void equalNamesShareOneEntry() {
+        assertEquals(table.getNameId(0), table.getNameId(3));
+        assertEquals(0, table.indexOf("Olaya (Metro)"));
+        assertEquals(2, table.indexOf("Al Olaya Stop"));
+    }
+
+    @Test
+    public void equalMatchesRankAlphabeticallyWhateverTheRowOrder() {
+        StationTable reversed = new StationTable.Builder()
+                .add("Zahra B", null, "bus", 24.7, 46.7)
+                .add("Zahra A", null, "bus", 24.7, 46.7)
+                .build();
+
+        // Both names match "zahra" at their start and have the same length
+        assertArrayEquals(new int[] {1, 0}, reversed.matching("zahra"));
+    }
+}
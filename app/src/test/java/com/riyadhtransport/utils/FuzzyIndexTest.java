@@ -0,0 +1,81 @@
+package com.riyadhtransport.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FuzzyIndexTest {
+
+    @Test
+    public void budgetGrowsWithWordLength() {
+        assertEquals(0, FuzzyIndex.budget(1));
+        assertEquals(0, FuzzyIndex.budget(2));
+        assertEquals(1, FuzzyIndex.budget(3));
+        assertEquals(1, FuzzyIndex.budget(5));
+        assertEquals(2, FuzzyIndex.budget(6));
+        assertEquals(2, FuzzyIndex.budget(12));
+    }
+
+    // A trailing space marks the last word as complete, so it is not matched as a prefix
+
+    @Test
+    public void shortWordsMustMatchExactly() {
+        FuzzyIndex index = index("Al Olaya");
+
+        assertArrayEquals(new int[] {0}, index.search("al olaya "));
+        assertArrayEquals(new int[0], index.search("ak olaya "));
+    }
+
+    @Test
+    public void wordsUpToFiveCharsAllowOneEdit() {
+        FuzzyIndex index = index("Qasr Al Hukm");
+
+        assertArrayEquals(new int[] {0}, index.search("qasr al hokm "));
+        assertArrayEquals(new int[0], index.search("qasr al hokn "));
+    }
+
+    @Test
+    public void longerWordsAllowTwoEdits() {
+        FuzzyIndex index = index("Nakheel Mall");
+
+        assertArrayEquals(new int[] {0}, index.search("nakhil mall "));
+        assertArrayEquals(new int[0], index.search("nakhxyz mall "));
+        // Five chars, two edits away
+        assertArrayEquals(new int[0], index.search("nakhl mall "));
+    }
+
+    @Test
+    public void transposedLettersCountAsOneEdit() {
+        FuzzyIndex index = index("Olaya Street");
+
+        assertArrayEquals(new int[] {0}, index.search("olyaa street "));
+    }
+
+    @Test
+    public void lastWordMatchesTheStartOfANameWord() {
+        FuzzyIndex index = index("Nakheel Mall");
+
+        assertArrayEquals(new int[] {0}, index.search("nakhl"));
+        assertArrayEquals(new int[0], index.search("nakhl "));
+    }
+
+    @Test
+    public void ranksFewerEditsThenHigherWeight() {
+        FuzzyIndex index = new FuzzyIndex.Builder()
+                .add("Olaya Bus", 1)
+                .add("Olaya Metro", 2)
+                .add("Olaia", 5)
+                .build();
+
+        assertArrayEquals(new int[] {1, 0, 2}, index.search("olaya "));
+    }
+
+    private static FuzzyIndex index(String... names) {
+        FuzzyIndex.Builder builder = new FuzzyIndex.Builder();
+        for (String name : names) {
+            builder.add(name, 0);
+        }
+        return builder.build();
+    }
+}
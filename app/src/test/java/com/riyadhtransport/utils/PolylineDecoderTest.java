@@ -0,0 +1,87 @@
+package com.riyadhtransport.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class PolylineDecoderTest {
+
+    private static final double[] LATITUDES = {38.5, 40.7, 43.252};
+    private static final double[] LONGITUDES = {-120.2, -120.95, -126.453};
+
+    @Test
+    public void decodesTheReferencePolyline() {
+        PolylineDecoder decoder = new PolylineDecoder();
+
+        assertEquals(3, decoder.append("_p~iF~ps|U_ulLnnqC_mqNvxq`@"));
+
+        for (int i = 0; i < LATITUDES.length; i++) {
+            assertEquals(LATITUDES[i], decoder.getLatitude(i), 1e-9);
+            assertEquals(LONGITUDES[i], decoder.getLongitude(i), 1e-9);
+        }
+        assertEquals(38.5, decoder.getMinLatitude(), 1e-9);
+        assertEquals(-120.2, decoder.getMaxLongitude(), 1e-9);
+    }
+
+    @Test
+    public void encodesTheReferencePolyline() {
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@",
+                new PolylineDecoder().encode(LATITUDES, LONGITUDES, LATITUDES.length));
+    }
+
+    @Test
+    public void roundTripsAtBothPrecisions() {
+        double[] latitudes = {24.713552, 24.7136, 24.688, -0.000001, 0};
+        double[] longitudes = {46.675296, 46.6753, 46.72, 179.999999, -179.999999};
+        for (int precision : new int[] {PolylineDecoder.PRECISION_5, PolylineDecoder.PRECISION_6}) {
+            PolylineDecoder decoder = new PolylineDecoder(precision);
+            String encoded = decoder.encode(latitudes, longitudes, latitudes.length);
+
+            decoder.append(encoded);
+
+            double tolerance = Math.pow(10, -precision) / 2 + 1e-12;
+            assertEquals(latitudes.length, decoder.size());
+            for (int i = 0; i < latitudes.length; i++) {
+                assertEquals(latitudes[i], decoder.getLatitude(i), tolerance);
+                assertEquals(longitudes[i], decoder.getLongitude(i), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void appendsPolylinesUntilCleared() {
+        PolylineDecoder decoder = new PolylineDecoder();
+        decoder.append("_p~iF~ps|U");
+        decoder.add(24.7, 46.7);
+        decoder.append("_p~iF~ps|U");
+
+        // Each polyline starts from zero again
+        assertEquals(3, decoder.size());
+        assertEquals(24.7, decoder.getLatitude(1), 1e-9);
+        assertEquals(38.5, decoder.getLatitude(2), 1e-9);
+        assertEquals(46.7, decoder.getMaxLongitude(), 1e-9);
+
+        decoder.clear();
+        assertEquals(0, decoder.size());
+        assertEquals(Double.POSITIVE_INFINITY, decoder.getMinLatitude(), 0);
+    }
+
+    @Test
+    public void malformedPolylineAddsNothing() {
+        PolylineDecoder decoder = new PolylineDecoder();
+        decoder.append("_p~iF~ps|U");
+
+        // Truncated inside a value, a dangling latitude and a char below '?'
+        for (String malformed : new String[] {"_p~iF~ps|U_ulL", "_p~iF~ps|U_ulLnnqC_mqN", "_p~i F~ps|U", "_p~"}) {
+            try {
+                decoder.append(malformed);
+                fail("Accepted " + malformed);
+            } catch (IllegalArgumentException expected) {
+                assertEquals(1, decoder.size());
+                assertEquals(38.5, decoder.getMaxLatitude(), 1e-9);
+                assertEquals(-120.2, decoder.getMinLongitude(), 1e-9);
+            }
+        }
+    }
+}
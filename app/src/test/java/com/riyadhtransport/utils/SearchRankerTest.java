@@ -0,0 +1,84 @@
+package com.riyadhtransport.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.riyadhtransport.models.SearchResult;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SearchRankerTest {
+
+    private static final double LAT = 24.7605;
+    private static final double LNG = 46.7342;
+    // About 30 m north of the station
+    private static final double NEAR_LAT = LAT + 0.00027;
+
+    private final SearchRanker ranker = new SearchRanker("granada", Double.NaN, Double.NaN);
+
+    @Test
+    public void dropsPlaceThatIsTheListedStation() {
+        List<SearchResult> stations = Collections.singletonList(station("Granada (Metro)", LAT, LNG));
+
+        List<SearchResult> merged = ranker.merge(stations, Arrays.asList(
+                place("Granada Metro Station, Eastern Ring Road, Riyadh", NEAR_LAT, LNG),
+                place("Granada, Riyadh, Saudi Arabia", NEAR_LAT, LNG)));
+
+        assertEquals(1, merged.size());
+    }
+
+    @Test
+    public void keepsDifferentPlaceNextToStation() {
+        List<SearchResult> stations = Collections.singletonList(station("Granada (Metro)", LAT, LNG));
+
+        List<SearchResult> merged = ranker.merge(stations, Collections.singletonList(
+                place("Granada Mall, Eastern Ring Road, Riyadh", NEAR_LAT, LNG)));
+
+        assertEquals(2, merged.size());
+    }
+
+    @Test
+    public void keepsSameNamedPlaceFarFromStation() {
+        List<SearchResult> stations = Collections.singletonList(station("Granada (Metro)", LAT, LNG));
+
+        List<SearchResult> merged = ranker.merge(stations, Collections.singletonList(
+                place("Granada, Riyadh", LAT + 0.01, LNG)));
+
+        assertEquals(2, merged.size());
+    }
+
+    @Test
+    public void matchesArabicStationNames() {
+        SearchRanker arabic = new SearchRanker("العليا", Double.NaN, Double.NaN);
+        List<SearchResult> stations = Collections.singletonList(station("العليا (مترو)", LAT, LNG));
+
+        List<SearchResult> merged = arabic.merge(stations, Arrays.asList(
+                place("محطة العليا، الرياض", NEAR_LAT, LNG),
+                place("برج العليا، الرياض", NEAR_LAT, LNG)));
+
+        assertEquals(2, merged.size());
+        assertEquals("برج العليا، الرياض", merged.get(1).getName());
+    }
+
+    private SearchResult station(String name, double latitude, double longitude) {
+        SearchResult result = result(name, latitude, longitude);
+        result.setStation(true);
+        ranker.score(result, SearchRanker.METRO_IMPORTANCE);
+        return result;
+    }
+
+    private SearchResult place(String name, double latitude, double longitude) {
+        SearchResult result = result(name, latitude, longitude);
+        ranker.score(result, 0.3);
+        return result;
+    }
+
+    private static SearchResult result(String name, double latitude, double longitude) {
+        SearchResult result = new SearchResult();
+        result.setName(name);
+        result.setLatitude(latitude);
+        result.setLongitude(longitude);
+        return result;
+    }
+}
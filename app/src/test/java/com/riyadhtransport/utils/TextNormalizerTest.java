@@ -0,0 +1,50 @@
+package com.riyadhtransport.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TextNormalizerTest {
+
+    @Test
+    public void foldsAlefForms() {
+        assertEquals("احمد", TextNormalizer.fold("أحمد"));
+        assertEquals("اسلام", TextNormalizer.fold("إسلام"));
+        assertEquals("امنه", TextNormalizer.fold("آمنة"));
+        assertEquals("الله", TextNormalizer.fold("ٱلله"));
+    }
+
+    @Test
+    public void foldsTehMarbutaAndYehForms() {
+        assertEquals(TextNormalizer.fold("العروبه"), TextNormalizer.fold("العروبة"));
+        assertEquals(TextNormalizer.fold("مستشفي"), TextNormalizer.fold("مستشفى"));
+        assertEquals("هييه", TextNormalizer.fold("هيئة"));
+        assertEquals("مسوول", TextNormalizer.fold("مسؤول"));
+    }
+
+    @Test
+    public void dropsTashkeelAndTatweel() {
+        assertEquals("محطه", TextNormalizer.fold("مَحَطَّة"));
+        assertEquals("محطه", TextNormalizer.fold("مـحـطة"));
+    }
+
+    @Test
+    public void foldsPersianLettersAndDigits() {
+        assertEquals("كيلو", TextNormalizer.fold("کیلو"));
+        assertEquals("34", TextNormalizer.fold("٣٤"));
+        assertEquals("34", TextNormalizer.fold("۳۴"));
+    }
+
+    @Test
+    public void lowercasesLatinAndDropsAccents() {
+        assertEquals("qasr al hukm", TextNormalizer.fold("  Qasr  Al-Hukm "));
+        assertEquals("cafe olaya", TextNormalizer.fold("Café (Olaya)"));
+    }
+
+    @Test
+    public void turnsSeparatorsIntoOneSpace() {
+        assertEquals("العليا مترو", TextNormalizer.fold("العليا (مترو)"));
+        assertEquals("", TextNormalizer.fold(" - "));
+        assertEquals("", TextNormalizer.fold(null));
+    }
+}
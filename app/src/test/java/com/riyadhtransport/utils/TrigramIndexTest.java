@@ -0,0 +1,81 @@
+package com.riyadhtransport.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void ranksWholeFieldThenFieldStartThenWordStartThenInsideWord() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList(
+                "Bolayan",          // 0: inside a word
+                "King Fahd Olaya",  // 1: word start, longer
+                "Olaya Towers",     // 2: field start
+                "Al Olaya",         // 3: word start, shorter
+                "Olaya"));          // 4: whole field
+
+        assertArrayEquals(new int[] {4, 2, 3, 1, 0}, index.search("olaya"));
+    }
+
+    @Test
+    public void equalMatchesKeepDocumentOrder() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList("Malaz A", "Malaz B", "Malaz C"));
+
+        assertArrayEquals(new int[] {0, 1, 2}, index.search("malaz"));
+    }
+
+    @Test
+    public void intersectsThePostingsOfEveryGram() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList(
+                "abcxyz",   // abc but not bcd
+                "xbcdx",    // bcd but not abc
+                "abcdef"));
+
+        assertArrayEquals(new int[] {2}, index.search("abcd"));
+    }
+
+    @Test
+    public void checksCandidatesWhoseGramsMatchOutOfOrder() {
+        // Holds both grams of "abcd" without containing it
+        TrigramIndex index = TrigramIndex.of(Arrays.asList("bcd abc", "abcd"));
+
+        assertArrayEquals(new int[] {1}, index.search("abcd"));
+    }
+
+    @Test
+    public void findsNothingForAnUnknownGram() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList("Olaya", "Malaz"));
+
+        assertArrayEquals(new int[0], index.search("olz"));
+        assertArrayEquals(new int[0], index.search(" - "));
+    }
+
+    @Test
+    public void scansForQueriesShorterThanAGram() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList("Bolayan", "Olaya", "Al Olaya", "Malaz"));
+
+        assertArrayEquals(new int[] {1, 2, 0}, index.search("ol"));
+    }
+
+    @Test
+    public void matchesAnyFieldButNeverAcrossFields() {
+        TrigramIndex index = new TrigramIndex.Builder()
+                .add("150", "Olaya Street")
+                .add("15", "Malaz")
+                .build();
+
+        assertArrayEquals(new int[] {1, 0}, index.search("15"));
+        assertArrayEquals(new int[] {0}, index.search("olaya"));
+        assertArrayEquals(new int[0], index.search("15 malaz"));
+    }
+
+    @Test
+    public void matchesArabicSpellingVariants() {
+        TrigramIndex index = TrigramIndex.of(Arrays.asList("العروبة (مترو)", "الأمير سعود"));
+
+        assertArrayEquals(new int[] {0}, index.search("العروبه"));
+        assertArrayEquals(new int[] {1}, index.search("الامير"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.riyadhtransport.build;
+
+import java.io.File;
+import java.io.IOException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Builds assets/snapshot/&lt;language&gt;.bin from recorded API output. English
+ * recordings are at the top of the source directory and Arabic ones under
+ * ar/, falling back to the English file, like the debug fixtures.
+ */
+public abstract class GenerateSnapshotTask extends DefaultTask {
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getSourceDir();
+
+    /**
+     * Written into the header, a downloaded snapshot replaces the bundled one
+     * only when its data version is higher
+     */
+    @Input
+    public abstract Property<Long> getDataVersion();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @TaskAction
+    public void generate() throws IOException {
+        File source = getSourceDir().get().getAsFile();
+        File snapshots = new File(getOutputDir().get().getAsFile(), "snapshot");
+        long version = getDataVersion().get();
+        // Don't leave a language behind whose recordings were removed
+        File[] stale = snapshots.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+
+        SnapshotWriter.write(source, source, version, new File(snapshots, "en.bin"));
+        File arabic = new File(source, "ar");
+        if (arabic.isDirectory()) {
+            SnapshotWriter.write(arabic, source, version, new File(snapshots, "ar.bin"));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.riyadhtransport.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts recorded /api/stations, /mtrlines, /buslines, /viewmtr and /viewbus
+ * responses into the binary station snapshot read by
+ * com.riyadhtransport.data.StationSnapshot, whose doc comment describes the
+ * format. The two must change together.
+ *
+ * viewmtr.json and viewbus.json hold the response for each line keyed by line
+ * id, the same layout as the debug fixtures.
+ */
+public final class SnapshotWriter {
+
+    static final int MAGIC = 0x5254534E;
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte TYPE_OTHER = 0;
+    private static final byte TYPE_METRO = 1;
+    private static final byte TYPE_BUS = 2;
+
+    private static final class Station {
+        String value;
+        String label;
+        byte type;
+        double latitude;
+        double longitude;
+    }
+
+    private static final class Line {
+        String id;
+        // Null when the line has no recorded details
+        List<String> directions;
+        List<List<String>> stops;
+    }
+
+    private SnapshotWriter() {
+    }
+
+    /**
+     * Writes the snapshot for the recordings in a directory. Files missing
+     * there are taken from the fallback directory, which may be the same.
+     */
+    public static void write(File directory, File fallback, long dataVersion, File output)
+            throws IOException {
+        List<Station> stations = readStations(parse(directory, fallback, "stations.json").getAsJsonArray());
+        List<Line> metroLines = readLines(parse(directory, fallback, "mtrlines.json"),
+                parse(directory, fallback, "viewmtr.json"));
+        List<Line> busLines = readLines(parse(directory, fallback, "buslines.json"),
+                parse(directory, fallback, "viewbus.json"));
+
+        // One sorted table for every string, so station names are ready to use as a dictionary
+        TreeMap<String, Integer> strings = new TreeMap<>();
+        for (Station station : stations) {
+            addString(strings, station.value);
+            addString(strings, station.label);
+        }
+        for (Line line : concat(metroLines, busLines)) {
+            addString(strings, line.id);
+            if (line.directions != null) {
+                for (int d = 0; d < line.directions.size(); d++) {
+                    addString(strings, line.directions.get(d));
+                    for (String stop : line.stops.get(d)) {
+                        addString(strings, stop);
+                    }
+                }
+            }
+        }
+        int id = 0;
+        for (Map.Entry<String, Integer> entry : strings.entrySet()) {
+            entry.setValue(id++);
+        }
+
+        // Stops point at the first station with that display name
+        Map<String, Integer> rowByName = new HashMap<>();
+        for (int row = 0; row < stations.size(); row++) {
+            Station station = stations.get(row);
+            rowByName.putIfAbsent(station.label != null ? station.label : station.value, row);
+        }
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeShort(0);
+            out.writeLong(dataVersion);
+            out.writeInt(strings.size());
+            out.writeInt(stations.size());
+            out.writeInt(metroLines.size());
+            out.writeInt(busLines.size());
+
+            List<byte[]> encoded = new ArrayList<>(strings.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            for (Station station : stations) {
+                out.writeInt(stringId(strings, station.value));
+            }
+            for (Station station : stations) {
+                out.writeInt(stringId(strings, station.label));
+            }
+            for (Station station : stations) {
+                out.writeByte(station.type);
+            }
+            for (Station station : stations) {
+                out.writeDouble(station.latitude);
+            }
+            for (Station station : stations) {
+                out.writeDouble(station.longitude);
+            }
+
+            for (Line line : concat(metroLines, busLines)) {
+                writeLine(out, line, strings, rowByName);
+            }
+        }
+    }
+
+    private static void writeLine(DataOutputStream out, Line line, Map<String, Integer> strings,
+                                  Map<String, Integer> rowByName) throws IOException {
+        out.writeInt(stringId(strings, line.id));
+        if (line.directions == null) {
+            out.writeShort(-1);
+            return;
+        }
+        out.writeShort(line.directions.size());
+        for (int d = 0; d < line.directions.size(); d++) {
+            out.writeInt(stringId(strings, line.directions.get(d)));
+            List<String> stops = line.stops.get(d);
+            out.writeInt(stops.size());
+            for (String stop : stops) {
+                Integer row = rowByName.get(stop);
+                out.writeInt(row != null ? row : -stringId(strings, stop) - 2);
+            }
+        }
+    }
+
+    private static List<Station> readStations(JsonArray array) {
+        List<Station> stations = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            JsonObject object = element.getAsJsonObject();
+            Station station = new Station();
+            station.value = string(object, "value");
+            if (station.value == null) {
+                station.value = string(object, "name");
+            }
+            station.label = string(object, "label");
+            String type = string(object, "type");
+            station.type = "metro".equalsIgnoreCase(type) ? TYPE_METRO
+                    : "bus".equalsIgnoreCase(type) ? TYPE_BUS : TYPE_OTHER;
+            station.latitude = object.get("lat").getAsDouble();
+            station.longitude = object.get("lng").getAsDouble();
+            stations.add(station);
+        }
+        return stations;
+    }
+
+    private static List<Line> readLines(JsonElement list, JsonElement details) {
+        JsonObject detailsById = details.getAsJsonObject();
+        List<Line> lines = new ArrayList<>();
+        for (String id : list.getAsJsonObject().get("lines").getAsString().split(",")) {
+            Line line = new Line();
+            line.id = id.trim();
+            JsonElement lineDetails = detailsById.get(line.id);
+            if (lineDetails != null && lineDetails.isJsonObject()) {
+                line.directions = new ArrayList<>();
+                line.stops = new ArrayList<>();
+                for (Map.Entry<String, JsonElement> direction : lineDetails.getAsJsonObject().entrySet()) {
+                    if (!direction.getValue().isJsonArray()) {
+                        continue;
+                    }
+                    List<String> stops = new ArrayList<>();
+                    for (JsonElement stop : direction.getValue().getAsJsonArray()) {
+                        stops.add(stop.getAsString());
+                    }
+                    line.directions.add(direction.getKey());
+                    line.stops.add(stops);
+                }
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static String string(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private static void addString(Map<String, Integer> strings, String string) {
+        if (string != null) {
+            strings.put(string, 0);
+        }
+    }
+
+    private static int stringId(Map<String, Integer> strings, String string) {
+        return string != null ? strings.get(string) : -1;
+    }
+
+    private static List<Line> concat(List<Line> first, List<Line> second) {
+        List<Line> lines = new ArrayList<>(first);
+        lines.addAll(second);
+        return lines;
+    }
+
+    private static JsonElement parse(File directory, File fallback, String name) throws IOException {
+        File file = new File(directory, name);
+        if (!file.exists()) {
+            file = new File(fallback, name);
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return new JsonParser().parse(reader);
+        }
+    }
+}